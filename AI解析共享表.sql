@@ -0,0 +1,34 @@
+-- AI智能题库APP - AI解析共享表
+-- 在Supabase项目的SQL编辑器中执行此脚本
+-- 客户端开启AIAnalysisCache共享后，同一题目、同一答案、同一提示词版本和模型的AI解析只生成一次
+
+-- 1. 创建AI解析共享表
+CREATE TABLE IF NOT EXISTS ai_analyses (
+    question_id TEXT NOT NULL REFERENCES questions(id) ON DELETE CASCADE,
+    answer TEXT NOT NULL, -- 规范化后的用户答案，未作答为"-"
+    prompt_version INTEGER NOT NULL,
+    model TEXT NOT NULL,
+    result JSONB NOT NULL, -- AIAnalysisResult
+    created_at TIMESTAMPTZ DEFAULT NOW(),
+    updated_at TIMESTAMPTZ DEFAULT NOW(),
+    PRIMARY KEY (question_id, answer, prompt_version, model)
+);
+
+-- 2. 更新时间触发器
+DROP TRIGGER IF EXISTS update_ai_analyses_updated_at ON ai_analyses;
+CREATE TRIGGER update_ai_analyses_updated_at BEFORE UPDATE ON ai_analyses FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- 3. 允许匿名用户读取和写入（与其他表的简化配置一致）
+ALTER TABLE ai_analyses ENABLE ROW LEVEL SECURITY;
+
+DROP POLICY IF EXISTS "允许匿名用户查看AI解析" ON ai_analyses;
+CREATE POLICY "允许匿名用户查看AI解析" ON ai_analyses
+    FOR SELECT USING (true);
+
+DROP POLICY IF EXISTS "允许匿名用户写入AI解析" ON ai_analyses;
+CREATE POLICY "允许匿名用户写入AI解析" ON ai_analyses
+    FOR INSERT WITH CHECK (true);
+
+DROP POLICY IF EXISTS "允许匿名用户更新AI解析" ON ai_analyses;
+CREATE POLICY "允许匿名用户更新AI解析" ON ai_analyses
+    FOR UPDATE USING (true);
@@ -201,4 +201,56 @@ $$ LANGUAGE plpgsql;
 -- 创建触发器
 CREATE TRIGGER question_notification
     AFTER INSERT OR UPDATE OR DELETE ON questions
-    FOR EACH ROW EXECUTE FUNCTION notify_question_update();
\ No newline at end of file
+    FOR EACH ROW EXECUTE FUNCTION notify_question_update();
+
+-- 首页统计聚合函数：在数据库端汇总答题记录，客户端只接收一行结果
+CREATE OR REPLACE FUNCTION get_answer_accuracy(p_user_id TEXT)
+RETURNS TABLE (total_answers BIGINT, correct_answers BIGINT) AS $$
+    SELECT
+        COUNT(*) AS total_answers,
+        COUNT(*) FILTER (WHERE is_correct) AS correct_answers
+    FROM answer_records
+    WHERE user_id = p_user_id;
+$$ LANGUAGE sql STABLE;
+
+-- 首页分类统计函数：按分类汇总题目数和当前用户已作答的题目数
+CREATE OR REPLACE FUNCTION get_category_stats(p_user_id TEXT)
+RETURNS TABLE (category TEXT, question_count BIGINT, learned_count BIGINT) AS $$
+    SELECT
+        q.category,
+        COUNT(*) AS question_count,
+        COUNT(*) FILTER (WHERE EXISTS (
+            SELECT 1 FROM answer_records ar
+            WHERE ar.question_id = q.id AND ar.user_id = p_user_id
+        )) AS learned_count
+    FROM questions q
+    GROUP BY q.category
+    ORDER BY question_count DESC;
+$$ LANGUAGE sql STABLE;
+
+-- 错题批量更新函数：一次请求更新多行内容各不相同的错题，返回实际更新的行数
+-- p_rows为 [{"id": "...", "review_count": 2, ...}] 形式的数组，缺省或为null的字段保持原值
+CREATE OR REPLACE FUNCTION bulk_update_wrong_questions(p_rows JSONB)
+RETURNS INTEGER AS $$
+    WITH updated AS (
+        UPDATE wrong_questions w SET
+            review_count = COALESCE(r.review_count, w.review_count),
+            mastery_level = COALESCE(r.mastery_level, w.mastery_level),
+            is_mastered = COALESCE(r.is_mastered, w.is_mastered),
+            next_review_date = COALESCE(r.next_review_date, w.next_review_date),
+            last_review_date = COALESCE(r.last_review_date, w.last_review_date),
+            wrong_reason = COALESCE(r.wrong_reason, w.wrong_reason)
+        FROM jsonb_to_recordset(p_rows) AS r(
+            id TEXT,
+            review_count INTEGER,
+            mastery_level INTEGER,
+            is_mastered BOOLEAN,
+            next_review_date DATE,
+            last_review_date DATE,
+            wrong_reason TEXT
+        )
+        WHERE w.id = r.id
+        RETURNING w.id
+    )
+    SELECT COUNT(*)::INTEGER FROM updated;
+$$ LANGUAGE sql VOLATILE;
@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
     }
+    // 本地单元测试中Log等Android方法返回默认值，而不是抛出异常
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -5,6 +5,8 @@ import android.util.Log;
 
 import com.example.aitestbank.utils.CacheUtils;
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.http.SupabaseHttpClient;
 
 /**
  * 应用程序主类 - 初始化全局组件
@@ -30,15 +32,34 @@ public class AITestBankApplication extends Application {
             CacheUtils.init(this);
             Log.d(TAG, "CacheUtils初始化成功");
             
+            // 启用共享传输层的磁盘响应缓存
+            SupabaseHttpClient.getInstance().initialize(this);
+            
             // 初始化Supabase客户端
             SimpleSupabaseClient supabaseClient = SimpleSupabaseClient.getInstance();
             supabaseClient.initialize(this, SUPABASE_URL, SUPABASE_ANON_KEY);
             Log.d(TAG, "Supabase客户端初始化成功");
+            
+            // 提前建立到Supabase的连接，首屏请求直接复用
+            SupabaseHttpClient.getInstance().preconnect();
         } catch (Exception e) {
             Log.e(TAG, "应用初始化失败", e);
         }
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 系统内存紧张时收缩内存缓存
+        SupabaseCacheManager.getInstance(this).onTrimMemory(level);
+    }
+    
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        SupabaseCacheManager.getInstance(this).onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+    
     public static AITestBankApplication getInstance() {
         return instance;
     }
@@ -0,0 +1,96 @@
+package com.example.aitestbank;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.aitestbank.supabase.cache.CacheMetrics;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.http.SupabaseHttpClient;
+import com.example.aitestbank.utils.AppExecutors;
+import com.example.aitestbank.utils.CacheUtils;
+
+/**
+ * 缓存统计调试界面（从Supabase连接测试页进入）
+ * 显示各缓存命名空间的命中率、淘汰次数和网络加载耗时分布
+ */
+public class CacheStatsActivity extends AppCompatActivity {
+
+    private TextView statsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        statsText = new TextView(this);
+        statsText.setTextIsSelectable(true);
+        statsText.setTypeface(android.graphics.Typeface.MONOSPACE);
+
+        Button refreshButton = new Button(this);
+        Button resetButton = new Button(this);
+        Button cleanupButton = new Button(this);
+        refreshButton.setText("刷新");
+        resetButton.setText("重置计数");
+        cleanupButton.setText("清理过期缓存");
+
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(32, 32, 32, 32);
+
+        LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT,
+                LinearLayout.LayoutParams.WRAP_CONTENT);
+        params.setMargins(0, 0, 0, 16);
+
+        layout.addView(refreshButton, params);
+        layout.addView(resetButton, params);
+        layout.addView(cleanupButton, params);
+        layout.addView(statsText, params);
+
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(layout);
+        setContentView(scrollView);
+
+        refreshButton.setOnClickListener(v -> refreshStats());
+        resetButton.setOnClickListener(v -> {
+            CacheMetrics.getInstance().reset();
+            refreshStats();
+        });
+        cleanupButton.setOnClickListener(v -> AppExecutors.getInstance().writer().execute(() -> {
+            SupabaseCacheManager.getInstance(this).cleanupExpiredCache();
+            runOnUiThread(() -> {
+                Toast.makeText(this, "过期缓存已清理", Toast.LENGTH_SHORT).show();
+                refreshStats();
+            });
+        }));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refreshStats();
+    }
+
+    /**
+     * 统计需要读磁盘索引，在后台收集后再显示
+     */
+    private void refreshStats() {
+        statsText.setText("统计中...");
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
+            String report = SupabaseCacheManager.getInstance(this).getMetricsReport()
+                    + "\n\n本地数据缓存: " + CacheUtils.getCacheSize() + "KB"
+                    + "\n\nHTTP: " + SupabaseHttpClient.getInstance().getPoolStatus()
+                    + "\n\n线程池: " + AppExecutors.getInstance().getStatus();
+            runOnUiThread(() -> {
+                if (!isFinishing()) {
+                    statsText.setText(report);
+                }
+            });
+        });
+    }
+}
@@ -9,6 +9,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.aitestbank.model.Question;
+import com.example.aitestbank.service.AICallPolicy;
 import com.example.aitestbank.service.AIService;
 
 import java.util.Arrays;
@@ -80,6 +81,7 @@ public class DeepSeekConnectionTest extends AppCompatActivity {
                     for (String mistake : result.getCommonMistakes()) {
                         resultText.append("  • ").append(mistake).append("\n");
                     }
+                    resultText.append("\n").append(AICallPolicy.getInstance().formatReport());
                     
                     resultTextView.setText(resultText.toString());
                     testButton.setEnabled(true);
@@ -100,7 +102,8 @@ public class DeepSeekConnectionTest extends AppCompatActivity {
                             "• 网络连接问题\n" +
                             "• DeepSeek服务暂时不可用\n" +
                             "• 请求频率限制\n\n" +
-                            "已自动切换到本地解析模式。";
+                            "已自动切换到本地解析模式。\n\n" +
+                            AICallPolicy.getInstance().formatReport();
                     
                     resultTextView.setText(resultText);
                     testButton.setEnabled(true);
@@ -13,6 +13,8 @@ import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 
 import com.example.aitestbank.supabase.auth.AuthManager;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.repository.WarmupStage;
 import com.example.aitestbank.ui.auth.LoginActivity;
 import com.example.aitestbank.ui.home.HomeFragment;
 import com.example.aitestbank.ui.question.QuestionFragment;
@@ -54,6 +56,10 @@ public class MainActivity extends AppCompatActivity {
         // 默认显示首页
         if (savedInstanceState == null) {
             replaceFragment(new HomeFragment());
+            
+            // 首帧绘制后再预热缓存，不与首屏请求争抢
+            findViewById(R.id.main).post(() -> SupabaseCacheManager.getInstance(this).warmupCache(this,
+                    WarmupStage.stagesFor(this, authManager.getCurrentUserId(), WarmupStage.DEFAULT_ORDER), null));
         }
         
         // 保留Supabase测试功能
@@ -12,6 +12,8 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.http.SupabaseHttpClient;
+import com.example.aitestbank.utils.AppExecutors;
 
 import okhttp3.*;
 
@@ -31,6 +33,7 @@ public class SupabaseConnectionTest extends AppCompatActivity {
     private Button testBasicButton;
     private Button testWithKeyButton;
     private Button testQueryButton;
+    private Button cacheStatsButton;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,12 +45,14 @@ public class SupabaseConnectionTest extends AppCompatActivity {
         testBasicButton = new Button(this);
         testWithKeyButton = new Button(this);
         testQueryButton = new Button(this);
+        cacheStatsButton = new Button(this);
         
         statusText.setText("准备测试Supabase连接...");
         resultText.setText("等待测试结果...");
         testBasicButton.setText("测试服务端连接");
         testWithKeyButton.setText("测试API密钥连接");
         testQueryButton.setText("测试数据查询");
+        cacheStatsButton.setText("查看缓存统计");
         
         android.widget.LinearLayout layout = new android.widget.LinearLayout(this);
         layout.setOrientation(android.widget.LinearLayout.VERTICAL);
@@ -62,6 +67,7 @@ public class SupabaseConnectionTest extends AppCompatActivity {
         layout.addView(testBasicButton, params);
         layout.addView(testWithKeyButton, params);
         layout.addView(testQueryButton, params);
+        layout.addView(cacheStatsButton, params);
         layout.addView(resultText, new android.widget.LinearLayout.LayoutParams(
                 android.widget.LinearLayout.LayoutParams.MATCH_PARENT,
                 android.widget.LinearLayout.LayoutParams.MATCH_PARENT));
@@ -75,15 +81,16 @@ public class SupabaseConnectionTest extends AppCompatActivity {
         testBasicButton.setOnClickListener(v -> testBasicConnection());
         testWithKeyButton.setOnClickListener(v -> testConnectionWithKey());
         testQueryButton.setOnClickListener(v -> testDataQuery());
+        cacheStatsButton.setOnClickListener(v -> startActivity(new Intent(this, CacheStatsActivity.class)));
     }
     
     private void testBasicConnection() {
         statusText.setText("测试Supabase服务端连接...");
         resultText.setText("连接测试中...");
         
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
-                OkHttpClient client = new OkHttpClient();
+                OkHttpClient client = SupabaseHttpClient.getInstance().getOkHttpClient();
                 // 测试基础的服务器健康检查端点
                 Request request = new Request.Builder()
                         .url(SUPABASE_URL + "/rest/v1/")
@@ -118,16 +125,16 @@ public class SupabaseConnectionTest extends AppCompatActivity {
                     showToast("连接异常：" + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
     
     private void testConnectionWithKey() {
         statusText.setText("测试API密钥连接...");
         resultText.setText("API密钥测试中...");
         
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
-                OkHttpClient client = new OkHttpClient();
+                OkHttpClient client = SupabaseHttpClient.getInstance().getOkHttpClient();
                 Request request = new Request.Builder()
                         .url(SUPABASE_URL + "/rest/v1/")
                         .addHeader("apikey", SUPABASE_KEY)
@@ -161,16 +168,16 @@ public class SupabaseConnectionTest extends AppCompatActivity {
                     showToast("API密钥测试异常：" + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
     
     private void testDataQuery() {
         statusText.setText("测试数据查询...");
         resultText.setText("查询测试中...");
         
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
-                OkHttpClient client = new OkHttpClient();
+                OkHttpClient client = SupabaseHttpClient.getInstance().getOkHttpClient();
                 Request request = new Request.Builder()
                         .url(SUPABASE_URL + "/rest/v1/questions?select=*&limit=5")
                         .addHeader("apikey", SUPABASE_KEY)
@@ -204,7 +211,7 @@ public class SupabaseConnectionTest extends AppCompatActivity {
                     showToast("数据查询异常：" + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
     
     private void showToast(String message) {
@@ -0,0 +1,39 @@
+package com.example.aitestbank.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * 分类统计模型 - 对应数据库函数get_category_stats的返回行
+ */
+public class CategoryStat {
+    
+    @SerializedName("category")
+    private String category; // 分类
+    
+    @SerializedName("question_count")
+    private int questionCount; // 该分类题目总数
+    
+    @SerializedName("learned_count")
+    private int learnedCount; // 当前用户已作答的题目数
+    
+    public CategoryStat() {
+    }
+    
+    public CategoryStat(String category, int questionCount, int learnedCount) {
+        this.category = category;
+        this.questionCount = questionCount;
+        this.learnedCount = learnedCount;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public int getQuestionCount() {
+        return questionCount;
+    }
+    
+    public int getLearnedCount() {
+        return learnedCount;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.aitestbank.model;
 
 import com.google.gson.annotations.SerializedName;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Date;
 
@@ -72,6 +73,33 @@ public class Question implements Serializable {
         this.correctAnswer = correctAnswer;
     }
     
+    /**
+     * 复制构造，列表字段也复制一份，修改副本不影响原对象
+     */
+    public Question(Question other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.options = copyOf(other.options);
+        this.correctAnswer = other.correctAnswer;
+        this.analysis = other.analysis;
+        this.aiAnalysis = other.aiAnalysis;
+        this.knowledgePoints = copyOf(other.knowledgePoints);
+        this.difficulty = other.difficulty;
+        this.category = other.category;
+        this.subject = other.subject;
+        this.source = other.source;
+        this.type = other.type;
+        this.tags = copyOf(other.tags);
+        this.viewCount = other.viewCount;
+        this.correctRate = other.correctRate;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+    
+    private static List<String> copyOf(List<String> list) {
+        return list != null ? new ArrayList<>(list) : null;
+    }
+    
     // Getter和Setter方法
     public String getId() {
         return id;
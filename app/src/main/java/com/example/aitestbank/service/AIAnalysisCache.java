@@ -0,0 +1,314 @@
+package com.example.aitestbank.service;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.aitestbank.model.Question;
+import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.cache.CacheMetrics;
+import com.example.aitestbank.supabase.cache.DiskCacheStore;
+import com.example.aitestbank.supabase.http.SupabaseHttpClient;
+import com.example.aitestbank.utils.AppExecutors;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * AI解析结果缓存
+ *
+ * 键由题目ID、规范化后的用户答案（选择题为选项字母，与提示词中一致）、提示词版本和模型组成，内容相同的请求直接复用已解析的结果，
+ * 修改提示词时提升AIService.PROMPT_VERSION即可让旧结果失效。
+ * 结果不过期，磁盘占用超过上限时按写入时间淘汰最早的条目。
+ * 可选把结果共享到ai_analyses表（主键为题目ID、答案、提示词版本和模型，见"AI解析共享表.sql"），
+ * 其他用户答案相同时直接使用，不写入共用的questions.ai_analysis，不会覆盖人工录入的解析。
+ * get会读文件（开启共享时还会查询服务端），应在后台线程调用
+ */
+public class AIAnalysisCache {
+
+    private static final String TAG = "AIAnalysisCache";
+    private static final String STORE_DIR = "ai_analysis_store";
+    // 同时也是指标统计的命名空间
+    private static final String KEY_PREFIX = "ai_analysis:";
+    private static final String REMOTE_TABLE = "ai_analyses";
+
+    private static final int MEMORY_ENTRIES = 32;
+    private static final long MAX_DISK_BYTES = 2 * 1024 * 1024;
+    // 淘汰到上限的3/4，避免每次写入都触发淘汰
+    private static final long EVICT_TARGET_BYTES = MAX_DISK_BYTES / 4 * 3;
+
+    private static volatile AIAnalysisCache instance;
+
+    private final DiskCacheStore store;
+    private final LruCache<String, AIService.AIAnalysisResult> memoryCache = new LruCache<>(MEMORY_ENTRIES);
+    private final CacheMetrics metrics = CacheMetrics.getInstance();
+    private final Gson gson = new Gson();
+    private volatile boolean remoteSyncEnabled = false;
+
+    private AIAnalysisCache(Context context) {
+        store = new DiskCacheStore(new File(context.getApplicationContext().getCacheDir(), STORE_DIR));
+    }
+
+    public static AIAnalysisCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AIAnalysisCache.class) {
+                if (instance == null) {
+                    instance = new AIAnalysisCache(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 是否与ai_analyses表共享解析（本地未命中时查询，新生成的解析写入），默认关闭
+     */
+    public void setRemoteSyncEnabled(boolean enabled) {
+        remoteSyncEnabled = enabled;
+    }
+
+    /**
+     * 缓存键
+     */
+    public static String keyOf(String questionId, String userAnswer, int promptVersion, String model) {
+        return KEY_PREFIX + questionId + "|" + normalizeAnswer(userAnswer) + "|v" + promptVersion + "|" + model;
+    }
+
+    /**
+     * 规范化用户答案：去掉空白和分隔符差异、统一大写，多选答案按选项排序，未作答记为"-"
+     */
+    static String normalizeAnswer(String userAnswer) {
+        if (userAnswer == null || userAnswer.trim().isEmpty()) {
+            return "-";
+        }
+        String[] parts = userAnswer.trim().toUpperCase().split("[\\s,，;；、]+");
+        Arrays.sort(parts);
+        StringBuilder normalized = new StringBuilder();
+        for (String part : parts) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            if (normalized.length() > 0) {
+                normalized.append(',');
+            }
+            normalized.append(part);
+        }
+        return normalized.length() > 0 ? normalized.toString() : "-";
+    }
+
+    /**
+     * 读取缓存的解析，依次查内存、磁盘和ai_analyses表（开启共享时），都没有返回null
+     */
+    public AIService.AIAnalysisResult get(Question question, String userAnswer, int promptVersion, String model) {
+        if (question == null || question.getId() == null) {
+            return null;
+        }
+        String answer = AIService.answerText(question, userAnswer);
+        String key = keyOf(question.getId(), answer, promptVersion, model);
+
+        AIService.AIAnalysisResult result = memoryCache.get(key);
+        if (result != null) {
+            metrics.recordMemoryHit(key);
+            return result;
+        }
+
+        String json = store.get(key);
+        if (json != null) {
+            try {
+                result = gson.fromJson(json, AIService.AIAnalysisResult.class);
+            } catch (Exception e) {
+                Log.w(TAG, "缓存的解析已损坏: " + key);
+                store.remove(key);
+            }
+            if (result != null) {
+                metrics.recordDiskHit(key, utf8Length(json));
+                memoryCache.put(key, result);
+                return result;
+            }
+        }
+
+        if (remoteSyncEnabled) {
+            String remoteJson = fetchRemote(question.getId(), answer, promptVersion, model);
+            if (remoteJson != null) {
+                try {
+                    result = gson.fromJson(remoteJson, AIService.AIAnalysisResult.class);
+                } catch (Exception e) {
+                    // 按未命中处理，删掉坏行，重新生成的解析会写回共享表
+                    Log.w(TAG, "共享的解析已损坏: " + key);
+                    removeRemote(question.getId(), answer, promptVersion, model);
+                }
+            }
+            if (result != null) {
+                Log.d(TAG, "使用共享的AI解析: " + question.getId());
+                metrics.recordRemoteHit(key, utf8Length(remoteJson));
+                putLocal(key, result);
+                return result;
+            }
+        }
+
+        metrics.recordMiss(key);
+        return null;
+    }
+
+    /**
+     * 保存从DeepSeek得到的解析（本地生成的解析不要保存）
+     */
+    public void put(Question question, String userAnswer, int promptVersion, String model, AIService.AIAnalysisResult result) {
+        if (question == null || question.getId() == null || result == null) {
+            return;
+        }
+        String answer = AIService.answerText(question, userAnswer);
+        String key = keyOf(question.getId(), answer, promptVersion, model);
+        putLocal(key, result);
+        if (remoteSyncEnabled) {
+            syncToRemote(question.getId(), answer, promptVersion, model, result);
+        }
+    }
+
+    /**
+     * 清空全部解析缓存（清除缓存时调用）
+     */
+    public void clear() {
+        memoryCache.evictAll();
+        AppExecutors.getInstance().writer().execute(store::clear);
+    }
+
+    public long getStoredBytes() {
+        return store.storedBytes();
+    }
+
+    private void putLocal(String key, AIService.AIAnalysisResult result) {
+        memoryCache.put(key, result);
+        String json = gson.toJson(result);
+        store.put(key, json, 0);
+        metrics.recordWrite(key, utf8Length(json));
+        if (store.storedBytes() > MAX_DISK_BYTES) {
+            AppExecutors.getInstance().writer().execute(this::evictOldest);
+        }
+    }
+
+    /**
+     * 按写入时间从早到晚淘汰，直到低于EVICT_TARGET_BYTES
+     */
+    private void evictOldest() {
+        long stored = store.storedBytes();
+        if (stored <= MAX_DISK_BYTES) {
+            return;
+        }
+        List<Map.Entry<String, DiskCacheStore.Entry>> entries = new ArrayList<>(store.entries().entrySet());
+        entries.sort((a, b) -> Long.compare(a.getValue().writtenAt, b.getValue().writtenAt));
+        int evicted = 0;
+        for (Map.Entry<String, DiskCacheStore.Entry> entry : entries) {
+            if (stored <= EVICT_TARGET_BYTES) {
+                break;
+            }
+            store.remove(entry.getKey());
+            memoryCache.remove(entry.getKey());
+            metrics.recordEviction(entry.getKey(), entry.getValue().sizeBytes);
+            stored -= entry.getValue().storedBytes;
+            evicted++;
+        }
+        Log.d(TAG, "淘汰AI解析缓存 " + evicted + " 条，剩余 " + store.storedBytes() / 1024 + "KB");
+    }
+
+    /**
+     * 写入ai_analyses表，同一题目、答案、提示词版本和模型只保留一行
+     */
+    private void syncToRemote(String questionId, String userAnswer, int promptVersion, String model,
+                              AIService.AIAnalysisResult result) {
+        JsonObject row = new JsonObject();
+        row.addProperty("question_id", questionId);
+        row.addProperty("answer", normalizeAnswer(userAnswer));
+        row.addProperty("prompt_version", promptVersion);
+        row.addProperty("model", model);
+        row.add("result", gson.toJsonTree(result));
+
+        AppExecutors.getInstance().writer().execute(() -> {
+            Request request = SupabaseHttpClient.getInstance()
+                    .newRequestBuilder(SupabaseHttpClient.restUrl(REMOTE_TABLE + "?on_conflict=question_id,answer,prompt_version,model"))
+                    .header("Prefer", "resolution=merge-duplicates,return=minimal")
+                    .post(RequestBody.create(row.toString(), SupabaseHttpClient.JSON))
+                    .build();
+            try (Response response = SupabaseHttpClient.getInstance().execute(request)) {
+                if (!response.isSuccessful()) {
+                    Log.w(TAG, "共享AI解析失败: " + questionId + ", 状态码" + response.code());
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "共享AI解析失败: " + questionId + ", " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 删除ai_analyses表中无法解析的一行
+     */
+    private void removeRemote(String questionId, String userAnswer, int promptVersion, String model) {
+        AppExecutors.getInstance().writer().execute(() -> {
+            try {
+                Request request = SupabaseHttpClient.getInstance()
+                        .newRequestBuilder(SupabaseHttpClient.restUrl(
+                                REMOTE_TABLE + "?" + remoteFilter(questionId, userAnswer, promptVersion, model)))
+                        .header("Prefer", "return=minimal")
+                        .delete()
+                        .build();
+                try (Response response = SupabaseHttpClient.getInstance().execute(request)) {
+                    if (!response.isSuccessful()) {
+                        Log.w(TAG, "删除损坏的共享解析失败: " + questionId + ", 状态码" + response.code());
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "删除损坏的共享解析失败: " + questionId + ", " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 查询ai_analyses表，返回result字段的JSON，没有或查询失败时返回null
+     */
+    private String fetchRemote(String questionId, String userAnswer, int promptVersion, String model) {
+        try {
+            String filter = remoteFilter(questionId, userAnswer, promptVersion, model) + "&limit=1";
+            JsonArray rows = JsonParser.parseString(
+                    SimpleSupabaseClient.getInstance().query(REMOTE_TABLE, "result", filter)).getAsJsonArray();
+            if (rows.size() == 0 || !rows.get(0).getAsJsonObject().has("result")) {
+                return null;
+            }
+            return rows.get(0).getAsJsonObject().get("result").toString();
+        } catch (Exception e) {
+            Log.w(TAG, "查询共享AI解析失败: " + questionId + ", " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * ai_analyses表按主键定位一行的过滤条件
+     */
+    private static String remoteFilter(String questionId, String userAnswer, int promptVersion, String model)
+            throws UnsupportedEncodingException {
+        return "question_id=eq." + URLEncoder.encode(questionId, "UTF-8")
+                + "&answer=eq." + URLEncoder.encode(normalizeAnswer(userAnswer), "UTF-8")
+                + "&prompt_version=eq." + promptVersion
+                + "&model=eq." + URLEncoder.encode(model, "UTF-8");
+    }
+
+    /**
+     * 指标按UTF-8字节数统计，与磁盘上的大小一致
+     */
+    private static int utf8Length(String json) {
+        return json.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.aitestbank.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * AI解析内容的单遍解析器
+ *
+ * 内容只扫描一遍：每行到达时用预编译的正则判断是否为章节标题，否则归入当前章节，
+ * 列表章节的序号、项目符号在入列时就去掉，生成结果时不再处理已完成的行。
+ * 完整响应用parse一次解析；流式响应每次只到达几个字，用append逐段追加，snapshot随时生成部分结果
+ * （包括还没收到换行的最后一行），界面可以边生成边显示。
+ * 章节标题后的文字、第一个标题之前的文字都算作正文内容。非线程安全，由读取流的线程独占使用
+ */
+public class AIAnalysisStreamParser {
+
+    /**
+     * 章节，顺序与系统提示中的格式一致
+     */
+    enum Section {
+        ANALYSIS("题目解析"),
+        STEPS("解题步骤"),
+        KEY_POINTS("核心考点"),
+        MISTAKES("易错点提醒"),
+        RECOMMENDATIONS("学习建议");
+
+        final String title;
+
+        Section(String title) {
+            this.title = title;
+        }
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+
+    // 章节标题行：可带Markdown标记和序号，标题后只能是行尾或冒号加内容，避免把"核心考点包括…"当成标题
+    private static final Pattern HEADER = Pattern.compile(
+            "^[#*\\s]*(?:\\d+[.、．)]\\s*)?[*\\s]*(题目解析|解题步骤|核心考点|易错点提醒|易错点|学习建议)[*\\s]*(?:[：:][*\\s]*(.*))?$");
+    // 列表项前缀：序号、项目符号
+    private static final Pattern LIST_MARKER = Pattern.compile("^(?:\\d+[.、．)]|[-*•])\\s*");
+
+    private final List<List<String>> sections = new ArrayList<>(SECTIONS.length);
+    private final StringBuilder pendingLine = new StringBuilder();
+    private Section current = Section.ANALYSIS;
+    private boolean hasContent;
+
+    public AIAnalysisStreamParser() {
+        for (int i = 0; i < SECTIONS.length; i++) {
+            sections.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * 一次解析完整内容
+     */
+    public static AIService.AIAnalysisResult parse(String content) {
+        AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+        parser.append(content);
+        return parser.finish();
+    }
+
+    /**
+     * 追加一段内容
+     */
+    public void append(String delta) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        int start = 0;
+        int newline;
+        while ((newline = delta.indexOf('\n', start)) >= 0) {
+            if (pendingLine.length() == 0) {
+                acceptLine(delta.substring(start, newline));
+            } else {
+                pendingLine.append(delta, start, newline);
+                acceptLine(pendingLine.toString());
+                pendingLine.setLength(0);
+            }
+            start = newline + 1;
+        }
+        pendingLine.append(delta, start, delta.length());
+    }
+
+    /**
+     * 当前的部分结果，未结束的最后一行也包含在内
+     */
+    public AIService.AIAnalysisResult snapshot() {
+        Section pendingSection = current;
+        String pendingContent = pendingLine.toString().trim();
+        if (!pendingContent.isEmpty()) {
+            Matcher matcher = matchHeader(pendingContent);
+            if (matcher != null) {
+                pendingSection = sectionOf(matcher.group(1));
+                pendingContent = matcher.group(2) != null ? matcher.group(2).trim() : "";
+            }
+            if (pendingSection != Section.ANALYSIS) {
+                pendingContent = stripListMarker(pendingContent);
+            }
+        }
+
+        AIService.AIAnalysisResult result = new AIService.AIAnalysisResult();
+        result.setAnalysisText(joinText(sections.get(Section.ANALYSIS.ordinal()),
+                pendingSection == Section.ANALYSIS ? pendingContent : ""));
+        result.setSolutionSteps(listOf(Section.STEPS, pendingSection, pendingContent));
+        result.setKeyPoints(listOf(Section.KEY_POINTS, pendingSection, pendingContent));
+        result.setCommonMistakes(listOf(Section.MISTAKES, pendingSection, pendingContent));
+        result.setRecommendations(listOf(Section.RECOMMENDATIONS, pendingSection, pendingContent));
+        return result;
+    }
+
+    /**
+     * 内容结束后的完整结果，空的列表章节填入"暂无…"
+     */
+    public AIService.AIAnalysisResult finish() {
+        if (pendingLine.length() > 0) {
+            acceptLine(pendingLine.toString());
+            pendingLine.setLength(0);
+        }
+        AIService.AIAnalysisResult result = snapshot();
+        result.setSolutionSteps(orPlaceholder(result.getSolutionSteps(), Section.STEPS));
+        result.setKeyPoints(orPlaceholder(result.getKeyPoints(), Section.KEY_POINTS));
+        result.setCommonMistakes(orPlaceholder(result.getCommonMistakes(), Section.MISTAKES));
+        result.setRecommendations(orPlaceholder(result.getRecommendations(), Section.RECOMMENDATIONS));
+        return result;
+    }
+
+    /**
+     * 是否已经解析出任何内容
+     */
+    public boolean hasContent() {
+        return hasContent || pendingLine.toString().trim().length() > 0;
+    }
+
+    private void acceptLine(String rawLine) {
+        String line = rawLine.trim();
+        if (line.isEmpty()) {
+            return;
+        }
+        Matcher matcher = matchHeader(line);
+        if (matcher != null) {
+            current = sectionOf(matcher.group(1));
+            String rest = matcher.group(2);
+            if (rest == null || rest.trim().isEmpty()) {
+                return;
+            }
+            line = rest.trim();
+        }
+        if (current != Section.ANALYSIS) {
+            line = stripListMarker(line);
+            if (line.isEmpty()) {
+                return;
+            }
+        }
+        sections.get(current.ordinal()).add(line);
+        hasContent = true;
+    }
+
+    /**
+     * 跳过行首的Markdown标记和序号后，第一个字是某个标题的首字才跑正则，绝大多数内容行在这里就排除了
+     */
+    private static Matcher matchHeader(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '#' || c == '*' || c == ' ' || c == '\t' || (c >= '0' && c <= '9')
+                    || c == '.' || c == '、' || c == '．' || c == ')') {
+                continue;
+            }
+            if (c == '题' || c == '解' || c == '核' || c == '易' || c == '学') {
+                Matcher matcher = HEADER.matcher(line);
+                return matcher.matches() ? matcher : null;
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private static String stripListMarker(String line) {
+        char first = line.isEmpty() ? 0 : line.charAt(0);
+        if ((first >= '0' && first <= '9') || first == '-' || first == '*' || first == '•') {
+            return LIST_MARKER.matcher(line).replaceFirst("").trim();
+        }
+        return line;
+    }
+
+    private List<String> listOf(Section section, Section pendingSection, String pendingContent) {
+        List<String> lines = sections.get(section.ordinal());
+        List<String> items = new ArrayList<>(lines.size() + 1);
+        items.addAll(lines);
+        if (section == pendingSection && !pendingContent.isEmpty()) {
+            items.add(pendingContent);
+        }
+        return items;
+    }
+
+    private static String joinText(List<String> lines, String pendingContent) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        text.append(pendingContent);
+        return text.toString().trim();
+    }
+
+    private static List<String> orPlaceholder(List<String> items, Section section) {
+        if (items.isEmpty()) {
+            items.add("暂无" + section.title);
+        }
+        return items;
+    }
+
+    private static Section sectionOf(String title) {
+        if (title.startsWith("易错点")) {
+            return Section.MISTAKES;
+        }
+        for (Section section : SECTIONS) {
+            if (section.title.equals(title)) {
+                return section;
+            }
+        }
+        return Section.ANALYSIS;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.aitestbank.service;
+
+import android.util.Log;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * DeepSeek调用策略：截止时间、熔断、对冲请求和按结果分类的指标
+ *
+ * 每种调用都有截止时间（流式调用另有首个内容的截止时间），超时立即改用本地解析，不等读超时。
+ * 连续FAILURE_THRESHOLD次失败（HTTP错误、网络错误、超时）后熔断OPEN_MILLIS，期间直接走本地解析；
+ * 流式请求首个内容超时单独计为FIRST_CONTENT_TIMEOUT以便区分，同样算作失败（连接建立后一直没有输出的服务
+ * 否则永远不会熔断，每个请求都要等满首个内容的截止时间）；
+ * 之后放行一个试探请求，成功则恢复，失败则继续熔断。
+ * 对冲默认关闭：开启后单次请求在hedgeDelayMillis内没有响应时再发一个相同的请求，先返回的为准。
+ * 所有AIService实例共用一个策略，熔断状态对整个应用生效
+ */
+public class AICallPolicy {
+
+    private static final String TAG = "AICallPolicy";
+
+    /** 单次请求的截止时间 */
+    public static final long ONE_SHOT_DEADLINE_MILLIS = 15_000;
+    /** 流式请求收到第一段内容的截止时间 */
+    public static final long STREAM_FIRST_CONTENT_MILLIS = 6_000;
+    /** 流式请求整体的截止时间（内容已在逐步显示，可以比单次请求长） */
+    public static final long STREAM_DEADLINE_MILLIS = 60_000;
+    /** 批量请求每批的截止时间 */
+    public static final long BATCH_DEADLINE_MILLIS = 45_000;
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_MILLIS = 30_000;
+    private static final long DEFAULT_HEDGE_DELAY_MILLIS = 5_000;
+
+    /**
+     * 一次调用的结果
+     */
+    public enum Outcome {
+        SUCCESS,
+        /** 对冲请求先返回 */
+        HEDGE_WIN,
+        /** 流式响应中途断开或超时，使用了已收到的部分 */
+        PARTIAL,
+        /** 响应成功但没有解析出内容 */
+        EMPTY,
+        HTTP_ERROR,
+        NETWORK_ERROR,
+        DEADLINE,
+        /** 流式请求在STREAM_FIRST_CONTENT_MILLIS内没有收到内容，计入熔断 */
+        FIRST_CONTENT_TIMEOUT,
+        /** 熔断中，未发请求 */
+        SHORT_CIRCUIT,
+        /** 调用方取消 */
+        CANCELED;
+
+        boolean isFailure() {
+            return this == HTTP_ERROR || this == NETWORK_ERROR || this == DEADLINE || this == FIRST_CONTENT_TIMEOUT;
+        }
+
+        boolean isSuccess() {
+            return this == SUCCESS || this == HEDGE_WIN || this == PARTIAL || this == EMPTY;
+        }
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        /** 熔断到期，放行一个试探请求 */
+        HALF_OPEN
+    }
+
+    private static final AICallPolicy INSTANCE = new AICallPolicy();
+
+    private final Map<Outcome, OutcomeStats> stats = new EnumMap<>(Outcome.class);
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private volatile boolean hedgingEnabled = false;
+    private volatile long hedgeDelayMillis = DEFAULT_HEDGE_DELAY_MILLIS;
+
+    private AICallPolicy() {
+        this(OPEN_MILLIS);
+    }
+
+    /**
+     * 单元测试用，可以指定熔断时长
+     */
+    AICallPolicy(long openMillis) {
+        this.openMillis = openMillis;
+        for (Outcome outcome : Outcome.values()) {
+            stats.put(outcome, new OutcomeStats());
+        }
+    }
+
+    public static AICallPolicy getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 是否可以发请求；返回false时调用方应记录SHORT_CIRCUIT并走本地解析。
+     * 返回true后必须以record结束本次调用（包括CANCELED），否则半开状态不会放行下一个试探请求
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            Log.d(TAG, "熔断到期，放行试探请求");
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 记录一次调用的结果和耗时，并更新熔断状态
+     */
+    public synchronized void record(Outcome outcome, long elapsedMillis) {
+        OutcomeStats outcomeStats = stats.get(outcome);
+        outcomeStats.count++;
+        outcomeStats.totalMillis += elapsedMillis;
+        outcomeStats.maxMillis = Math.max(outcomeStats.maxMillis, elapsedMillis);
+
+        if (outcome.isFailure()) {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+                open();
+            }
+        } else if (outcome.isSuccess()) {
+            consecutiveFailures = 0;
+            if (state != State.CLOSED) {
+                Log.d(TAG, "试探请求成功，熔断恢复");
+            }
+            state = State.CLOSED;
+        }
+        if (state == State.HALF_OPEN && outcome == Outcome.CANCELED) {
+            // 试探请求被取消，没有结论，下一个请求重新试探
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public void setHedgingEnabled(boolean enabled) {
+        hedgingEnabled = enabled;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgingEnabled;
+    }
+
+    /**
+     * 单次请求发出多久没有响应时发对冲请求
+     */
+    public void setHedgeDelayMillis(long delayMillis) {
+        hedgeDelayMillis = delayMillis;
+    }
+
+    public long getHedgeDelayMillis() {
+        return hedgeDelayMillis;
+    }
+
+    public synchronized void reset() {
+        for (OutcomeStats outcomeStats : stats.values()) {
+            outcomeStats.count = 0;
+            outcomeStats.totalMillis = 0;
+            outcomeStats.maxMillis = 0;
+        }
+    }
+
+    /**
+     * 可读的指标报告
+     */
+    public synchronized String formatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.getDefault(), "AI调用策略: %s，连续失败%d次，对冲%s",
+                state, consecutiveFailures, hedgingEnabled ? "开启(" + hedgeDelayMillis + "ms)" : "关闭"));
+        for (Map.Entry<Outcome, OutcomeStats> entry : stats.entrySet()) {
+            OutcomeStats outcomeStats = entry.getValue();
+            if (outcomeStats.count == 0) {
+                continue;
+            }
+            report.append(String.format(Locale.getDefault(), "\n  %s: %d次，平均%dms，最长%dms",
+                    entry.getKey(), outcomeStats.count, outcomeStats.totalMillis / outcomeStats.count,
+                    outcomeStats.maxMillis));
+        }
+        return report.toString();
+    }
+
+    private void open() {
+        if (state != State.OPEN) {
+            Log.w(TAG, "连续失败" + consecutiveFailures + "次，熔断" + openMillis / 1000 + "秒");
+        }
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        trialInFlight = false;
+    }
+
+    private static class OutcomeStats {
+        long count;
+        long totalMillis;
+        long maxMillis;
+    }
+}
@@ -1,20 +1,32 @@
 package com.example.aitestbank.service;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.example.aitestbank.model.Question;
+import com.example.aitestbank.utils.AppExecutors;
 import com.example.aitestbank.utils.NetworkUtils;
+import com.google.gson.Gson;
 
 import org.json.JSONObject;
 
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -26,13 +38,34 @@ public class AIService {
     
     private static final String TAG = "AIService";
     private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // 部分结果推送到界面的最小间隔，避免每个分片都触发一次重绘
+    private static final long PARTIAL_INTERVAL_MS = 80;
+    private static final Gson gson = new Gson();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    // 批量解析：每批输入估算上限、整批输出上限、每题预留的输出，以及同时进行的批数
+    private static final int BATCH_INPUT_TOKENS = 3000;
+    private static final int BATCH_MAX_TOKENS = 4000;
+    private static final int BATCH_TOKENS_PER_QUESTION = 500;
+    private static final int MAX_CONCURRENT_BATCHES = 2;
+    private static final Pattern BATCH_MARKER = Pattern.compile("^[#*\\s]*题目\\s*(\\d+)[*\\s：:]*$");
+    
+    /** 提示词版本，修改buildSystemPrompt/buildUserMessage的输出格式时加一，已缓存的解析随之失效 */
+    // 2: 正确答案和用户答案以选项字母给出
+    public static final int PROMPT_VERSION = 2;
+    public static final String MODEL = "deepseek-chat";
     
     private final DeepSeekService deepSeekService;
+    private final DeepSeekService deepSeekStreamService;
+    private final AIAnalysisCache analysisCache;
     private final Context context;
+    private final AICallPolicy policy = AICallPolicy.getInstance();
     
     public AIService(Context context) {
         this.context = context;
         this.deepSeekService = NetworkUtils.getDeepSeekService();
+        this.deepSeekStreamService = NetworkUtils.getDeepSeekStreamService();
+        this.analysisCache = AIAnalysisCache.getInstance(context);
     }
     
     /**
@@ -42,15 +75,492 @@ public class AIService {
      * @param callback 回调接口
      */
     public void getAIAnalysis(Question question, String userAnswer, AICallback callback) {
-        // 构造DeepSeek API请求数据
-        Map<String, Object> requestData = new HashMap<>();
+        // 先查解析缓存（读文件），命中则不请求DeepSeek
+        executor.execute(() -> {
+            AIAnalysisResult cached = analysisCache.get(question, userAnswer, PROMPT_VERSION, MODEL);
+            if (cached != null) {
+                AppExecutors.getInstance().mainThread().execute(() -> callback.onSuccess(cached));
+            } else {
+                requestAIAnalysis(question, userAnswer, callback);
+            }
+        });
+    }
+    
+    /**
+     * 按调用策略请求DeepSeek：熔断时直接本地解析；每个请求有截止时间；开启对冲时超过延迟再发一个请求，先成功的为准
+     */
+    private void requestAIAnalysis(Question question, String userAnswer, AICallback callback) {
+        if (!policy.allowRequest()) {
+            policy.record(AICallPolicy.Outcome.SHORT_CIRCUIT, 0);
+            Log.w(TAG, "DeepSeek熔断中，使用本地解析");
+            generateLocalAIAnalysis(question, userAnswer, callback);
+            return;
+        }
+        
+        Map<String, Object> requestData = buildRequestData(question, userAnswer);
+        long start = System.currentTimeMillis();
+        // 以下状态只在主线程上读写（Retrofit回调和mainHandler都在主线程）
+        List<Call<DeepSeekService.DeepSeekResponse>> attempts = new ArrayList<>();
+        boolean[] settled = {false};
+        int[] pending = {0};
         
+        Runnable[] startAttempt = new Runnable[1];
+        Runnable hedge = () -> {
+            if (!settled[0] && attempts.size() == 1) {
+                Log.d(TAG, "DeepSeek响应超过" + policy.getHedgeDelayMillis() + "ms，发出对冲请求");
+                startAttempt[0].run();
+            }
+        };
+        
+        startAttempt[0] = () -> {
+            boolean isHedge = !attempts.isEmpty();
+            Call<DeepSeekService.DeepSeekResponse> call = deepSeekService.chatCompletion(requestData);
+            long remaining = AICallPolicy.ONE_SHOT_DEADLINE_MILLIS - (System.currentTimeMillis() - start);
+            call.timeout().timeout(Math.max(remaining, 1), TimeUnit.MILLISECONDS);
+            attempts.add(call);
+            pending[0]++;
+            
+            call.enqueue(new Callback<DeepSeekService.DeepSeekResponse>() {
+                @Override
+                public void onResponse(Call<DeepSeekService.DeepSeekResponse> call, Response<DeepSeekService.DeepSeekResponse> response) {
+                    if (settled[0]) {
+                        return;
+                    }
+                    long elapsed = System.currentTimeMillis() - start;
+                    if (response.isSuccessful() && response.body() != null) {
+                        settle(call);
+                        DeepSeekService.DeepSeekResponse deepSeekResponse = response.body();
+                        policy.record(deepSeekResponse.getContent().isEmpty() ? AICallPolicy.Outcome.EMPTY
+                                : isHedge ? AICallPolicy.Outcome.HEDGE_WIN : AICallPolicy.Outcome.SUCCESS, elapsed);
+                        handleDeepSeekResponse(deepSeekResponse, question, userAnswer, callback);
+                    } else {
+                        Log.e(TAG, "DeepSeek API调用失败，状态码：" + response.code());
+                        policy.record(AICallPolicy.Outcome.HTTP_ERROR, elapsed);
+                        attemptFailed(call);
+                    }
+                }
+                
+                @Override
+                public void onFailure(Call<DeepSeekService.DeepSeekResponse> call, Throwable t) {
+                    if (settled[0]) {
+                        return;
+                    }
+                    boolean deadline = t instanceof InterruptedIOException;
+                    Log.e(TAG, deadline ? "DeepSeek API调用超时" : "DeepSeek API调用失败", t);
+                    policy.record(deadline ? AICallPolicy.Outcome.DEADLINE : AICallPolicy.Outcome.NETWORK_ERROR,
+                            System.currentTimeMillis() - start);
+                    attemptFailed(call);
+                }
+                
+                /**
+                 * 结束本次调用，取消其余请求
+                 */
+                private void settle(Call<DeepSeekService.DeepSeekResponse> winner) {
+                    settled[0] = true;
+                    mainHandler.removeCallbacks(hedge);
+                    for (Call<DeepSeekService.DeepSeekResponse> attempt : attempts) {
+                        if (attempt != winner) {
+                            attempt.cancel();
+                        }
+                    }
+                }
+                
+                /**
+                 * 所有已发出的请求都失败时才改用本地解析，对冲请求仍在进行时继续等待
+                 */
+                private void attemptFailed(Call<DeepSeekService.DeepSeekResponse> failed) {
+                    if (--pending[0] > 0) {
+                        return;
+                    }
+                    settle(failed);
+                    generateLocalAIAnalysis(question, userAnswer, callback);
+                }
+            });
+        };
+        
+        mainHandler.post(() -> {
+            startAttempt[0].run();
+            if (policy.isHedgingEnabled()) {
+                mainHandler.postDelayed(hedge, policy.getHedgeDelayMillis());
+            }
+        });
+    }
+    
+    /**
+     * 流式获取AI智能解析
+     * 逐行读取SSE响应，边收边解析章节，通过onPartial推送部分结果（最多每PARTIAL_INTERVAL_MS一次），
+     * 流结束后回调onSuccess。没有收到任何内容就失败时与getAIAnalysis一样改用本地解析，
+     * 中途断开时以已收到的内容作为结果。命中解析缓存时不请求网络，直接回调onSuccess。回调都在主线程
+     * DeepSeek熔断中、STREAM_FIRST_CONTENT_MILLIS内没有收到内容时同样改用本地解析，整体超过STREAM_DEADLINE_MILLIS时截断
+     * @param question 题目对象
+     * @param userAnswer 用户答案
+     * @param callback 回调接口
+     * @return 请求对象，界面切换题目时可调用cancel，取消后不再回调
+     */
+    public Call<ResponseBody> getAIAnalysisStream(Question question, String userAnswer, AIStreamCallback callback) {
+        Map<String, Object> requestData = buildRequestData(question, userAnswer);
+        requestData.put("stream", true);
+        
+        Call<ResponseBody> call = deepSeekStreamService.chatCompletionStream(requestData);
+        AppExecutors.getInstance().aiIO().execute(() -> readAnalysisStream(call, question, userAnswer, callback));
+        return call;
+    }
+    
+    /**
+     * 读取SSE流（在AI通道上执行，不占用Supabase读取的网络线程）
+     */
+    private void readAnalysisStream(Call<ResponseBody> call, Question question, String userAnswer, AIStreamCallback callback) {
+        AIAnalysisResult cached = analysisCache.get(question, userAnswer, PROMPT_VERSION, MODEL);
+        if (cached != null) {
+            AppExecutors.getInstance().mainThread().execute(() -> {
+                if (!call.isCanceled()) {
+                    callback.onSuccess(cached);
+                }
+            });
+            return;
+        }
+        
+        if (!policy.allowRequest()) {
+            policy.record(AICallPolicy.Outcome.SHORT_CIRCUIT, 0);
+            Log.w(TAG, "DeepSeek熔断中，使用本地解析");
+            generateLocalAIAnalysis(question, userAnswer, callback);
+            return;
+        }
+        
+        // 整体截止时间由OkHttp的调用超时保证；首个内容的截止时间由看门狗取消请求，
+        // expired区分超时取消和调用方取消，超时后仍用已收到的内容或本地解析
+        AtomicBoolean expired = new AtomicBoolean(false);
+        AtomicBoolean receivedContent = new AtomicBoolean(false);
+        AtomicBoolean firstContentTimedOut = new AtomicBoolean(false);
+        call.timeout().timeout(AICallPolicy.STREAM_DEADLINE_MILLIS, TimeUnit.MILLISECONDS);
+        Runnable firstContentWatchdog = () -> {
+            if (!receivedContent.get() && !call.isCanceled()) {
+                Log.w(TAG, "AI解析" + AICallPolicy.STREAM_FIRST_CONTENT_MILLIS + "ms内没有内容，取消请求");
+                firstContentTimedOut.set(true);
+                expired.set(true);
+                call.cancel();
+            }
+        };
+        mainHandler.postDelayed(firstContentWatchdog, AICallPolicy.STREAM_FIRST_CONTENT_MILLIS);
+        
+        AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+        long start = System.currentTimeMillis();
+        long firstContentTime = 0;
+        long lastPartialTime = 0;
+        boolean completed = false;
+        AICallPolicy.Outcome failure = null;
+        
+        try {
+            Response<ResponseBody> response = call.execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.e(TAG, "DeepSeek流式调用失败，状态码：" + response.code());
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                mainHandler.removeCallbacks(firstContentWatchdog);
+                policy.record(AICallPolicy.Outcome.HTTP_ERROR, System.currentTimeMillis() - start);
+                generateLocalAIAnalysis(question, userAnswer, callback);
+                return;
+            }
+            
+            try (ResponseBody body = response.body()) {
+                BufferedSource source = body.source();
+                String line;
+                while ((line = source.readUtf8Line()) != null) {
+                    // SSE：只关心data行，空行和注释行（心跳）跳过
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if ("[DONE]".equals(data)) {
+                        completed = true;
+                        break;
+                    }
+                    if (data.isEmpty()) {
+                        continue;
+                    }
+                    
+                    String delta = gson.fromJson(data, DeepSeekService.DeepSeekResponse.class).getDeltaContent();
+                    if (delta.isEmpty()) {
+                        continue;
+                    }
+                    parser.append(delta);
+                    
+                    long now = System.currentTimeMillis();
+                    if (firstContentTime == 0) {
+                        firstContentTime = now;
+                        receivedContent.set(true);
+                        mainHandler.removeCallbacks(firstContentWatchdog);
+                        Log.d(TAG, "AI解析首个内容用时：" + (now - start) + "ms");
+                    }
+                    if (now - lastPartialTime >= PARTIAL_INTERVAL_MS) {
+                        lastPartialTime = now;
+                        postPartial(call, expired, parser.snapshot(), callback);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedIOException) {
+                // OkHttp的调用超时也会把请求标记为已取消
+                expired.set(true);
+            }
+            if (isCallerCanceled(call, expired)) {
+                Log.d(TAG, "AI解析流已取消");
+                policy.record(AICallPolicy.Outcome.CANCELED, System.currentTimeMillis() - start);
+                return;
+            }
+            if (firstContentTimedOut.get()) {
+                failure = AICallPolicy.Outcome.FIRST_CONTENT_TIMEOUT;
+            } else if (expired.get()) {
+                Log.w(TAG, "AI解析流超时，已用时：" + (System.currentTimeMillis() - start) + "ms");
+                failure = AICallPolicy.Outcome.DEADLINE;
+            } else {
+                Log.e(TAG, "读取DeepSeek流失败", e);
+                failure = AICallPolicy.Outcome.NETWORK_ERROR;
+            }
+        } finally {
+            mainHandler.removeCallbacks(firstContentWatchdog);
+        }
+        
+        long elapsed = System.currentTimeMillis() - start;
+        if (isCallerCanceled(call, expired)) {
+            policy.record(AICallPolicy.Outcome.CANCELED, elapsed);
+            return;
+        }
+        if (!parser.hasContent()) {
+            policy.record(failure != null ? failure : AICallPolicy.Outcome.EMPTY, elapsed);
+            Log.w(TAG, "AI流式解析内容为空，使用本地解析");
+            generateLocalAIAnalysis(question, userAnswer, callback);
+            return;
+        }
+        // 已收到内容说明服务可用，中途断开或超时记为PARTIAL，不计入熔断
+        policy.record(completed ? AICallPolicy.Outcome.SUCCESS : AICallPolicy.Outcome.PARTIAL, elapsed);
+        
+        AIAnalysisResult result = parser.finish();
+        Log.d(TAG, "AI流式解析完成，总用时：" + elapsed + "ms");
+        // 只缓存完整的结果，中途断开的下次重新生成
+        if (completed) {
+            analysisCache.put(question, userAnswer, PROMPT_VERSION, MODEL, result);
+        }
+        AppExecutors.getInstance().mainThread().execute(() -> {
+            if (!isCallerCanceled(call, expired)) {
+                callback.onSuccess(result);
+            }
+        });
+    }
+    
+    /**
+     * 请求是否被调用方取消（超时导致的取消不算）
+     */
+    private static boolean isCallerCanceled(Call<?> call, AtomicBoolean expired) {
+        return call.isCanceled() && !expired.get();
+    }
+    
+    private void postPartial(Call<ResponseBody> call, AtomicBoolean expired, AIAnalysisResult partial, AIStreamCallback callback) {
+        AppExecutors.getInstance().mainThread().execute(() -> {
+            if (!isCallerCanceled(call, expired)) {
+                callback.onPartial(partial);
+            }
+        });
+    }
+    
+    /**
+     * 批量获取AI解析（交卷后的错题回顾）
+     * 先在网络线程上查解析缓存，未命中的题目按token预算打包，每批一次请求，
+     * 在AI通道上最多MAX_CONCURRENT_BATCHES批同时进行。
+     * 响应按题目标记拆回每道题，缺失或解析失败的题目用本地解析补上。回调都在主线程
+     * @param questions 题目列表
+     * @param userAnswers 与questions一一对应的用户答案，未作答为null
+     * @param callback 回调接口
+     */
+    public void getBatchAIAnalysis(List<Question> questions, List<String> userAnswers, BatchAnalysisCallback callback) {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.NORMAL).execute(() -> {
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < questions.size(); i++) {
+                AIAnalysisResult cached = analysisCache.get(questions.get(i), userAnswers.get(i), PROMPT_VERSION, MODEL);
+                if (cached != null) {
+                    postBatchResult(callback, i, cached);
+                } else {
+                    pending.add(i);
+                }
+            }
+            
+            List<List<Integer>> batches = packBatches(questions, userAnswers, pending);
+            Log.d(TAG, "批量AI解析：" + questions.size() + "题，缓存命中" + (questions.size() - pending.size())
+                    + "题，分" + batches.size() + "批请求");
+            if (batches.isEmpty()) {
+                AppExecutors.getInstance().mainThread().execute(() -> callback.onComplete(0));
+                return;
+            }
+            
+            // 固定数量的工作任务在AI通道上依次领取批次，阻塞的DeepSeek请求不占用Supabase读取的网络线程
+            AtomicInteger nextBatch = new AtomicInteger();
+            AtomicInteger remainingWorkers = new AtomicInteger(Math.min(MAX_CONCURRENT_BATCHES, batches.size()));
+            int workers = remainingWorkers.get();
+            for (int w = 0; w < workers; w++) {
+                AppExecutors.getInstance().aiIO().execute(() -> {
+                    int index;
+                    while ((index = nextBatch.getAndIncrement()) < batches.size()) {
+                        runBatch(questions, userAnswers, batches.get(index), callback);
+                    }
+                    if (remainingWorkers.decrementAndGet() == 0) {
+                        AppExecutors.getInstance().mainThread().execute(() -> callback.onComplete(batches.size()));
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * 按顺序贪心装箱：输入估算不超过BATCH_INPUT_TOKENS，且每题预留的输出不超过BATCH_MAX_TOKENS
+     */
+    static List<List<Integer>> packBatches(List<Question> questions, List<String> userAnswers, List<Integer> pending) {
+        int maxPerBatch = Math.max(1, BATCH_MAX_TOKENS / BATCH_TOKENS_PER_QUESTION);
+        List<List<Integer>> batches = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        int currentTokens = 0;
+        
+        for (int index : pending) {
+            StringBuilder info = new StringBuilder();
+            appendQuestionInfo(info, questions.get(index), userAnswers.get(index));
+            int tokens = estimateTokens(info);
+            if (!current.isEmpty() && (current.size() >= maxPerBatch || currentTokens + tokens > BATCH_INPUT_TOKENS)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(index);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+    
+    /**
+     * 执行一批请求（在网络线程上同步执行）
+     */
+    private void runBatch(List<Question> questions, List<String> userAnswers, List<Integer> batch, BatchAnalysisCallback callback) {
+        StringBuilder message = new StringBuilder();
+        for (int n = 0; n < batch.size(); n++) {
+            message.append("### 题目").append(n + 1).append("\n");
+            appendQuestionInfo(message, questions.get(batch.get(n)), userAnswers.get(batch.get(n)));
+        }
+        message.append("请依次为以上").append(batch.size()).append("道题目提供详细的AI解析。");
+        
+        Map<String, AIAnalysisResult> parsed = new HashMap<>();
+        if (!policy.allowRequest()) {
+            // 熔断中，整批直接用本地解析
+            policy.record(AICallPolicy.Outcome.SHORT_CIRCUIT, 0);
+            Log.w(TAG, "DeepSeek熔断中，批量解析使用本地解析");
+        } else {
+            long start = System.currentTimeMillis();
+            try {
+                Call<DeepSeekService.DeepSeekResponse> call = deepSeekService.chatCompletion(
+                        buildRequestData(buildBatchSystemPrompt(), message.toString(),
+                                Math.min(BATCH_MAX_TOKENS, batch.size() * BATCH_TOKENS_PER_QUESTION)));
+                call.timeout().timeout(AICallPolicy.BATCH_DEADLINE_MILLIS, TimeUnit.MILLISECONDS);
+                Response<DeepSeekService.DeepSeekResponse> response = call.execute();
+                if (response.isSuccessful() && response.body() != null) {
+                    String content = response.body().getContent();
+                    policy.record(content.isEmpty() ? AICallPolicy.Outcome.EMPTY : AICallPolicy.Outcome.SUCCESS,
+                            System.currentTimeMillis() - start);
+                    parsed = splitBatchResponse(content);
+                } else {
+                    Log.e(TAG, "批量AI解析失败，状态码：" + response.code());
+                    policy.record(AICallPolicy.Outcome.HTTP_ERROR, System.currentTimeMillis() - start);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "批量AI解析请求失败", e);
+                policy.record(e instanceof InterruptedIOException ? AICallPolicy.Outcome.DEADLINE
+                        : AICallPolicy.Outcome.NETWORK_ERROR, System.currentTimeMillis() - start);
+            }
+        }
+        
+        for (int n = 0; n < batch.size(); n++) {
+            int index = batch.get(n);
+            Question question = questions.get(index);
+            AIAnalysisResult result = parsed.get(String.valueOf(n + 1));
+            if (result != null && !result.getAnalysisText().isEmpty()) {
+                analysisCache.put(question, userAnswers.get(index), PROMPT_VERSION, MODEL, result);
+            } else {
+                result = buildLocalAnalysis(question, userAnswers.get(index));
+            }
+            postBatchResult(callback, index, result);
+        }
+    }
+    
+    /**
+     * 按"### 题目N"标记把批量响应拆成每道题的解析，键为题号N
+     */
+    static Map<String, AIAnalysisResult> splitBatchResponse(String content) {
+        Map<String, AIAnalysisResult> results = new HashMap<>();
+        if (content == null) {
+            return results;
+        }
+        
+        String number = null;
+        AIAnalysisStreamParser parser = null;
+        for (String line : content.split("\n")) {
+            Matcher marker = BATCH_MARKER.matcher(line);
+            if (marker.matches()) {
+                if (parser != null) {
+                    results.put(number, parser.finish());
+                }
+                number = marker.group(1);
+                parser = new AIAnalysisStreamParser();
+            } else if (parser != null) {
+                parser.append(line);
+                parser.append("\n");
+            }
+        }
+        if (parser != null) {
+            results.put(number, parser.finish());
+        }
+        return results;
+    }
+    
+    /**
+     * 批量解析的系统提示，章节格式与单题相同
+     */
+    private String buildBatchSystemPrompt() {
+        return buildSystemPrompt(null, null) + "\n" +
+                "用户会一次给出多道题目，每道题以\"### 题目N\"开头。请按顺序逐题解析，" +
+                "每道题的解析都以单独一行\"### 题目N\"开头（N与题目编号一致），不要合并或省略题目。";
+    }
+    
+    /**
+     * 粗略估算token数：中文字符约0.6个token，其他字符约0.3个
+     */
+    static int estimateTokens(CharSequence text) {
+        double tokens = 0;
+        for (int i = 0; i < text.length(); i++) {
+            tokens += Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN ? 0.6 : 0.3;
+        }
+        return (int) Math.ceil(tokens);
+    }
+    
+    private void postBatchResult(BatchAnalysisCallback callback, int index, AIAnalysisResult result) {
+        AppExecutors.getInstance().mainThread().execute(() -> callback.onResult(index, result));
+    }
+    
+    /**
+     * 构造DeepSeek API请求数据
+     */
+    private Map<String, Object> buildRequestData(Question question, String userAnswer) {
         // 构建系统提示
         String systemPrompt = buildSystemPrompt(question, userAnswer);
         
         // 构建用户消息
         String userMessage = buildUserMessage(question, userAnswer);
         
+        return buildRequestData(systemPrompt, userMessage, 2000);
+    }
+    
+    private Map<String, Object> buildRequestData(String systemPrompt, String userMessage, int maxTokens) {
+        Map<String, Object> requestData = new HashMap<>();
+        
         // 设置消息列表
         List<Map<String, String>> messages = new ArrayList<>();
         
@@ -64,33 +574,12 @@ public class AIService {
         userMsg.put("content", userMessage);
         messages.add(userMsg);
         
-        requestData.put("model", "deepseek-chat");
+        requestData.put("model", MODEL);
         requestData.put("messages", messages);
         requestData.put("temperature", 0.7);
-        requestData.put("max_tokens", 2000);
-        
-        Call<DeepSeekService.DeepSeekResponse> call = deepSeekService.chatCompletion(requestData);
+        requestData.put("max_tokens", maxTokens);
         
-        call.enqueue(new Callback<DeepSeekService.DeepSeekResponse>() {
-            @Override
-            public void onResponse(Call<DeepSeekService.DeepSeekResponse> call, Response<DeepSeekService.DeepSeekResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    DeepSeekService.DeepSeekResponse deepSeekResponse = response.body();
-                    handleDeepSeekResponse(deepSeekResponse, question, userAnswer, callback);
-                } else {
-                    Log.e(TAG, "DeepSeek API调用失败，状态码：" + response.code());
-                    // 如果API调用失败，使用本地AI解析
-                    generateLocalAIAnalysis(question, userAnswer, callback);
-                }
-            }
-            
-            @Override
-            public void onFailure(Call<DeepSeekService.DeepSeekResponse> call, Throwable t) {
-                Log.e(TAG, "DeepSeek API调用失败", t);
-                // 使用本地AI解析作为fallback
-                generateLocalAIAnalysis(question, userAnswer, callback);
-            }
-        });
+        return requestData;
     }
     
     /**
@@ -111,7 +600,16 @@ public class AIService {
      */
     private String buildUserMessage(Question question, String userAnswer) {
         StringBuilder message = new StringBuilder();
+        appendQuestionInfo(message, question, userAnswer);
+        message.append("请为这道题目提供详细的AI解析。");
         
+        return message.toString();
+    }
+    
+    /**
+     * 追加题目信息、选项和答案
+     */
+    private static void appendQuestionInfo(StringBuilder message, Question question, String userAnswer) {
         message.append("题目信息：\n");
         message.append("题目ID：").append(question.getId()).append("\n");
         message.append("题目类型：").append(getQuestionTypeText(question.getType())).append("\n");
@@ -129,12 +627,43 @@ public class AIService {
             message.append("\n");
         }
         
-        message.append("正确答案：").append(question.getCorrectAnswer()).append("\n");
-        message.append("用户答案：").append(userAnswer != null ? userAnswer : "未作答").append("\n\n");
-        
-        message.append("请为这道题目提供详细的AI解析。");
-        
-        return message.toString();
+        String correctAnswer = question.getCorrectAnswer() != null
+                ? answerText(question, String.valueOf(question.getCorrectAnswer())) : null;
+        String answer = answerText(question, userAnswer);
+        message.append("正确答案：").append(correctAnswer != null ? correctAnswer : "未知").append("\n");
+        message.append("用户答案：").append(answer != null ? answer : "未作答").append("\n\n");
+    }
+    
+    /**
+     * 答案在提示词和缓存键中的形式：有选项的题目把选项下标（多选用逗号分隔）转为字母，
+     * 其他题型原样返回，未作答（null、空或-1）返回null
+     */
+    static String answerText(Question question, String answer) {
+        if (answer == null || answer.trim().isEmpty() || "-1".equals(answer.trim())) {
+            return null;
+        }
+        String trimmed = answer.trim();
+        List<String> options = question.getOptions();
+        if (options == null || options.isEmpty()) {
+            return trimmed;
+        }
+        StringBuilder letters = new StringBuilder();
+        for (String part : trimmed.split("[\\s,，;；、]+")) {
+            int index;
+            try {
+                index = Integer.parseInt(part);
+            } catch (NumberFormatException e) {
+                return trimmed;
+            }
+            if (index < 0 || index >= options.size()) {
+                return trimmed;
+            }
+            if (letters.length() > 0) {
+                letters.append(',');
+            }
+            letters.append((char) ('A' + index));
+        }
+        return letters.toString();
     }
     
     /**
@@ -142,17 +671,11 @@ public class AIService {
      */
     private void handleDeepSeekResponse(DeepSeekService.DeepSeekResponse response, Question question, String userAnswer, AICallback callback) {
         try {
-            AIAnalysisResult result = new AIAnalysisResult();
-            
             // 获取AI生成的内容
             String aiContent = response.getContent();
             
-            // 解析AI返回的内容
-            result.setAnalysisText(parseAIContent(aiContent, "题目解析"));
-            result.setSolutionSteps(parseAIContentList(aiContent, "解题步骤"));
-            result.setKeyPoints(parseAIContentList(aiContent, "核心考点"));
-            result.setCommonMistakes(parseAIContentList(aiContent, "易错点提醒"));
-            result.setRecommendations(parseAIContentList(aiContent, "学习建议"));
+            // 一遍解析出全部章节
+            AIAnalysisResult result = AIAnalysisStreamParser.parse(aiContent);
             
             // 如果AI解析内容为空，使用本地解析作为fallback
             if (result.getAnalysisText() == null || result.getAnalysisText().isEmpty()) {
@@ -162,6 +685,7 @@ public class AIService {
             }
             
             callback.onSuccess(result);
+            executor.execute(() -> analysisCache.put(question, userAnswer, PROMPT_VERSION, MODEL, result));
             
         } catch (Exception e) {
             Log.e(TAG, "处理DeepSeek响应失败", e);
@@ -169,107 +693,13 @@ public class AIService {
         }
     }
     
-    /**
-     * 从AI内容中解析特定部分
-     */
-    private String parseAIContent(String content, String sectionName) {
-        if (content == null || content.isEmpty()) {
-            return "";
-        }
-        
-        try {
-            String[] lines = content.split("\\n");
-            StringBuilder sectionContent = new StringBuilder();
-            boolean inSection = false;
-            
-            for (String line : lines) {
-                if (line.trim().startsWith(sectionName + "：") || line.trim().startsWith(sectionName)) {
-                    inSection = true;
-                    // 跳过标题行
-                    continue;
-                }
-                
-                if (inSection) {
-                    // 如果遇到新的章节标题，结束当前章节
-                    if (line.trim().matches("^\\d+\\.\\s+.*") || 
-                        line.trim().matches(".*：.*") && 
-                        !sectionName.equals("题目解析")) {
-                        break;
-                    }
-                    
-                    sectionContent.append(line.trim()).append("\n");
-                }
-            }
-            
-            String result = sectionContent.toString().trim();
-            return result.isEmpty() ? "暂无" + sectionName : result;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "解析AI内容失败：" + sectionName, e);
-            return "解析失败，请查看详细解析";
-        }
-    }
-    
-    /**
-     * 从AI内容中解析列表部分
-     */
-    private List<String> parseAIContentList(String content, String sectionName) {
-        List<String> items = new ArrayList<>();
-        String sectionContent = parseAIContent(content, sectionName);
-        
-        if (sectionContent.equals("暂无" + sectionName) || sectionContent.isEmpty()) {
-            items.add("暂无" + sectionName);
-            return items;
-        }
-        
-        try {
-            // 按行分割，过滤空行
-            String[] lines = sectionContent.split("\\n");
-            for (String line : lines) {
-                if (line.trim().isEmpty()) continue;
-                
-                // 移除数字序号（如"1. "、"2. "等）
-                String cleanedLine = line.trim().replaceAll("^\\d+\\.\\s*", "");
-                if (!cleanedLine.isEmpty()) {
-                    items.add(cleanedLine);
-                }
-            }
-            
-            if (items.isEmpty()) {
-                items.add("暂无" + sectionName);
-            }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "解析AI列表内容失败：" + sectionName, e);
-            items.add("解析失败");
-        }
-        
-        return items;
-    }
-    
     /**
      * 生成本地AI解析（fallback方案）
      */
     private void generateLocalAIAnalysis(Question question, String userAnswer, AICallback callback) {
         executor.execute(() -> {
             try {
-                AIAnalysisResult result = new AIAnalysisResult();
-                
-                // 根据题目类型生成不同的解析
-                String analysis = generateLocalAnalysisByType(question, userAnswer);
-                result.setAnalysisText(analysis);
-                
-                // 生成解题步骤
-                result.setSolutionSteps(generateSolutionSteps(question));
-                
-                // 生成核心考点
-                result.setKeyPoints(generateKeyPoints(question));
-                
-                // 生成易错点
-                result.setCommonMistakes(generateCommonMistakes(question));
-                
-                // 生成学习建议
-                result.setRecommendations(generateRecommendations(question));
+                AIAnalysisResult result = buildLocalAnalysis(question, userAnswer);
                 
                 // 在主线程回调
                 new android.os.Handler(context.getMainLooper()).post(() -> {
@@ -285,6 +715,31 @@ public class AIService {
         });
     }
     
+    /**
+     * 生成本地解析结果
+     */
+    private AIAnalysisResult buildLocalAnalysis(Question question, String userAnswer) {
+        AIAnalysisResult result = new AIAnalysisResult();
+        
+        // 根据题目类型生成不同的解析
+        String analysis = generateLocalAnalysisByType(question, userAnswer);
+        result.setAnalysisText(analysis);
+        
+        // 生成解题步骤
+        result.setSolutionSteps(generateSolutionSteps(question));
+        
+        // 生成核心考点
+        result.setKeyPoints(generateKeyPoints(question));
+        
+        // 生成易错点
+        result.setCommonMistakes(generateCommonMistakes(question));
+        
+        // 生成学习建议
+        result.setRecommendations(generateRecommendations(question));
+        
+        return result;
+    }
+    
     /**
      * 根据题目类型生成本地解析
      */
@@ -549,7 +1004,7 @@ public class AIService {
     /**
      * 获取题目类型文本
      */
-    private String getQuestionTypeText(String type) {
+    private static String getQuestionTypeText(String type) {
         switch (type) {
             case "single_choice": return "单选题";
             case "multiple_choice": return "多选题";
@@ -562,7 +1017,7 @@ public class AIService {
     /**
      * 获取难度文本
      */
-    private String getDifficultyText(int difficulty) {
+    private static String getDifficultyText(int difficulty) {
         switch (difficulty) {
             case 1: return "简单";
             case 2: return "较易";
@@ -606,5 +1061,32 @@ public class AIService {
         void onSuccess(AIAnalysisResult result);
         void onFailure(String errorMessage);
     }
+    
+    /**
+     * 批量AI解析回调接口
+     */
+    public interface BatchAnalysisCallback {
+        /**
+         * 一道题的解析完成（来自缓存、DeepSeek或本地解析）
+         * @param index 题目在请求列表中的位置
+         */
+        void onResult(int index, AIAnalysisResult result);
+        
+        /**
+         * 全部题目都已回调
+         * @param requestCount 实际发出的请求数
+         */
+        void onComplete(int requestCount);
+    }
+    
+    /**
+     * 流式AI解析回调接口
+     */
+    public interface AIStreamCallback extends AICallback {
+        /**
+         * 收到部分内容，result中的章节可能还不完整
+         */
+        void onPartial(AIAnalysisResult result);
+    }
 }
 
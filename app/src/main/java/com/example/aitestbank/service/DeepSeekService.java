@@ -1,8 +1,10 @@
 package com.example.aitestbank.service;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 import java.util.Map;
 
@@ -19,6 +21,18 @@ public interface DeepSeekService {
     @POST("chat/completions")
     Call<DeepSeekResponse> chatCompletion(@Body Map<String, Object> requestBody);
     
+    /**
+     * 发送流式聊天完成请求（请求体需带 stream=true）
+     * 响应为text/event-stream，每个"data: "行是一个DeepSeekResponse分片，内容在choices[0].delta中，
+     * 以"data: [DONE]"结束。响应体不缓冲，调用方逐行读取后负责关闭。
+     * 必须通过NetworkUtils.getDeepSeekStreamService调用，普通实例的BODY级日志会缓冲整个响应
+     * @param requestBody 请求体
+     * @return 未缓冲的响应体
+     */
+    @Streaming
+    @POST("chat/completions")
+    Call<ResponseBody> chatCompletionStream(@Body Map<String, Object> requestBody);
+    
     /**
      * DeepSeek API响应模型
      */
@@ -58,11 +72,23 @@ public interface DeepSeekService {
             }
             return "";
         }
+        
+        /**
+         * 获取流式分片中第一个选择新增的文本
+         */
+        public String getDeltaContent() {
+            if (choices != null && choices.length > 0) {
+                Message delta = choices[0].getDelta();
+                return delta != null && delta.getContent() != null ? delta.getContent() : "";
+            }
+            return "";
+        }
     }
     
     class Choice {
         private int index;
         private Message message;
+        private Message delta;
         private String finish_reason;
         
         public int getIndex() { return index; }
@@ -71,6 +97,9 @@ public interface DeepSeekService {
         public Message getMessage() { return message; }
         public void setMessage(Message message) { this.message = message; }
         
+        public Message getDelta() { return delta; }
+        public void setDelta(Message delta) { this.delta = delta; }
+        
         public String getFinish_reason() { return finish_reason; }
         public void setFinish_reason(String finish_reason) { this.finish_reason = finish_reason; }
     }
@@ -2,10 +2,18 @@ package com.example.aitestbank.supabase;
 
 import android.content.Context;
 import android.util.Log;
+import android.util.LruCache;
 
 import com.example.aitestbank.supabase.auth.DeviceIdManager;
+import com.example.aitestbank.supabase.batch.BatchOperationManager;
+import com.example.aitestbank.supabase.batch.BatchResult;
+import com.example.aitestbank.supabase.cache.CacheMetrics;
+import com.example.aitestbank.supabase.converter.JsonRowReader;
+import com.example.aitestbank.supabase.http.SupabaseHttpClient;
+import com.example.aitestbank.supabase.http.SupabaseHttpException;
 import com.example.aitestbank.ui.adapter.WrongQuestionAdapter;
 import com.example.aitestbank.utils.OperationCallback;
+import com.example.aitestbank.utils.AppExecutors;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
@@ -13,8 +21,16 @@ import okhttp3.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 简化版Supabase客户端 - 使用HTTP直接访问
@@ -24,20 +40,45 @@ public class SimpleSupabaseClient {
     private static final String TAG = "SimpleSupabaseClient";
     private static volatile SimpleSupabaseClient instance;
     
-    private OkHttpClient httpClient;
     private Gson gson;
     private String supabaseUrl;
     private String supabaseKey;
     private Context context;
     
+    // 未单独配置的表默认备忘1秒，只用于吸收同一时刻多个页面的重复查询
+    private static final long DEFAULT_QUERY_MEMO_TTL_MS = 1000;
+    // 空结果的备忘时间上限，避免刚在其他设备上写入的数据长时间查不到
+    private static final long NEGATIVE_MEMO_TTL_MS = 10 * 1000;
+    // 备忘占用的内存上限（按字符数估算）
+    private static final int QUERY_MEMO_MAX_BYTES = 1024 * 1024;
+    
+    // 进行中的查询，键带上发起时的备忘代数：写入后发出的查询不会加入写入前就已开始的请求
+    private final ConcurrentHashMap<String, FutureTask<String>> inFlightQueries = new ConcurrentHashMap<>();
+    private final LruCache<String, QueryMemo> queryMemo = new LruCache<String, QueryMemo>(QUERY_MEMO_MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, QueryMemo memo) {
+            return (key.length() + memo.body.length()) * 2;
+        }
+    };
+    // 按表配置的备忘有效期；任何路径经共享HTTP客户端写入某张表都会清除该表的备忘，所以读多写少的表可以放长
+    private final ConcurrentHashMap<String, Long> tableMemoTtls = new ConcurrentHashMap<>(defaultTableMemoTtls());
+    // 每次失效加一；请求发出后发生过失效的结果不写入备忘，避免写回写入前的旧数据
+    private final AtomicLong memoGeneration = new AtomicLong();
+    private volatile boolean queryMemoEnabled = true;
+    private volatile long queryMemoTtlMillis = DEFAULT_QUERY_MEMO_TTL_MS;
+    private final CopyOnWriteArrayList<TableChangeListener> tableChangeListeners = new CopyOnWriteArrayList<>();
+    
     private SimpleSupabaseClient() {
         gson = new Gson();
-        
-        httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        // 写入钩子在共享HTTP层，SupabaseClientManager、AuthManager等其他写入路径同样会让备忘失效
+        SupabaseHttpClient.getInstance().addTableWriteListener(this::invalidateQueryMemo);
+    }
+    
+    /**
+     * 复用全局共享的连接池和磁盘缓存，避免与其他Supabase调用路径各自握手
+     */
+    private OkHttpClient httpClient() {
+        return SupabaseHttpClient.getInstance().getOkHttpClient();
     }
     
     public static SimpleSupabaseClient getInstance() {
@@ -60,6 +101,8 @@ public class SimpleSupabaseClient {
     
     /**
      * 执行REST查询
+     * 相同URL的并发查询只发出一次网络请求，结果分发给所有等待方（期间有写入时，之后的查询另发请求）；
+     * 结果按(表, 列, 过滤条件)备忘，有效期按表配置，空结果也会短暂备忘
      */
     public String query(String tableName, String select, String filter) throws IOException {
         String url = String.format("%s/rest/v1/%s?select=%s", supabaseUrl, tableName, select);
@@ -68,6 +111,211 @@ public class SimpleSupabaseClient {
             url += "&" + filter;
         }
         
+        String memoKey = memoKeyOf(tableName, select, filter);
+        String metricsKey = "query." + tableName;
+        QueryMemo memo = queryMemo.get(memoKey);
+        if (memo != null) {
+            if (memo.expireTime > System.currentTimeMillis()) {
+                Log.d(TAG, "Query memo hit: " + url);
+                CacheMetrics.getInstance().recordMemoryHit(metricsKey);
+                return memo.body;
+            }
+            queryMemo.remove(memoKey);
+        }
+        CacheMetrics.getInstance().recordMiss(metricsKey);
+        
+        long generation = memoGeneration.get();
+        String inFlightKey = generation + ":" + url;
+        FutureTask<String> call = new FutureTask<>(new QueryCall(url));
+        FutureTask<String> inFlight = inFlightQueries.putIfAbsent(inFlightKey, call);
+        if (inFlight == null) {
+            // 当前线程是发起方，执行请求后移除占位
+            long start = System.currentTimeMillis();
+            try {
+                call.run();
+            } finally {
+                inFlightQueries.remove(inFlightKey, call);
+            }
+            String body = awaitQuery(call, metricsKey, System.currentTimeMillis() - start);
+            rememberQuery(tableName, memoKey, body, generation);
+            return body;
+        }
+        
+        Log.d(TAG, "Query coalesced: " + url);
+        return awaitQuery(inFlight);
+    }
+    
+    /**
+     * 执行REST查询并解析
+     * 题库类表的响应会落盘，验证数据未变化时直接解析存盘的响应，不重新下载
+     */
+    public <T> T queryParsed(String tableName, String select, String filter, SupabaseHttpClient.ResponseParser<T> parser) throws IOException {
+        return queryParsed(tableName, select, filter, parser, null);
+    }
+    
+    /**
+     * 执行REST查询并解析，数据未变化时复用同一parser的解析结果，返回copier复制的副本
+     */
+    public <T> T queryParsed(String tableName, String select, String filter, SupabaseHttpClient.ResponseParser<T> parser,
+                             SupabaseHttpClient.ResultCopier<T> copier) throws IOException {
+        return SupabaseHttpClient.getInstance().executeParsed(buildQueryRequest(tableName, select, filter), parser, copier);
+    }
+    
+    /**
+     * 流式查询：边下载边逐行解码，每解码一行回调一次
+     * 回调返回false时立即停止，剩余响应不再下载和解析；返回已回调的行数。
+     * 结果不经过查询备忘和合并，每次调用都会发出请求
+     */
+    public <T> int queryRows(String tableName, String select, String filter,
+                             JsonRowReader.RowDecoder<T> decoder, JsonRowReader.RowCallback<T> callback) throws IOException {
+        Request request = buildQueryRequest(tableName, select, filter);
+        try (Response response = httpClient().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                Log.e(TAG, "Query failed: " + response.code() + " " + response.message());
+                throw new SupabaseHttpException(response.code(), response.body() != null ? response.body().string() : "");
+            }
+            return JsonRowReader.readRows(response.body(), decoder, callback);
+        }
+    }
+    
+    /**
+     * 流式查询并解码为列表
+     */
+    public <T> List<T> queryList(String tableName, String select, String filter,
+                                 JsonRowReader.RowDecoder<T> decoder) throws IOException {
+        List<T> rows = new ArrayList<>();
+        queryRows(tableName, select, filter, decoder, row -> {
+            if (row != null) {
+                rows.add(row);
+            }
+            return true;
+        });
+        return rows;
+    }
+    
+    private Request buildQueryRequest(String tableName, String select, String filter) {
+        String url = String.format("%s/rest/v1/%s?select=%s", supabaseUrl, tableName, select);
+        
+        if (filter != null && !filter.isEmpty()) {
+            url += "&" + filter;
+        }
+        
+        return SupabaseHttpClient.getInstance().newRequestBuilder(url, supabaseKey)
+                .header("Accept", "application/json")
+                .get()
+                .build();
+    }
+    
+    /**
+     * 设置未单独配置的表的备忘有效期，0表示这些表不备忘
+     */
+    public void setQueryMemoTtl(long ttlMillis) {
+        this.queryMemoTtlMillis = Math.max(0, ttlMillis);
+    }
+    
+    /**
+     * 设置某张表的备忘有效期，0表示该表不备忘
+     */
+    public void setTableMemoTtl(String tableName, long ttlMillis) {
+        tableMemoTtls.put(tableName, Math.max(0, ttlMillis));
+        if (ttlMillis <= 0) {
+            removeTableMemo(tableName);
+        }
+    }
+    
+    /**
+     * 开关查询备忘，关闭时清空已有备忘（请求合并不受影响）
+     */
+    public void setQueryMemoEnabled(boolean enabled) {
+        queryMemoEnabled = enabled;
+        if (!enabled) {
+            memoGeneration.incrementAndGet();
+            queryMemo.evictAll();
+        }
+    }
+    
+    /**
+     * 清除某张表的查询备忘（共享HTTP层在写请求成功后自动调用），并通知依赖该表的缓存失效
+     */
+    public void invalidateQueryMemo(String tableName) {
+        memoGeneration.incrementAndGet();
+        removeTableMemo(tableName);
+        for (TableChangeListener listener : tableChangeListeners) {
+            listener.onTableChanged(tableName);
+        }
+    }
+    
+    private void removeTableMemo(String tableName) {
+        String prefix = tableName + "?";
+        for (String key : queryMemo.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                queryMemo.remove(key);
+            }
+        }
+    }
+    
+    /**
+     * 各表默认的备忘有效期：题库和分类基本不变，用户相关的表较短
+     */
+    private static Map<String, Long> defaultTableMemoTtls() {
+        Map<String, Long> ttls = new HashMap<>();
+        ttls.put("questions", 5 * 60 * 1000L);
+        ttls.put("question_categories", 10 * 60 * 1000L);
+        ttls.put("subjects", 10 * 60 * 1000L);
+        ttls.put("user_profiles", 60 * 1000L);
+        ttls.put("wrong_questions", 30 * 1000L);
+        ttls.put("answer_records", 10 * 1000L);
+        return ttls;
+    }
+    
+    /**
+     * 备忘键：表名、去掉空白的列和按参数排序的过滤条件，参数顺序不同的同一查询共用一条备忘
+     */
+    private static String memoKeyOf(String tableName, String select, String filter) {
+        StringBuilder key = new StringBuilder(tableName).append("?select=")
+                .append(select == null ? "*" : select.replaceAll("\\s+", ""));
+        if (filter != null && !filter.isEmpty()) {
+            String[] params = filter.split("&");
+            Arrays.sort(params);
+            for (String param : params) {
+                if (!param.isEmpty()) {
+                    key.append('&').append(param);
+                }
+            }
+        }
+        return key.toString();
+    }
+    
+    private void rememberQuery(String tableName, String memoKey, String body, long generation) {
+        if (!queryMemoEnabled || memoGeneration.get() != generation) {
+            return;
+        }
+        Long tableTtl = tableMemoTtls.get(tableName);
+        long ttl = tableTtl != null ? tableTtl : queryMemoTtlMillis;
+        if (isEmptyResult(body)) {
+            // 负缓存：空结果只短暂备忘
+            ttl = Math.min(ttl, NEGATIVE_MEMO_TTL_MS);
+        }
+        if (ttl > 0) {
+            queryMemo.put(memoKey, new QueryMemo(body, System.currentTimeMillis() + ttl));
+        }
+    }
+    
+    private static boolean isEmptyResult(String body) {
+        return body == null || body.trim().equals("[]");
+    }
+    
+    /**
+     * 注册表数据变化监听（统计快照、分类统计等派生缓存用来失效）
+     */
+    public void addTableChangeListener(TableChangeListener listener) {
+        tableChangeListeners.addIfAbsent(listener);
+    }
+    
+    /**
+     * 实际执行查询的网络请求
+     */
+    private String executeQuery(String url) throws IOException {
         Request request = new Request.Builder()
                 .url(url)
                 .addHeader("apikey", supabaseKey)
@@ -76,7 +324,7 @@ public class SimpleSupabaseClient {
                 .get()
                 .build();
         
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = httpClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 Log.e(TAG, "Query failed: " + response.code() + " " + response.message());
                 throw new IOException("Query failed: " + response.code());
@@ -88,6 +336,68 @@ public class SimpleSupabaseClient {
         }
     }
     
+    /**
+     * 发起方等待自己执行的查询，并记录加载耗时
+     */
+    private String awaitQuery(FutureTask<String> call, String metricsKey, long elapsedMillis) throws IOException {
+        boolean success = false;
+        try {
+            String body = awaitQuery(call);
+            success = true;
+            return body;
+        } finally {
+            CacheMetrics.getInstance().recordLoad(metricsKey, elapsedMillis, success);
+        }
+    }
+    
+    /**
+     * 等待查询完成并还原异常类型
+     */
+    private String awaitQuery(FutureTask<String> call) throws IOException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Query interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Query failed", cause);
+        }
+    }
+    
+    /**
+     * 表数据变化监听
+     */
+    public interface TableChangeListener {
+        void onTableChanged(String tableName);
+    }
+    
+    private class QueryCall implements Callable<String> {
+        private final String url;
+        
+        QueryCall(String url) {
+            this.url = url;
+        }
+        
+        @Override
+        public String call() throws IOException {
+            return executeQuery(url);
+        }
+    }
+    
+    private static class QueryMemo {
+        final String body;
+        final long expireTime;
+        
+        QueryMemo(String body, long expireTime) {
+            this.body = body;
+            this.expireTime = expireTime;
+        }
+    }
+    
     /**
      * 插入数据
      */
@@ -121,7 +431,7 @@ public class SimpleSupabaseClient {
         
         Request request = requestBuilder.post(body).build();
         
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = httpClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body().string();
                 Log.e(TAG, "Insert failed: " + response.code() + " " + response.message() + " - " + errorBody);
@@ -173,7 +483,7 @@ public class SimpleSupabaseClient {
                 .patch(body)
                 .build();
         
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = httpClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body().string();
                 Log.e(TAG, "Update failed: " + response.code() + " " + response.message() + " - " + errorBody);
@@ -200,7 +510,7 @@ public class SimpleSupabaseClient {
                 .delete()
                 .build();
         
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = httpClient().newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 Log.e(TAG, "Delete failed: " + response.code() + " " + response.message());
                 throw new IOException("Delete failed: " + response.code());
@@ -231,7 +541,7 @@ public class SimpleSupabaseClient {
      * 保存答题记录到answer_records表
      */
     public void saveAnswerRecord(String questionId, Integer userAnswer, boolean isCorrect, int answerTime, String sessionId, OperationCallback<String> callback) {
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 // 获取当前用户ID
                 com.example.aitestbank.supabase.auth.AuthManager authManager =
@@ -262,14 +572,14 @@ public class SimpleSupabaseClient {
                     callback.onError(e);
                 }
             }
-        }).start();
+        });
     }
 
     /**
      * 更新用户统计数据
      */
     public void updateUserStatistics(int totalQuestions, int correctCount, double accuracyRate, OperationCallback<String> callback) {
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 // 获取当前用户ID
                 com.example.aitestbank.supabase.auth.AuthManager authManager = 
@@ -327,44 +637,49 @@ public class SimpleSupabaseClient {
                     callback.onError(e);
                 }
             }
-        }).start();
+        });
     }
     
     /**
      * 批量更新错题数据
+     * 通过 bulk_update_wrong_questions 一次RPC更新内容各不相同的行，函数未部署时按内容分组PATCH
      */
     public void batchUpdateWrongQuestions(List<JsonObject> wrongQuestionUpdates, OperationCallback<String> callback) {
-        new Thread(() -> {
-            try {
-                // 批量更新错题记录
-                for (JsonObject updateData : wrongQuestionUpdates) {
-                    String wrongQuestionId = updateData.get("id").getAsString();
-                    String result = update("wrong_questions", updateData, "id=eq." + wrongQuestionId);
-                    Log.d(TAG, "更新错题记录结果: " + result);
-                }
-                
-                String finalResult = "批量更新成功，共更新 " + wrongQuestionUpdates.size() + " 条记录";
-                
-                if (callback != null) {
-                    callback.onSuccess(finalResult);
-                }
-                
-            } catch (Exception e) {
-                Log.e(TAG, "批量更新错题数据失败", e);
-                if (callback != null) {
-                    callback.onError(e);
-                }
+        AppExecutors.getInstance().writer().execute(() -> doBatchUpdateWrongQuestions(wrongQuestionUpdates, callback));
+    }
+    
+    private void doBatchUpdateWrongQuestions(List<JsonObject> wrongQuestionUpdates, OperationCallback<String> callback) {
+        try {
+            BatchResult result = BatchOperationManager.getInstance().bulkUpdateSync("wrong_questions", wrongQuestionUpdates);
+            Log.d(TAG, "批量更新错题记录结果: " + result);
+            
+            if (!result.isAllSucceeded()) {
+                throw new IOException("批量更新部分失败: " + result.getFailureCount() + "个错误");
+            }
+            
+            String finalResult = "批量更新成功，共更新 " + wrongQuestionUpdates.size() + " 条记录";
+            
+            if (callback != null) {
+                callback.onSuccess(finalResult);
             }
-        }).start();
+            
+        } catch (Exception e) {
+            Log.e(TAG, "批量更新错题数据失败", e);
+            if (callback != null) {
+                callback.onError(e);
+            }
+        }
     }
     
     /**
      * 同步本地错题数据到云端
      */
     public void syncWrongQuestionsToCloud(List<WrongQuestionAdapter.WrongQuestionItem> wrongQuestions, OperationCallback<String> callback) {
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 List<JsonObject> updates = new ArrayList<>();
+                // 使用正确的日期格式
+                String currentDate = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date(System.currentTimeMillis()));
                 
                 for (WrongQuestionAdapter.WrongQuestionItem wrongQuestion : wrongQuestions) {
                     JsonObject updateData = new JsonObject();
@@ -372,15 +687,14 @@ public class SimpleSupabaseClient {
                     updateData.addProperty("is_mastered", wrongQuestion.isMastered());
                     // 使用正确的字段名：review_count 而不是 wrong_count
                     updateData.addProperty("review_count", wrongQuestion.getWrongCount());
-                    // 使用正确的日期格式
-                    String currentDate = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date(System.currentTimeMillis()));
                     updateData.addProperty("last_review_date", currentDate);
                     
                     updates.add(updateData);
                 }
                 
                 if (!updates.isEmpty()) {
-                    batchUpdateWrongQuestions(updates, callback);
+                    // 已在写入通道上，直接同步执行，避免再排一次队
+                    doBatchUpdateWrongQuestions(updates, callback);
                 } else {
                     if (callback != null) {
                         callback.onSuccess("没有需要同步的数据");
@@ -393,6 +707,6 @@ public class SimpleSupabaseClient {
                     callback.onError(e);
                 }
             }
-        }).start();
+        });
     }
 }
\ No newline at end of file
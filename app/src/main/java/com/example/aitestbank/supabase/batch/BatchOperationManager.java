@@ -2,16 +2,38 @@ package com.example.aitestbank.supabase.batch;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.text.TextUtils;
 import android.util.Log;
 import com.example.aitestbank.model.Question;
 import com.example.aitestbank.model.SupabaseUserProfile;
 import com.example.aitestbank.model.SupabaseWrongQuestion;
 import com.example.aitestbank.supabase.SupabaseClientManager;
 import com.example.aitestbank.supabase.SupabaseClientManager.OperationCallback;
+import com.example.aitestbank.supabase.http.SupabaseHttpClient;
+import com.example.aitestbank.supabase.http.SupabaseHttpException;
+import com.example.aitestbank.utils.AppExecutors;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import org.json.JSONArray;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
 
 /**
  * 批量操作管理器
@@ -21,12 +43,30 @@ public class BatchOperationManager {
     private static final String TAG = "BatchOperationManager";
     private static BatchOperationManager instance;
     
+    private static final String TABLE_WRONG_QUESTIONS = "wrong_questions";
+    private static final String BULK_UPDATE_FUNCTION = "bulk_update_wrong_questions";
+    // 与 bulk_update_wrong_questions 中 jsonb_to_recordset 声明的列保持一致
+    private static final Set<String> BULK_UPDATE_COLUMNS = new HashSet<>(Arrays.asList(
+            "review_count", "mastery_level", "is_mastered", "next_review_date", "last_review_date", "wrong_reason"));
+    private static final int DEFAULT_CHUNK_SIZE = 50;
+    private static final int MAX_CHUNK_SIZE = 500;
+    private static final int MAX_RETRIES = 2;
+    private static final long RETRY_BACKOFF_MS = 300;
+    // in.()过滤条件放在URL中，限制单次id数量避免超出URL长度
+    private static final int MAX_IDS_PER_FILTER = 100;
+    
     private final SupabaseClientManager supabaseClient;
     private final Handler mainHandler;
+    private final Gson gson = new Gson();
+    private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+    // 数据库未部署批量更新函数时退回到按内容分组PATCH，只探测一次
+    private volatile boolean bulkUpdateRpcAvailable = true;
     
     private BatchOperationManager() {
         supabaseClient = SupabaseClientManager.getInstance();
         mainHandler = new Handler(Looper.getMainLooper());
+        // RPC写入同样要让错题查询备忘失效
+        SupabaseHttpClient.getInstance().registerRpcWrite(BULK_UPDATE_FUNCTION, TABLE_WRONG_QUESTIONS);
     }
     
     public static synchronized BatchOperationManager getInstance() {
@@ -36,254 +76,425 @@ public class BatchOperationManager {
         return instance;
     }
     
+    /**
+     * 设置批量请求的分块大小（每次HTTP请求携带的行数）
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+    }
+    
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
     /**
      * 批量插入错题
      */
     public void batchInsertWrongQuestions(List<SupabaseWrongQuestion> wrongQuestions, OperationCallback<Integer> callback) {
-        new Thread(() -> {
+        batchInsertWrongQuestionsWithResult(wrongQuestions, new OperationCallback<BatchResult>() {
+            @Override
+            public void onSuccess(BatchResult result) {
+                if (result.isAllSucceeded()) {
+                    callback.onSuccess(result.getSuccessCount());
+                } else {
+                    for (Map.Entry<String, String> failed : result.getFailedRows().entrySet()) {
+                        Log.w(TAG, "批量操作中的错误: " + failed.getKey() + " - " + failed.getValue());
+                    }
+                    callback.onError(new Exception("批量操作部分失败: " + result.getFailureCount() + "个错误"));
+                }
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        });
+    }
+    
+    /**
+     * 批量插入错题（逐行结果）
+     * 按分块发送JSON数组POST，整块失败时只对失败部分重试
+     */
+    public void batchInsertWrongQuestionsWithResult(List<SupabaseWrongQuestion> wrongQuestions, OperationCallback<BatchResult> callback) {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.BACKGROUND).execute(() -> {
             try {
                 if (wrongQuestions == null || wrongQuestions.isEmpty()) {
-                    mainHandler.post(() -> callback.onSuccess(0));
+                    mainHandler.post(() -> callback.onSuccess(new BatchResult(0)));
                     return;
                 }
                 
-                int totalInserted = 0;
-                List<Exception> errors = new ArrayList<>();
-                
+                // 客户端生成id，保证重试时服务端能识别重复行
+                List<JsonObject> rows = new ArrayList<>();
                 for (SupabaseWrongQuestion wrongQuestion : wrongQuestions) {
-                    try {
-                        // 使用CountDownLatch等待每个操作完成
-                        final boolean[] success = {false};
-                        final Exception[] error = {null};
-                        
-                        Thread.sleep(100); // 避免过于频繁的请求
-                        
-                        supabaseClient.addWrongQuestion(wrongQuestion, new OperationCallback<Void>() {
-                            @Override
-                            public void onSuccess(Void result) {
-                                synchronized (success) {
-                                    success[0] = true;
-                                    success.notify();
-                                }
-                            }
-                            
-                            @Override
-                            public void onError(Exception e) {
-                                synchronized (error) {
-                                    error[0] = e;
-                                    success.notify();
-                                }
-                            }
-                        });
-                        
-                        synchronized (success) {
-                            try {
-                                success.wait(5000); // 最多等待5秒
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }
-                        
-                        if (success[0]) {
-                            totalInserted++;
-                        } else if (error[0] != null) {
-                            errors.add(error[0]);
-                        }
-                        
-                    } catch (Exception e) {
-                        errors.add(e);
-                        Log.e(TAG, "批量插入错题时出错: " + wrongQuestion.getQuestionTitle(), e);
+                    if (wrongQuestion.getId() == null || wrongQuestion.getId().isEmpty()) {
+                        wrongQuestion.setId(UUID.randomUUID().toString());
                     }
+                    rows.add(gson.toJsonTree(wrongQuestion).getAsJsonObject());
                 }
                 
-                final int finalCount = totalInserted;
-                final List<Exception> finalErrors = errors;
-                
-                mainHandler.post(() -> {
-                    if (finalErrors.isEmpty()) {
-                        callback.onSuccess(finalCount);
-                    } else {
-                        Exception error = new Exception("批量操作部分失败: " + finalErrors.size() + "个错误");
-                        for (Exception e : finalErrors) {
-                            Log.w(TAG, "批量操作中的错误", e);
-                        }
-                        callback.onError(error);
-                    }
-                });
+                BatchResult result = new BatchResult(rows.size());
+                for (List<JsonObject> chunk : partition(rows, chunkSize)) {
+                    sendChunk(chunk, part -> new JSONArray(supabaseClient.bulkInsertSync(
+                            TABLE_WRONG_QUESTIONS, toJsonArray(part), collectColumns(part))).length(),
+                            true, result, 0);
+                }
                 
-                Log.i(TAG, "批量插入错题完成: " + totalInserted + "/" + wrongQuestions.size());
+                Log.i(TAG, "批量插入错题完成: " + result);
+                mainHandler.post(() -> callback.onSuccess(result));
                 
             } catch (Exception e) {
                 Log.e(TAG, "批量插入错题失败", e);
                 mainHandler.post(() -> callback.onError(e));
             }
-        }).start();
+        });
     }
     
     /**
      * 批量更新错题掌握程度
+     * 所有行写入相同字段，合并为 id=in.(...) 的PATCH，按分块发送
      */
     public void batchUpdateWrongQuestionsMastery(List<String> questionIds, int masteryLevel, boolean isMastered, OperationCallback<Integer> callback) {
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.BACKGROUND).execute(() -> {
             try {
                 if (questionIds == null || questionIds.isEmpty()) {
                     mainHandler.post(() -> callback.onSuccess(0));
                     return;
                 }
                 
-                int totalUpdated = 0;
-                List<Exception> errors = new ArrayList<>();
+                // 约束在1-5范围内，与数据库CHECK约束保持一致
+                int constrainedLevel = Math.max(1, Math.min(5, masteryLevel));
+                String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
                 
+                List<JsonObject> rows = new ArrayList<>();
                 for (String questionId : questionIds) {
-                    try {
-                        Thread.sleep(100); // 避免过于频繁的请求
-                        
-                        final boolean[] success = {false};
-                        final Exception[] error = {null};
-                        
-                        supabaseClient.updateWrongQuestionMastery(questionId, masteryLevel, isMastered, new OperationCallback<Void>() {
-                            @Override
-                            public void onSuccess(Void result) {
-                                synchronized (success) {
-                                    success[0] = true;
-                                    success.notify();
-                                }
-                            }
-                            
-                            @Override
-                            public void onError(Exception e) {
-                                synchronized (error) {
-                                    error[0] = e;
-                                    success.notify();
-                                }
-                            }
-                        });
-                        
-                        synchronized (success) {
-                            try {
-                                success.wait(5000); // 最多等待5秒
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }
-                        
-                        if (success[0]) {
-                            totalUpdated++;
-                        } else if (error[0] != null) {
-                            errors.add(error[0]);
-                        }
-                        
-                    } catch (Exception e) {
-                        errors.add(e);
-                        Log.e(TAG, "批量更新错题时出错: " + questionId, e);
-                    }
+                    JsonObject row = new JsonObject();
+                    row.addProperty("id", questionId);
+                    row.addProperty("mastery_level", constrainedLevel);
+                    row.addProperty("is_mastered", isMastered);
+                    row.addProperty("last_review_date", today);
+                    rows.add(row);
                 }
                 
-                final int finalCount = totalUpdated;
-                final List<Exception> finalErrors = errors;
+                BatchResult result = bulkUpdateSync(TABLE_WRONG_QUESTIONS, rows);
                 
                 mainHandler.post(() -> {
-                    if (finalErrors.isEmpty()) {
-                        callback.onSuccess(finalCount);
+                    if (result.isAllSucceeded()) {
+                        callback.onSuccess(result.getSuccessCount());
                     } else {
-                        Exception error = new Exception("批量更新部分失败: " + finalErrors.size() + "个错误");
-                        for (Exception e : finalErrors) {
-                            Log.w(TAG, "批量更新中的错误", e);
+                        for (Map.Entry<String, String> failed : result.getFailedRows().entrySet()) {
+                            Log.w(TAG, "批量更新中的错误: " + failed.getKey() + " - " + failed.getValue());
                         }
-                        callback.onError(error);
+                        callback.onError(new Exception("批量更新部分失败: " + result.getFailureCount() + "个错误"));
                     }
                 });
                 
-                Log.i(TAG, "批量更新错题完成: " + totalUpdated + "/" + questionIds.size());
+                Log.i(TAG, "批量更新错题完成: " + result);
                 
             } catch (Exception e) {
                 Log.e(TAG, "批量更新错题失败", e);
                 mainHandler.post(() -> callback.onError(e));
             }
-        }).start();
+        });
+    }
+    
+    /**
+     * 批量更新（同步，调用方负责在后台线程执行）
+     * 每行必须包含id，其余字段为要写入的内容。错题表的行通过 bulk_update_wrong_questions 一次RPC更新，
+     * 各行内容可以不同；其他表、函数不支持的字段，以及数据库未部署该函数时，
+     * 退回到按内容分组的 id=in.(...) PATCH。不使用upsert，已被删除的id不会被重新插入
+     */
+    public BatchResult bulkUpdateSync(String table, List<JsonObject> rows) {
+        BatchResult result = new BatchResult(rows.size());
+        if (rows.isEmpty()) {
+            return result;
+        }
+        
+        List<JsonObject> patchRows = rows;
+        if (TABLE_WRONG_QUESTIONS.equals(table) && bulkUpdateRpcAvailable) {
+            List<JsonObject> rpcRows = new ArrayList<>();
+            patchRows = new ArrayList<>();
+            for (JsonObject row : rows) {
+                (supportsBulkUpdateRpc(row) ? rpcRows : patchRows).add(row);
+            }
+            patchRows.addAll(bulkUpdateByRpc(rpcRows, result));
+        }
+        
+        for (List<JsonObject> group : groupByPayload(patchRows)) {
+            String payload = payloadOf(group.get(0)).toString();
+            for (List<JsonObject> chunk : partition(group, Math.min(chunkSize, MAX_IDS_PER_FILTER))) {
+                // 同一组的内容相同，失败时拆分也不会成功，因此不二分
+                sendChunk(chunk, part -> supabaseClient.bulkPatchSync(table, idFilter(part), payload),
+                        false, result, 0);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 按分块调用批量更新函数，行数据放在请求体中，不受URL长度限制
+     *
+     * @return 函数未部署而没有发出的行，由调用方改走PATCH
+     */
+    private List<JsonObject> bulkUpdateByRpc(List<JsonObject> rows, BatchResult result) {
+        List<JsonObject> unsent = new ArrayList<>();
+        for (List<JsonObject> chunk : partition(rows, chunkSize)) {
+            if (!bulkUpdateRpcAvailable) {
+                unsent.addAll(chunk);
+                continue;
+            }
+            try {
+                // 函数对各行逐一生效，约束冲突时二分定位失败的行
+                sendChunk(chunk, this::sendBulkUpdate, true, result, 0);
+            } catch (RequestUnsupportedException e) {
+                bulkUpdateRpcAvailable = false;
+                Log.w(TAG, "数据库未部署" + BULK_UPDATE_FUNCTION + "，改用PATCH批量更新");
+                unsent.addAll(chunk);
+            }
+        }
+        return unsent;
+    }
+    
+    private int sendBulkUpdate(List<JsonObject> rows) throws IOException {
+        JsonObject args = new JsonObject();
+        JsonArray array = new JsonArray();
+        for (JsonObject row : rows) {
+            array.add(row);
+        }
+        args.add("p_rows", array);
+        try {
+            String body = supabaseClient.rpcSync(BULK_UPDATE_FUNCTION, args.toString());
+            return Integer.parseInt(body.trim());
+        } catch (SupabaseHttpException e) {
+            if (e.getStatusCode() == 404) {
+                throw new RequestUnsupportedException(e);
+            }
+            throw e;
+        } catch (NumberFormatException e) {
+            // 已经写入成功，只是影响行数无法识别
+            return -1;
+        }
+    }
+    
+    /**
+     * 批量更新函数只认识声明过的列，且null表示保持原值；
+     * 含其他字段或要写入null的行只能走PATCH
+     */
+    static boolean supportsBulkUpdateRpc(JsonObject row) {
+        for (Map.Entry<String, JsonElement> field : row.entrySet()) {
+            if ("id".equals(field.getKey())) {
+                continue;
+            }
+            if (!BULK_UPDATE_COLUMNS.contains(field.getKey()) || field.getValue().isJsonNull()) {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
      * 批量删除错题
      */
     public void batchDeleteWrongQuestions(List<String> questionIds, OperationCallback<Integer> callback) {
-        new Thread(() -> {
+        batchDeleteWrongQuestionsWithResult(questionIds, new OperationCallback<BatchResult>() {
+            @Override
+            public void onSuccess(BatchResult result) {
+                if (result.isAllSucceeded()) {
+                    callback.onSuccess(result.getAffectedCount());
+                } else {
+                    for (Map.Entry<String, String> failed : result.getFailedRows().entrySet()) {
+                        Log.w(TAG, "批量删除中的错误: " + failed.getKey() + " - " + failed.getValue());
+                    }
+                    callback.onError(new Exception("批量删除部分失败: " + result.getFailureCount() + "个错误"));
+                }
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                callback.onError(error);
+            }
+        });
+    }
+    
+    /**
+     * 批量删除错题（逐行结果）
+     * 按分块发送 id=in.(...) 的DELETE，某一块失败不影响其余分块
+     */
+    public void batchDeleteWrongQuestionsWithResult(List<String> questionIds, OperationCallback<BatchResult> callback) {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.BACKGROUND).execute(() -> {
             try {
                 if (questionIds == null || questionIds.isEmpty()) {
-                    mainHandler.post(() -> callback.onSuccess(0));
+                    mainHandler.post(() -> callback.onSuccess(new BatchResult(0)));
                     return;
                 }
                 
-                int totalDeleted = 0;
-                List<Exception> errors = new ArrayList<>();
-                
-                for (String questionId : questionIds) {
-                    try {
-                        Thread.sleep(100); // 避免过于频繁的请求
-                        
-                        final boolean[] success = {false};
-                        final Exception[] error = {null};
-                        
-                        supabaseClient.deleteWrongQuestion(questionId, new OperationCallback<Void>() {
-                            @Override
-                            public void onSuccess(Void result) {
-                                synchronized (success) {
-                                    success[0] = true;
-                                    success.notify();
-                                }
-                            }
-                            
-                            @Override
-                            public void onError(Exception e) {
-                                synchronized (error) {
-                                    error[0] = e;
-                                    success.notify();
-                                }
-                            }
-                        });
-                        
-                        synchronized (success) {
-                            try {
-                                success.wait(5000); // 最多等待5秒
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                        }
-                        
-                        if (success[0]) {
-                            totalDeleted++;
-                        } else if (error[0] != null) {
-                            errors.add(error[0]);
-                        }
-                        
-                    } catch (Exception e) {
-                        errors.add(e);
-                        Log.e(TAG, "批量删除错题时出错: " + questionId, e);
-                    }
-                }
-                
-                final int finalCount = totalDeleted;
-                final List<Exception> finalErrors = errors;
-                
-                mainHandler.post(() -> {
-                    if (finalErrors.isEmpty()) {
-                        callback.onSuccess(finalCount);
-                    } else {
-                        Exception error = new Exception("批量删除部分失败: " + finalErrors.size() + "个错误");
-                        for (Exception e : finalErrors) {
-                            Log.w(TAG, "批量删除中的错误", e);
-                        }
-                        callback.onError(error);
-                    }
-                });
-                
-                Log.i(TAG, "批量删除错题完成: " + totalDeleted + "/" + questionIds.size());
+                BatchResult result = bulkDeleteSync(TABLE_WRONG_QUESTIONS, questionIds);
+                Log.i(TAG, "批量删除错题完成: " + result + ", 实际删除" + result.getAffectedCount() + "行");
+                mainHandler.post(() -> callback.onSuccess(result));
                 
             } catch (Exception e) {
                 Log.e(TAG, "批量删除错题失败", e);
                 mainHandler.post(() -> callback.onError(e));
             }
-        }).start();
+        });
+    }
+    
+    /**
+     * 批量删除（同步，调用方负责在后台线程执行）
+     * 删除行数取自 count=exact，不存在的id不会报错，只是不计入删除数
+     */
+    public BatchResult bulkDeleteSync(String table, List<String> ids) {
+        List<JsonObject> rows = new ArrayList<>();
+        for (String id : ids) {
+            JsonObject row = new JsonObject();
+            row.addProperty("id", id);
+            rows.add(row);
+        }
+        
+        BatchResult result = new BatchResult(rows.size());
+        for (List<JsonObject> chunk : partition(rows, Math.min(chunkSize, MAX_IDS_PER_FILTER))) {
+            sendChunk(chunk, part -> supabaseClient.bulkDeleteSync(table, idFilter(part)), true, result, 0);
+        }
+        return result;
+    }
+    
+    /**
+     * 发送一个分块
+     * 临时错误（网络、5xx、限流）原样重试；约束冲突等永久错误会导致整块回滚，
+     * 可拆分的请求此时二分重发，已成功的一半不再重复发送，最终定位到具体失败的行
+     * 服务端不支持该请求时抛出RequestUnsupportedException，不记录行结果
+     */
+    static void sendChunk(List<JsonObject> chunk, ChunkRequest request, boolean splittable, BatchResult result, int attempt) {
+        result.incrementRequestCount();
+        try {
+            int affected = request.send(chunk);
+            if (affected >= 0) {
+                result.addAffected(affected);
+            }
+            for (JsonObject row : chunk) {
+                result.addSuccess(rowId(row));
+            }
+        } catch (RequestUnsupportedException e) {
+            throw e;
+        } catch (Exception e) {
+            boolean retryable = !(e instanceof SupabaseHttpException) || ((SupabaseHttpException) e).isRetryable();
+            if (retryable && attempt < MAX_RETRIES) {
+                Log.w(TAG, "分块请求失败，准备重试(" + (attempt + 1) + "): " + e.getMessage());
+                sleepBeforeRetry(attempt);
+                sendChunk(chunk, request, splittable, result, attempt + 1);
+            } else if (!retryable && splittable && chunk.size() > 1) {
+                int middle = chunk.size() / 2;
+                sendChunk(chunk.subList(0, middle), request, true, result, 0);
+                sendChunk(chunk.subList(middle, chunk.size()), request, true, result, 0);
+            } else {
+                for (JsonObject row : chunk) {
+                    result.addFailure(rowId(row), e.getMessage());
+                }
+                Log.e(TAG, "分块请求失败: " + chunk.size() + "行", e);
+            }
+        }
+    }
+    
+    /**
+     * 按分块大小切分
+     */
+    static <T> List<List<T>> partition(List<T> items, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(items.subList(i, Math.min(i + size, items.size())));
+        }
+        return chunks;
+    }
+    
+    /**
+     * 构建 id=in.(...) 过滤条件
+     */
+    private String idFilter(List<JsonObject> rows) {
+        List<String> ids = new ArrayList<>();
+        for (JsonObject row : rows) {
+            ids.add(rowId(row));
+        }
+        return "id=in.(" + TextUtils.join(",", ids) + ")";
+    }
+    
+    /**
+     * 按除id外的字段内容分组，保持行的原有顺序
+     */
+    static List<List<JsonObject>> groupByPayload(List<JsonObject> rows) {
+        Map<String, List<JsonObject>> groups = new LinkedHashMap<>();
+        for (JsonObject row : rows) {
+            String key = payloadOf(row).toString();
+            List<JsonObject> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(row);
+        }
+        return new ArrayList<>(groups.values());
+    }
+    
+    /**
+     * 去掉id后的字段内容，按字段名排序以便比较
+     */
+    static JsonObject payloadOf(JsonObject row) {
+        JsonObject payload = new JsonObject();
+        for (String key : new TreeSet<>(row.keySet())) {
+            if (!"id".equals(key)) {
+                payload.add(key, row.get(key));
+            }
+        }
+        return payload;
+    }
+    
+    /**
+     * 将行列表序列化为JSON数组
+     */
+    private String toJsonArray(List<JsonObject> rows) {
+        JsonArray array = new JsonArray();
+        for (JsonObject row : rows) {
+            array.add(row);
+        }
+        return array.toString();
+    }
+    
+    /**
+     * 收集所有行出现过的列，PostgREST批量插入要求统一的列集合
+     */
+    private String collectColumns(List<JsonObject> rows) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (JsonObject row : rows) {
+            columns.addAll(row.keySet());
+        }
+        return TextUtils.join(",", columns);
+    }
+    
+    private static String rowId(JsonObject row) {
+        return row.has("id") ? row.get("id").getAsString() : "";
+    }
+    
+    private static void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MS * (1L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * 分块请求：发送一块数据，返回服务端影响的行数（未知时返回-1）
+     */
+    interface ChunkRequest {
+        int send(List<JsonObject> chunk) throws Exception;
+    }
+    
+    /**
+     * 服务端不支持该请求（如函数未部署），不计入行结果，交由调用方换一种方式发送
+     */
+    static class RequestUnsupportedException extends RuntimeException {
+        RequestUnsupportedException(Throwable cause) {
+            super(cause);
+        }
     }
     
     /**
@@ -0,0 +1,87 @@
+package com.example.aitestbank.supabase.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量操作结果 - 逐行记录成功与失败
+ */
+public class BatchResult {
+
+    private final int total;
+    private final List<String> succeededIds = new ArrayList<>();
+    private final Map<String, String> failedRows = new LinkedHashMap<>();
+    private int affectedCount;
+    private int requestCount;
+
+    public BatchResult(int total) {
+        this.total = total;
+    }
+
+    synchronized void addSuccess(String id) {
+        succeededIds.add(id);
+    }
+
+    synchronized void addFailure(String id, String reason) {
+        failedRows.put(id, reason);
+    }
+
+    synchronized void addAffected(int count) {
+        affectedCount += count;
+    }
+
+    synchronized void incrementRequestCount() {
+        requestCount++;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public synchronized int getSuccessCount() {
+        return succeededIds.size();
+    }
+
+    public synchronized int getFailureCount() {
+        return failedRows.size();
+    }
+
+    /**
+     * 服务端实际影响的行数（count=exact返回的数量）
+     */
+    public synchronized int getAffectedCount() {
+        return affectedCount;
+    }
+
+    /**
+     * 实际发出的HTTP请求数
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    public synchronized List<String> getSucceededIds() {
+        return Collections.unmodifiableList(new ArrayList<>(succeededIds));
+    }
+
+    /**
+     * 失败的行：id -> 失败原因
+     */
+    public synchronized Map<String, String> getFailedRows() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(failedRows));
+    }
+
+    public synchronized boolean isAllSucceeded() {
+        return failedRows.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "批量结果: 成功" + succeededIds.size() + "/" + total
+                + ", 失败" + failedRows.size()
+                + ", 请求数" + requestCount;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.aitestbank.supabase.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 紧凑二进制记录列表
+ *
+ * 格式：魔数 | 编码版本 | 记录数n | n+1个偏移量 | 记录数据
+ * 偏移表让任意一条记录都能单独定位，get(i)只解码第i条，解码结果按下标缓存。
+ * 列表只读，需要修改时复制成ArrayList
+ */
+public final class BinaryRecordList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int MAGIC = 0x41515231; // "AQR1"
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * 单条记录的编解码
+     */
+    public interface RecordCodec<T> {
+        /** 字段布局变化时递增，旧版本的缓存直接丢弃 */
+        int version();
+
+        void write(DataOutput out, T record) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    private final byte[] data;
+    private final int count;
+    private final int dataStart;
+    private final RecordCodec<T> codec;
+    private final Object[] decoded;
+
+    private BinaryRecordList(byte[] data, int count, RecordCodec<T> codec) {
+        this.data = data;
+        this.count = count;
+        this.dataStart = HEADER_SIZE + (count + 1) * 4;
+        this.codec = codec;
+        this.decoded = new Object[count];
+    }
+
+    /**
+     * 编码整个列表
+     */
+    public static <T> byte[] encode(List<? extends T> records, RecordCodec<T> codec) throws IOException {
+        int count = records.size();
+        int[] offsets = new int[count + 1];
+        ByteArrayOutputStream body = new ByteArrayOutputStream(count * 256);
+        DataOutputStream out = new DataOutputStream(body);
+        for (int i = 0; i < count; i++) {
+            offsets[i] = out.size();
+            codec.write(out, records.get(i));
+        }
+        offsets[count] = out.size();
+        out.flush();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (count + 1) * 4 + body.size());
+        buffer.putInt(MAGIC).putInt(codec.version()).putInt(count);
+        for (int offset : offsets) {
+            buffer.putInt(offset);
+        }
+        buffer.put(body.toByteArray());
+        return buffer.array();
+    }
+
+    /**
+     * 包装编码后的数据，只校验头部，不解码任何记录
+     * 数据不是本格式或编码版本不一致时返回null
+     */
+    public static <T> BinaryRecordList<T> wrap(byte[] data, RecordCodec<T> codec) {
+        if (data == null || data.length < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != codec.version()) {
+            return null;
+        }
+        int count = buffer.getInt();
+        if (count < 0 || (long) HEADER_SIZE + (count + 1) * 4L > data.length) {
+            return null;
+        }
+        return new BinaryRecordList<>(data, count, codec);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + count);
+        }
+        Object record = decoded[index];
+        if (record == null) {
+            record = decode(index);
+            decoded[index] = record;
+        }
+        return (T) record;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 已解码的记录数
+     */
+    public int decodedCount() {
+        int decodedCount = 0;
+        for (Object record : decoded) {
+            if (record != null) {
+                decodedCount++;
+            }
+        }
+        return decodedCount;
+    }
+
+    private T decode(int index) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int start = buffer.getInt(HEADER_SIZE + index * 4);
+        int end = buffer.getInt(HEADER_SIZE + (index + 1) * 4);
+        try {
+            return codec.read(new DataInputStream(
+                    new ByteArrayInputStream(data, dataStart + start, end - start)));
+        } catch (IOException e) {
+            throw new IllegalStateException("记录" + index + "解码失败", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.aitestbank.supabase.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 缓存条目压缩
+ *
+ * 条目文件第一个字节是编码方式，后面是数据。大于阈值的条目用Deflate压缩，
+ * 压缩后节省不到1/8时仍按原样保存，避免为压不动的数据付出解压开销
+ */
+public final class CacheCompression {
+
+    /** 原样保存 */
+    public static final byte CODEC_NONE = 0;
+    /** Deflate（无zlib头） */
+    public static final byte CODEC_DEFLATE = 1;
+
+    /** 小于该字节数的条目不压缩 */
+    public static final int COMPRESS_THRESHOLD = 1024;
+    /** 默认压缩级别，取舍见基准测试CompressionBenchmark */
+    public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+    private CacheCompression() {
+    }
+
+    /**
+     * 按阈值选择编码方式，返回带编码字节的文件内容
+     */
+    public static byte[] encode(byte[] raw) {
+        if (raw.length >= COMPRESS_THRESHOLD) {
+            byte[] compressed = deflate(raw, DEFAULT_LEVEL);
+            if (compressed.length < raw.length - raw.length / 8) {
+                return withCodec(CODEC_DEFLATE, compressed);
+            }
+        }
+        return withCodec(CODEC_NONE, raw);
+    }
+
+    /**
+     * 解码文件内容
+     *
+     * @param originalSize 原始大小，用于一次分配好输出缓冲区；未知时传0
+     */
+    public static byte[] decode(byte[] stored, int originalSize) throws IOException {
+        if (stored.length == 0) {
+            throw new IOException("空的缓存文件");
+        }
+        switch (stored[0]) {
+            case CODEC_NONE: {
+                byte[] raw = new byte[stored.length - 1];
+                System.arraycopy(stored, 1, raw, 0, raw.length);
+                return raw;
+            }
+            case CODEC_DEFLATE:
+                return inflate(stored, 1, stored.length - 1, originalSize);
+            default:
+                throw new IOException("未知的缓存编码: " + stored[0]);
+        }
+    }
+
+    public static byte codecOf(byte[] stored) {
+        return stored.length > 0 ? stored[0] : CODEC_NONE;
+    }
+
+    public static byte[] deflate(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] inflate(byte[] data, int offset, int length, int originalSize) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(originalSize > 0 ? originalSize : length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("压缩数据不完整");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("压缩数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] withCodec(byte codec, byte[] data) {
+        byte[] stored = new byte[data.length + 1];
+        stored[0] = codec;
+        System.arraycopy(data, 0, stored, 1, data.length);
+        return stored;
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.aitestbank.supabase.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 缓存运行指标
+ *
+ * 按键的命名空间（第一个':'之前的部分，如 category_stats、wrong_questions）分别统计
+ * 命中（内存、磁盘、远端共享数据）、未命中、过期数据先显示、淘汰次数、读写字节数，以及网络加载耗时直方图。
+ * 计数全部是原子变量，热路径上不加锁
+ */
+public class CacheMetrics {
+
+    // 直方图桶上界（毫秒），最后一个桶收集超过上界的所有样本
+    private static final long[] LATENCY_BUCKETS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private static final CacheMetrics INSTANCE = new CacheMetrics();
+
+    private final Map<String, NamespaceMetrics> namespaces = new ConcurrentHashMap<>();
+
+    private CacheMetrics() {
+    }
+
+    public static CacheMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 键所属的命名空间
+     */
+    public static String namespaceOf(String key) {
+        int separator = key.indexOf(':');
+        return separator > 0 ? key.substring(0, separator) : key;
+    }
+
+    public void recordMemoryHit(String key) {
+        metricsFor(key).memoryHits.incrementAndGet();
+    }
+
+    public void recordDiskHit(String key, long bytes) {
+        NamespaceMetrics metrics = metricsFor(key);
+        metrics.diskHits.incrementAndGet();
+        metrics.bytesRead.addAndGet(bytes);
+    }
+
+    /**
+     * 命中了其他设备共享到服务端的数据
+     */
+    public void recordRemoteHit(String key, long bytes) {
+        NamespaceMetrics metrics = metricsFor(key);
+        metrics.remoteHits.incrementAndGet();
+        metrics.bytesRead.addAndGet(bytes);
+    }
+
+    public void recordMiss(String key) {
+        metricsFor(key).misses.incrementAndGet();
+    }
+
+    /**
+     * 返回了已过期的数据（随后后台刷新）
+     */
+    public void recordStaleServe(String key) {
+        metricsFor(key).staleServes.incrementAndGet();
+    }
+
+    public void recordEviction(String key, long bytes) {
+        NamespaceMetrics metrics = metricsFor(key);
+        metrics.evictions.incrementAndGet();
+        metrics.bytesEvicted.addAndGet(bytes);
+    }
+
+    public void recordWrite(String key, long bytes) {
+        NamespaceMetrics metrics = metricsFor(key);
+        metrics.writes.incrementAndGet();
+        metrics.bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * 记录一次缓存未命中或过期后的网络加载
+     */
+    public void recordLoad(String key, long elapsedMillis, boolean success) {
+        NamespaceMetrics metrics = metricsFor(key);
+        if (!success) {
+            metrics.loadFailures.incrementAndGet();
+        }
+        metrics.loadLatency.record(elapsedMillis);
+    }
+
+    /**
+     * 当前指标快照，按命名空间排序
+     */
+    public List<NamespaceSnapshot> snapshot() {
+        List<NamespaceSnapshot> result = new ArrayList<>();
+        for (Map.Entry<String, NamespaceMetrics> entry : namespaces.entrySet()) {
+            result.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        Collections.sort(result, (a, b) -> a.namespace.compareTo(b.namespace));
+        return result;
+    }
+
+    /**
+     * 所有命名空间合计
+     */
+    public NamespaceSnapshot total() {
+        NamespaceMetrics total = new NamespaceMetrics();
+        for (NamespaceMetrics metrics : namespaces.values()) {
+            total.mergeFrom(metrics);
+        }
+        return total.snapshot("全部");
+    }
+
+    public void reset() {
+        namespaces.clear();
+    }
+
+    /**
+     * 可读的指标报告，供调试界面和日志使用
+     */
+    public String formatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(total().format()).append("\n");
+        for (NamespaceSnapshot snapshot : snapshot()) {
+            report.append("\n").append(snapshot.format()).append("\n");
+        }
+        return report.toString();
+    }
+
+    private NamespaceMetrics metricsFor(String key) {
+        String namespace = namespaceOf(key);
+        NamespaceMetrics metrics = namespaces.get(namespace);
+        if (metrics == null) {
+            metrics = namespaces.computeIfAbsent(namespace, ignored -> new NamespaceMetrics());
+        }
+        return metrics;
+    }
+
+    private static class NamespaceMetrics {
+        final AtomicLong memoryHits = new AtomicLong();
+        final AtomicLong diskHits = new AtomicLong();
+        final AtomicLong remoteHits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong staleServes = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        final AtomicLong writes = new AtomicLong();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong bytesWritten = new AtomicLong();
+        final AtomicLong bytesEvicted = new AtomicLong();
+        final AtomicLong loadFailures = new AtomicLong();
+        final LatencyHistogram loadLatency = new LatencyHistogram();
+
+        void mergeFrom(NamespaceMetrics other) {
+            memoryHits.addAndGet(other.memoryHits.get());
+            diskHits.addAndGet(other.diskHits.get());
+            remoteHits.addAndGet(other.remoteHits.get());
+            misses.addAndGet(other.misses.get());
+            staleServes.addAndGet(other.staleServes.get());
+            evictions.addAndGet(other.evictions.get());
+            writes.addAndGet(other.writes.get());
+            bytesRead.addAndGet(other.bytesRead.get());
+            bytesWritten.addAndGet(other.bytesWritten.get());
+            bytesEvicted.addAndGet(other.bytesEvicted.get());
+            loadFailures.addAndGet(other.loadFailures.get());
+            loadLatency.mergeFrom(other.loadLatency);
+        }
+
+        NamespaceSnapshot snapshot(String namespace) {
+            return new NamespaceSnapshot(namespace, memoryHits.get(), diskHits.get(), remoteHits.get(), misses.get(),
+                    staleServes.get(), evictions.get(), writes.get(), bytesRead.get(), bytesWritten.get(),
+                    bytesEvicted.get(), loadFailures.get(), loadLatency.counts(), loadLatency.max.get());
+        }
+    }
+
+    /**
+     * 固定桶的耗时直方图
+     */
+    private static class LatencyHistogram {
+        final AtomicLongArray buckets = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+        final AtomicLong max = new AtomicLong();
+
+        void record(long millis) {
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS_MS.length && millis > LATENCY_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            long currentMax;
+            while (millis > (currentMax = max.get()) && !max.compareAndSet(currentMax, millis)) {
+                // 重试
+            }
+        }
+
+        void mergeFrom(LatencyHistogram other) {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.addAndGet(i, other.buckets.get(i));
+            }
+            max.accumulateAndGet(other.max.get(), Math::max);
+        }
+
+        long[] counts() {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * 单个命名空间的指标快照
+     */
+    public static class NamespaceSnapshot {
+        public final String namespace;
+        public final long memoryHits;
+        public final long diskHits;
+        public final long remoteHits;
+        public final long misses;
+        public final long staleServes;
+        public final long evictions;
+        public final long writes;
+        public final long bytesRead;
+        public final long bytesWritten;
+        public final long bytesEvicted;
+        public final long loadFailures;
+        /** 各桶样本数，桶上界见 {@link #bucketLabel(int)} */
+        public final long[] latencyBuckets;
+        public final long maxLatencyMillis;
+
+        NamespaceSnapshot(String namespace, long memoryHits, long diskHits, long remoteHits, long misses, long staleServes,
+                          long evictions, long writes, long bytesRead, long bytesWritten, long bytesEvicted,
+                          long loadFailures, long[] latencyBuckets, long maxLatencyMillis) {
+            this.namespace = namespace;
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.remoteHits = remoteHits;
+            this.misses = misses;
+            this.staleServes = staleServes;
+            this.evictions = evictions;
+            this.writes = writes;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.bytesEvicted = bytesEvicted;
+            this.loadFailures = loadFailures;
+            this.latencyBuckets = latencyBuckets;
+            this.maxLatencyMillis = maxLatencyMillis;
+        }
+
+        public long requests() {
+            return memoryHits + diskHits + remoteHits + staleServes + misses;
+        }
+
+        /**
+         * 命中率（0-1），过期数据先显示不算命中
+         */
+        public double hitRate() {
+            long requests = requests();
+            return requests > 0 ? (double) (memoryHits + diskHits + remoteHits) / requests : 0.0;
+        }
+
+        public long loads() {
+            long loads = 0;
+            for (long count : latencyBuckets) {
+                loads += count;
+            }
+            return loads;
+        }
+
+        /**
+         * 按桶估算的耗时分位数（返回所在桶的上界，落在最后一个桶时返回最大值）
+         */
+        public long latencyPercentile(double percentile) {
+            long loads = loads();
+            if (loads == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(loads * percentile);
+            long seen = 0;
+            for (int i = 0; i < latencyBuckets.length; i++) {
+                seen += latencyBuckets[i];
+                if (seen >= threshold) {
+                    return i < LATENCY_BUCKETS_MS.length ? LATENCY_BUCKETS_MS[i] : maxLatencyMillis;
+                }
+            }
+            return maxLatencyMillis;
+        }
+
+        public static String bucketLabel(int index) {
+            return index < LATENCY_BUCKETS_MS.length
+                    ? "≤" + LATENCY_BUCKETS_MS[index] + "ms"
+                    : ">" + LATENCY_BUCKETS_MS[LATENCY_BUCKETS_MS.length - 1] + "ms";
+        }
+
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.getDefault(),
+                    "[%s] 命中率 %.1f%% (内存%d 磁盘%d 远端%d 过期先显示%d 未命中%d)\n",
+                    namespace, hitRate() * 100, memoryHits, diskHits, remoteHits, staleServes, misses));
+            text.append(String.format(Locale.getDefault(),
+                    "  写入%d次 %dKB, 读盘%dKB, 淘汰%d次 %dKB\n",
+                    writes, bytesWritten / 1024, bytesRead / 1024, evictions, bytesEvicted / 1024));
+            text.append(String.format(Locale.getDefault(),
+                    "  网络加载%d次 失败%d, p50≤%dms p90≤%dms p99≤%dms 最大%dms",
+                    loads(), loadFailures, latencyPercentile(0.5), latencyPercentile(0.9),
+                    latencyPercentile(0.99), maxLatencyMillis));
+            if (loads() > 0) {
+                text.append("\n  ");
+                for (int i = 0; i < latencyBuckets.length; i++) {
+                    if (latencyBuckets[i] > 0) {
+                        text.append(bucketLabel(i)).append(':').append(latencyBuckets[i]).append(' ');
+                    }
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.aitestbank.supabase.cache;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.aitestbank.utils.AppExecutors;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 缓存命名空间 - 按数据域和用户ID划分缓存，每个命名空间带一个代数
+ *
+ * 缓存键格式为 域:数据项:用户ID@代数标记，代数标记由全局代数、用户代数和命名空间代数组成。
+ * 失效一个命名空间只需把对应代数加一，旧键从此不会再被读到，
+ * 旧条目在写入通道上由各缓存存储的回收任务删除，退出登录、清除缓存时不在界面线程上批量删文件。
+ * 代数保存在SharedPreferences中，重启后旧数据仍然无效
+ */
+public class CacheNamespaces {
+
+    private static final String TAG = "CacheNamespaces";
+    private static final String PREFS_NAME = "cache_namespaces";
+    private static final String KEY_EPOCH = "epoch";
+    private static final String USER_PREFIX = "user/";
+    private static final String NAMESPACE_PREFIX = "ns/";
+
+    /** 与用户无关的数据（如公共题库）使用的用户ID */
+    public static final String SHARED_USER = "shared";
+
+    /**
+     * 数据域，prefix同时是缓存键和指标统计的命名空间
+     */
+    public enum Domain {
+        QUESTIONS("questions"),
+        WRONG_QUESTIONS("wrong_questions"),
+        PROFILE("profile"),
+        STATS("stats");
+
+        public final String prefix;
+
+        Domain(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static volatile CacheNamespaces instance;
+
+    private final SharedPreferences prefs;
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    // 代数变化后在写入通道上执行的回收任务
+    private final List<Runnable> reclaimers = new CopyOnWriteArrayList<>();
+
+    private CacheNamespaces(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Long) {
+                generations.put(entry.getKey(), (Long) entry.getValue());
+            }
+        }
+    }
+
+    public static CacheNamespaces getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CacheNamespaces.class) {
+                if (instance == null) {
+                    instance = new CacheNamespaces(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 当前代数下的缓存键
+     *
+     * @param item 命名空间内的数据项名，不能含'@'
+     * @param userId 用户ID，为空时使用SHARED_USER
+     */
+    public String key(Domain domain, String item, String userId) {
+        String user = userId == null || userId.isEmpty() ? SHARED_USER : userId;
+        return domain.prefix + ":" + item + ":" + user + "@" + tagOf(domain.prefix, user);
+    }
+
+    /**
+     * 某个域下所有用户、所有代数的键的公共前缀（用于按前缀标记过期）
+     */
+    public static String prefixOf(Domain domain, String item) {
+        return domain.prefix + ":" + item + ":";
+    }
+
+    /**
+     * 键是否属于当前代数；不是本类生成的键视为有效
+     */
+    public boolean isCurrent(String key) {
+        int at = key.lastIndexOf('@');
+        int domainEnd = key.indexOf(':');
+        int userStart = key.lastIndexOf(':', at) + 1;
+        if (at < 0 || domainEnd < 0 || userStart <= domainEnd) {
+            return true;
+        }
+        String domain = key.substring(0, domainEnd);
+        String user = key.substring(userStart, at);
+        return key.substring(at + 1).equals(tagOf(domain, user));
+    }
+
+    /**
+     * 失效一个用户在某个域下的全部缓存
+     */
+    public void invalidate(Domain domain, String userId) {
+        bump(NAMESPACE_PREFIX + domain.prefix + "/" + userId);
+        Log.d(TAG, "命名空间失效: " + domain.prefix + "/" + userId);
+    }
+
+    /**
+     * 失效一个用户在所有域下的缓存（退出登录、切换账号）
+     */
+    public void invalidateUser(String userId) {
+        if (userId == null || userId.isEmpty()) {
+            return;
+        }
+        bump(USER_PREFIX + userId);
+        Log.d(TAG, "用户缓存失效: " + userId);
+    }
+
+    /**
+     * 失效全部缓存（清除缓存）
+     */
+    public void invalidateAll() {
+        bump(KEY_EPOCH);
+        Log.d(TAG, "全部缓存失效");
+    }
+
+    /**
+     * 注册回收任务，代数变化后在写入通道上执行，负责删除isCurrent为false的条目
+     */
+    public void addReclaimer(Runnable reclaimer) {
+        reclaimers.add(reclaimer);
+    }
+
+    private String tagOf(String domain, String user) {
+        return generationOf(KEY_EPOCH) + "." + generationOf(USER_PREFIX + user)
+                + "." + generationOf(NAMESPACE_PREFIX + domain + "/" + user);
+    }
+
+    private long generationOf(String counter) {
+        Long generation = generations.get(counter);
+        return generation != null ? generation : 0;
+    }
+
+    private void bump(String counter) {
+        long generation;
+        synchronized (generations) {
+            generation = generationOf(counter) + 1;
+            generations.put(counter, generation);
+        }
+        prefs.edit().putLong(counter, generation).apply();
+        for (Runnable reclaimer : reclaimers) {
+            AppExecutors.getInstance().writer().execute(reclaimer);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.aitestbank.supabase.cache;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.aitestbank.utils.NetworkUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 缓存预热流水线
+ *
+ * 按给定顺序逐个执行预热阶段，每个阶段只在缓存缺失或过期时请求网络。
+ * 每个阶段开始前检查网络，不是WiFi时停止，剩余阶段记为跳过。
+ * 在调用线程上同步执行，由SupabaseCacheManager.warmupCache放到后台通道
+ */
+public final class CacheWarmup {
+
+    private static final String TAG = "CacheWarmup";
+
+    /**
+     * 预热阶段
+     */
+    public interface Stage {
+        /** 用于日志和报告的名称 */
+        String name();
+
+        /**
+         * 执行预热
+         *
+         * @return true表示请求了网络，false表示缓存已有效
+         */
+        boolean warm() throws Exception;
+    }
+
+    public enum Status {
+        /** 从网络加载并写入缓存 */
+        FETCHED,
+        /** 缓存有效，只载入了内存层 */
+        CACHED,
+        FAILED,
+        /** 按流量网络停止，未执行 */
+        SKIPPED
+    }
+
+    /**
+     * 单个阶段的结果
+     */
+    public static class StageResult {
+        public final String name;
+        public final Status status;
+        public final long elapsedMillis;
+
+        StageResult(String name, Status status, long elapsedMillis) {
+            this.name = name;
+            this.status = status;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    /**
+     * 一次预热的完整报告
+     */
+    public static class Report {
+        public final List<StageResult> stages;
+        public final long totalMillis;
+
+        Report(List<StageResult> stages, long totalMillis) {
+            this.stages = Collections.unmodifiableList(stages);
+            this.totalMillis = totalMillis;
+        }
+
+        public String format() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format(Locale.getDefault(), "缓存预热 共%dms", totalMillis));
+            for (StageResult result : stages) {
+                text.append(String.format(Locale.getDefault(), "\n  %s: %s %dms",
+                        result.name, result.status, result.elapsedMillis));
+            }
+            return text.toString();
+        }
+    }
+
+    private CacheWarmup() {
+    }
+
+    /**
+     * 按顺序执行各阶段并返回报告，单个阶段失败不影响后续阶段
+     */
+    public static Report run(Context context, List<? extends Stage> stages) {
+        List<StageResult> results = new ArrayList<>(stages.size());
+        long start = System.currentTimeMillis();
+        boolean stopped = false;
+
+        for (Stage stage : stages) {
+            if (!stopped && !NetworkUtils.isWifiConnected(context)) {
+                Log.d(TAG, "非WiFi网络，停止预热");
+                stopped = true;
+            }
+            if (stopped) {
+                results.add(new StageResult(stage.name(), Status.SKIPPED, 0));
+                continue;
+            }
+
+            long stageStart = System.currentTimeMillis();
+            Status status;
+            try {
+                status = stage.warm() ? Status.FETCHED : Status.CACHED;
+            } catch (Exception e) {
+                Log.w(TAG, "预热阶段失败: " + stage.name() + ", " + e.getMessage());
+                status = Status.FAILED;
+            }
+            long elapsed = System.currentTimeMillis() - stageStart;
+            results.add(new StageResult(stage.name(), status, elapsed));
+            Log.d(TAG, "预热阶段 " + stage.name() + ": " + status + " " + elapsed + "ms");
+        }
+
+        return new Report(results, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,588 @@
+package com.example.aitestbank.supabase.cache;
+
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.aitestbank.utils.AppExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 磁盘缓存存储 - 每个条目一个文件，另有一个小索引文件
+ *
+ * 索引只记录键、过期时间、写入时间、大小和编码方式，首次访问时加载；条目内容在读取时才从文件加载。
+ * 较大的条目压缩后保存（见CacheCompression），编码方式写在条目文件的第一个字节，读取时解压。
+ * 写文件和索引都通过AtomicFile完成，中途崩溃不会留下半个文件。
+ * 写入在写入通道上串行执行，尚未落盘的值保存在内存中，调用方写完立即读取也能读到。
+ * 过期的条目不会在读取时删除（可作为过期数据先显示），由removeExpired统一清理。
+ * 过期时刻另外记在一个按时间排序的最小堆里，清理时只弹出已到期的部分，不遍历整个索引
+ */
+public class DiskCacheStore {
+
+    private static final String TAG = "DiskCacheStore";
+
+    private static final String INDEX_FILE = "journal";
+    private static final String ENTRY_SUFFIX = ".entry";
+    // 2: 条目文件带编码字节，索引增加存储大小和编码方式；旧版本的索引和文件直接丢弃
+    private static final int INDEX_VERSION = 2;
+    // 堆中失效节点超过有效条目这么多时重建
+    private static final int EXPIRY_QUEUE_SLACK = 64;
+
+    private final File directory;
+    private final Function<File, JournalFile> fileFactory;
+    private final JournalFile indexFile;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // 已提交但还未写入文件的内容
+    private final Map<String, byte[]> pendingWrites = new ConcurrentHashMap<>();
+    private final AtomicBoolean indexSaveScheduled = new AtomicBoolean();
+    // 按过期时刻排序；条目被覆盖或删除时不从堆里找出旧节点，弹出时再按索引校验（惰性删除）
+    private final PriorityQueue<ExpiryNode> expiryQueue = new PriorityQueue<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final Object loadLock = new Object();
+    // 所有存储目录，清理缓存目录时跳过，由各存储自己删除
+    private static final Set<File> STORE_DIRECTORIES = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile boolean loaded;
+
+    public DiskCacheStore(File directory) {
+        this(directory, AtomicJournalFile::new);
+    }
+
+    /**
+     * 指定文件读写方式，单元测试中注入普通文件实现
+     */
+    DiskCacheStore(File directory, Function<File, JournalFile> fileFactory) {
+        this.directory = directory;
+        this.fileFactory = fileFactory;
+        this.indexFile = fileFactory.apply(new File(directory, INDEX_FILE));
+        STORE_DIRECTORIES.add(directory.getAbsoluteFile());
+    }
+
+    /**
+     * 目录是否由某个DiskCacheStore管理（不能直接删文件，否则索引与文件不一致）
+     */
+    public static boolean isStoreDirectory(File directory) {
+        return STORE_DIRECTORIES.contains(directory.getAbsoluteFile());
+    }
+
+    /**
+     * 读取字符串条目，不存在或已过期返回null
+     */
+    public String get(String key) {
+        return get(key, false);
+    }
+
+    /**
+     * 读取字符串条目，allowExpired为true时已过期的条目也返回
+     */
+    public String get(String key, boolean allowExpired) {
+        byte[] bytes = getBytes(key, allowExpired);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * 写入字符串条目
+     *
+     * @param expireTime 过期时刻（毫秒），0表示不过期
+     */
+    public void put(String key, String value, long expireTime) {
+        putBytes(key, value.getBytes(StandardCharsets.UTF_8), expireTime);
+    }
+
+    /**
+     * 读取条目原始内容，不存在或已过期返回null
+     */
+    public byte[] getBytes(String key) {
+        return getBytes(key, false);
+    }
+
+    public byte[] getBytes(String key, boolean allowExpired) {
+        ensureLoaded();
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!allowExpired && entry.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+
+        byte[] pending = pendingWrites.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        try {
+            return CacheCompression.decode(fileFactory.apply(entryFile(key)).readFully(), entry.sizeBytes);
+        } catch (FileNotFoundException e) {
+            // 索引已保存但条目文件未写成（写入过程中进程被杀）
+            removeEntry(key, entry);
+            return null;
+        } catch (IOException e) {
+            Log.e(TAG, "读取缓存文件失败: " + key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入条目原始内容，超过阈值时压缩后保存（在调用线程上压缩）
+     */
+    public void putBytes(String key, byte[] value, long expireTime) {
+        ensureLoaded();
+        byte[] stored = CacheCompression.encode(value);
+        putIndex(key, new Entry(expireTime, System.currentTimeMillis(), value.length,
+                stored.length, CacheCompression.codecOf(stored)));
+        pendingWrites.put(key, value);
+
+        AppExecutors.getInstance().writer().execute(() -> {
+            writeEntryFile(key, stored);
+            // 期间又有新值提交时保留新值
+            pendingWrites.remove(key, value);
+        });
+        scheduleIndexSave();
+    }
+
+    /**
+     * 修改条目的过期时刻，只改索引不重写条目文件
+     */
+    public void setExpireTime(String key, long expireTime) {
+        ensureLoaded();
+        Entry entry = index.get(key);
+        if (entry != null && index.replace(key, entry, entry.withExpireTime(expireTime))) {
+            trackExpiry(key, expireTime);
+            scheduleIndexSave();
+        }
+    }
+
+    /**
+     * 条目元数据，不存在返回null（不检查过期）
+     */
+    public Entry getEntry(String key) {
+        ensureLoaded();
+        return index.get(key);
+    }
+
+    /**
+     * 所有条目的元数据快照
+     */
+    public Map<String, Entry> entries() {
+        ensureLoaded();
+        return Collections.unmodifiableMap(new HashMap<>(index));
+    }
+
+    /**
+     * 所有条目的总字节数（未压缩，增量维护，不遍历索引）
+     */
+    public long totalBytes() {
+        ensureLoaded();
+        return totalBytes.get();
+    }
+
+    /**
+     * 所有条目文件实际占用的字节数（压缩后）
+     */
+    public long storedBytes() {
+        ensureLoaded();
+        return storedBytes.get();
+    }
+
+    public void remove(String key) {
+        ensureLoaded();
+        Entry entry = index.get(key);
+        if (entry != null) {
+            removeEntry(key, entry);
+        }
+    }
+
+    /**
+     * 删除过期超过retentionMillis的条目，返回被删除的键
+     * 只弹出堆顶已到期的节点，代价与到期条目数成正比
+     */
+    public List<String> removeExpired(long retentionMillis) {
+        ensureLoaded();
+        long deadline = System.currentTimeMillis() - retentionMillis;
+        List<ExpiryNode> due = new ArrayList<>();
+        synchronized (expiryQueue) {
+            while (!expiryQueue.isEmpty() && expiryQueue.peek().expireTime <= deadline) {
+                due.add(expiryQueue.poll());
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (ExpiryNode node : due) {
+            // 节点之后条目可能被重新写入或改了过期时刻，这种节点直接丢弃
+            Entry entry = index.get(node.key);
+            if (entry != null && entry.expireTime == node.expireTime && removeEntry(node.key, entry)) {
+                removed.add(node.key);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 删除键满足条件的条目，返回被删除的键
+     * 需要遍历索引，用于命名空间失效后的回收，应在写入通道上调用
+     */
+    public List<String> removeIf(Predicate<String> keyFilter) {
+        ensureLoaded();
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            if (keyFilter.test(entry.getKey()) && removeEntry(entry.getKey(), entry.getValue())) {
+                removed.add(entry.getKey());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 最早的过期时刻，没有会过期的条目时返回Long.MAX_VALUE
+     * 堆顶可能是已失效的节点，所以只能作为“可能有条目到期”的提示
+     */
+    public long nextExpireTime() {
+        ensureLoaded();
+        synchronized (expiryQueue) {
+            ExpiryNode head = expiryQueue.peek();
+            return head != null ? head.expireTime : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 删除全部条目
+     * 文件删除和索引保存在同一个写入任务里先后执行：之前排队或正在执行的索引保存可能带着清空前的条目，
+     * 这里总会在其后用当前索引重写一次；清空后新写入的条目不在删除之列
+     */
+    public void clear() {
+        ensureLoaded();
+        index.clear();
+        totalBytes.set(0);
+        storedBytes.set(0);
+        synchronized (expiryQueue) {
+            expiryQueue.clear();
+        }
+        pendingWrites.clear();
+        AppExecutors.getInstance().writer().execute(() -> {
+            deleteOrphanFiles();
+            saveIndex();
+        });
+    }
+
+    /**
+     * 首次访问时加载索引，索引缺失或损坏时视为空缓存
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            if (!directory.exists() && !directory.mkdirs()) {
+                Log.w(TAG, "无法创建缓存目录: " + directory);
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(indexFile.openRead()))) {
+                if (in.readInt() == INDEX_VERSION) {
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        String key = in.readUTF();
+                        putIndex(key, new Entry(in.readLong(), in.readLong(), in.readInt(), in.readInt(), in.readByte()));
+                    }
+                }
+            } catch (FileNotFoundException e) {
+                // 首次使用
+            } catch (IOException e) {
+                Log.w(TAG, "缓存索引损坏，重建: " + directory.getName());
+                index.clear();
+                totalBytes.set(0);
+                storedBytes.set(0);
+                synchronized (expiryQueue) {
+                    expiryQueue.clear();
+                }
+            }
+            loaded = true;
+            Log.d(TAG, "缓存索引已加载: " + directory.getName() + ", " + index.size() + "条");
+        }
+        AppExecutors.getInstance().writer().execute(this::deleteOrphanFiles);
+    }
+
+    private void putIndex(String key, Entry entry) {
+        Entry previous = index.put(key, entry);
+        totalBytes.addAndGet(entry.sizeBytes - (previous != null ? previous.sizeBytes : 0));
+        storedBytes.addAndGet(entry.storedBytes - (previous != null ? previous.storedBytes : 0));
+        trackExpiry(key, entry.expireTime);
+    }
+
+    /**
+     * 条目仍是entry时才删除（避免删掉并发写入的新值），返回是否删除
+     */
+    private boolean removeEntry(String key, Entry entry) {
+        if (!index.remove(key, entry)) {
+            return false;
+        }
+        totalBytes.addAndGet(-entry.sizeBytes);
+        storedBytes.addAndGet(-entry.storedBytes);
+        pendingWrites.remove(key);
+        File file = entryFile(key);
+        AppExecutors.getInstance().writer().execute(() -> {
+            // 删除排队期间又写入了新值时保留文件
+            if (!index.containsKey(key)) {
+                fileFactory.apply(file).delete();
+            }
+        });
+        scheduleIndexSave();
+        return true;
+    }
+
+    private void trackExpiry(String key, long expireTime) {
+        if (expireTime <= 0) {
+            return;
+        }
+        synchronized (expiryQueue) {
+            expiryQueue.add(new ExpiryNode(key, expireTime));
+            if (expiryQueue.size() > index.size() * 2 + EXPIRY_QUEUE_SLACK) {
+                rebuildExpiryQueue();
+            }
+        }
+    }
+
+    /**
+     * 覆盖写入多了以后堆里失效节点会累积，按当前索引重建
+     */
+    private void rebuildExpiryQueue() {
+        expiryQueue.clear();
+        for (Map.Entry<String, Entry> entry : index.entrySet()) {
+            if (entry.getValue().expireTime > 0) {
+                expiryQueue.add(new ExpiryNode(entry.getKey(), entry.getValue().expireTime));
+            }
+        }
+    }
+
+    /**
+     * 合并短时间内的多次修改，只重写一次索引
+     */
+    private void scheduleIndexSave() {
+        if (indexSaveScheduled.compareAndSet(false, true)) {
+            AppExecutors.getInstance().writer().execute(() -> {
+                indexSaveScheduled.set(false);
+                saveIndex();
+            });
+        }
+    }
+
+    private void saveIndex() {
+        Map<String, Entry> snapshot = new HashMap<>(index);
+        FileOutputStream out = null;
+        try {
+            out = indexFile.startWrite();
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(INDEX_VERSION);
+            data.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> entry : snapshot.entrySet()) {
+                data.writeUTF(entry.getKey());
+                data.writeLong(entry.getValue().expireTime);
+                data.writeLong(entry.getValue().writtenAt);
+                data.writeInt(entry.getValue().sizeBytes);
+                data.writeInt(entry.getValue().storedBytes);
+                data.writeByte(entry.getValue().codec);
+            }
+            data.flush();
+            indexFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "保存缓存索引失败", e);
+            if (out != null) {
+                indexFile.failWrite(out);
+            }
+        }
+    }
+
+    private void writeEntryFile(String key, byte[] stored) {
+        if (!index.containsKey(key)) {
+            // 写入前已被删除
+            return;
+        }
+        JournalFile file = fileFactory.apply(entryFile(key));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(stored);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "写入缓存文件失败: " + key, e);
+            if (out != null) {
+                file.failWrite(out);
+            }
+            remove(key);
+        }
+    }
+
+    /**
+     * 删除索引中没有记录的条目文件（写入后、保存索引前进程被杀时留下的，以及clear之前的条目）
+     */
+    private void deleteOrphanFiles() {
+        Set<String> known = new HashSet<>();
+        for (String key : index.keySet()) {
+            known.add(fileNameOf(key));
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            int suffix = name.indexOf(ENTRY_SUFFIX);
+            if (suffix > 0 && !known.contains(name.substring(0, suffix + ENTRY_SUFFIX.length()))) {
+                file.delete();
+            }
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, fileNameOf(key));
+    }
+
+    /**
+     * 键可能含有用户ID、斜杠等字符，文件名统一使用键的SHA-1
+     */
+    private static String fileNameOf(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + ENTRY_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append(ENTRY_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 条目文件和索引文件的读写接口，写入要么完整替换要么保持原样
+     */
+    interface JournalFile {
+        FileInputStream openRead() throws FileNotFoundException;
+
+        /** 文件不存在时抛出FileNotFoundException */
+        byte[] readFully() throws IOException;
+
+        FileOutputStream startWrite() throws IOException;
+
+        void finishWrite(FileOutputStream out);
+
+        void failWrite(FileOutputStream out);
+
+        void delete();
+    }
+
+    /**
+     * 基于AtomicFile的实现
+     */
+    private static class AtomicJournalFile implements JournalFile {
+        private final AtomicFile file;
+
+        AtomicJournalFile(File file) {
+            this.file = new AtomicFile(file);
+        }
+
+        @Override
+        public FileInputStream openRead() throws FileNotFoundException {
+            return file.openRead();
+        }
+
+        @Override
+        public byte[] readFully() throws IOException {
+            return file.readFully();
+        }
+
+        @Override
+        public FileOutputStream startWrite() throws IOException {
+            return file.startWrite();
+        }
+
+        @Override
+        public void finishWrite(FileOutputStream out) {
+            file.finishWrite(out);
+        }
+
+        @Override
+        public void failWrite(FileOutputStream out) {
+            file.failWrite(out);
+        }
+
+        @Override
+        public void delete() {
+            file.delete();
+        }
+    }
+
+    private static class ExpiryNode implements Comparable<ExpiryNode> {
+        final String key;
+        final long expireTime;
+
+        ExpiryNode(String key, long expireTime) {
+            this.key = key;
+            this.expireTime = expireTime;
+        }
+
+        @Override
+        public int compareTo(ExpiryNode other) {
+            return Long.compare(expireTime, other.expireTime);
+        }
+    }
+
+    /**
+     * 索引中的条目元数据
+     */
+    public static class Entry {
+        /** 过期时刻，0表示不过期 */
+        public final long expireTime;
+        /** 写入时刻 */
+        public final long writtenAt;
+        /** 原始大小 */
+        public final int sizeBytes;
+        /** 文件大小（压缩后，含编码字节） */
+        public final int storedBytes;
+        /** 编码方式，见CacheCompression.CODEC_* */
+        public final byte codec;
+
+        Entry(long expireTime, long writtenAt, int sizeBytes, int storedBytes, byte codec) {
+            this.expireTime = expireTime;
+            this.writtenAt = writtenAt;
+            this.sizeBytes = sizeBytes;
+            this.storedBytes = storedBytes;
+            this.codec = codec;
+        }
+
+        Entry withExpireTime(long newExpireTime) {
+            return new Entry(newExpireTime, writtenAt, sizeBytes, storedBytes, codec);
+        }
+
+        public boolean isExpired(long now) {
+            return expireTime > 0 && expireTime <= now;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.aitestbank.supabase.cache;
+
+/**
+ * 缓存读取策略
+ */
+public enum ReadPolicy {
+    /** 只读缓存（包括已过期的数据），不发起网络请求 */
+    CACHE_ONLY,
+    /** 只走网络，结果写回缓存，用于下拉刷新 */
+    NETWORK_ONLY,
+    /** 先返回缓存，无论是否过期都再请求网络并推送新值 */
+    CACHE_THEN_NETWORK,
+    /** 先返回缓存，只有缓存过期或不存在时才后台请求网络 */
+    STALE_WHILE_REVALIDATE
+}
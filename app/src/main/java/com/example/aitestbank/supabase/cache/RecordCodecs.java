@@ -0,0 +1,228 @@
+package com.example.aitestbank.supabase.cache;
+
+import com.example.aitestbank.model.Question;
+import com.example.aitestbank.model.SupabaseWrongQuestion;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 常用模型的二进制记录编码
+ * 字段按固定顺序写入，可空字段带一个存在标记；增删字段时必须递增version
+ */
+public final class RecordCodecs {
+
+    private RecordCodecs() {
+    }
+
+    /**
+     * Question
+     */
+    public static final BinaryRecordList.RecordCodec<Question> QUESTION = new BinaryRecordList.RecordCodec<Question>() {
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(DataOutput out, Question q) throws IOException {
+            writeString(out, q.getId());
+            writeString(out, q.getTitle());
+            writeStringList(out, q.getOptions());
+            writeInteger(out, q.getCorrectAnswer());
+            writeString(out, q.getAnalysis());
+            writeString(out, q.getAiAnalysis());
+            writeStringList(out, q.getKnowledgePoints());
+            writeInteger(out, q.getDifficulty());
+            writeString(out, q.getCategory());
+            writeString(out, q.getSubject());
+            writeString(out, q.getSource());
+            writeString(out, q.getType());
+            writeStringList(out, q.getTags());
+            writeLong(out, q.getViewCount());
+            writeDouble(out, q.getCorrectRate());
+            writeString(out, q.getCreatedAt());
+            writeString(out, q.getUpdatedAt());
+        }
+
+        @Override
+        public Question read(DataInput in) throws IOException {
+            Question q = new Question();
+            q.setId(readString(in));
+            q.setTitle(readString(in));
+            q.setOptions(readStringList(in));
+            q.setCorrectAnswer(readInteger(in));
+            q.setAnalysis(readString(in));
+            q.setAiAnalysis(readString(in));
+            q.setKnowledgePoints(readStringList(in));
+            q.setDifficulty(readInteger(in));
+            q.setCategory(readString(in));
+            q.setSubject(readString(in));
+            q.setSource(readString(in));
+            q.setType(readString(in));
+            q.setTags(readStringList(in));
+            q.setViewCount(readLong(in));
+            q.setCorrectRate(readDouble(in));
+            q.setCreatedAt(readString(in));
+            q.setUpdatedAt(readString(in));
+            return q;
+        }
+    };
+
+    /**
+     * SupabaseWrongQuestion
+     */
+    public static final BinaryRecordList.RecordCodec<SupabaseWrongQuestion> WRONG_QUESTION = new BinaryRecordList.RecordCodec<SupabaseWrongQuestion>() {
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(DataOutput out, SupabaseWrongQuestion w) throws IOException {
+            writeString(out, w.getId());
+            writeString(out, w.getUserId());
+            writeString(out, w.getQuestionId());
+            writeString(out, w.getQuestionTitle());
+            writeStringList(out, w.getOptions());
+            writeInteger(out, w.getCorrectAnswer());
+            writeInteger(out, w.getUserAnswer());
+            writeString(out, w.getAnalysis());
+            writeString(out, w.getAiAnalysis());
+            writeStringList(out, w.getKnowledgePoints());
+            writeInteger(out, w.getDifficulty());
+            writeString(out, w.getCategory());
+            writeString(out, w.getSubject());
+            writeString(out, w.getSource());
+            writeString(out, w.getType());
+            writeString(out, w.getWrongReason());
+            writeInteger(out, w.getReviewCount());
+            writeInteger(out, w.getMasteryLevel());
+            writeBoolean(out, w.getMastered());
+            writeString(out, w.getNextReviewDate());
+            writeString(out, w.getLastReviewDate());
+            writeString(out, w.getCreatedAt());
+            writeString(out, w.getUpdatedAt());
+        }
+
+        @Override
+        public SupabaseWrongQuestion read(DataInput in) throws IOException {
+            SupabaseWrongQuestion w = new SupabaseWrongQuestion();
+            w.setId(readString(in));
+            w.setUserId(readString(in));
+            w.setQuestionId(readString(in));
+            w.setQuestionTitle(readString(in));
+            w.setOptions(readStringList(in));
+            w.setCorrectAnswer(readInteger(in));
+            w.setUserAnswer(readInteger(in));
+            w.setAnalysis(readString(in));
+            w.setAiAnalysis(readString(in));
+            w.setKnowledgePoints(readStringList(in));
+            w.setDifficulty(readInteger(in));
+            w.setCategory(readString(in));
+            w.setSubject(readString(in));
+            w.setSource(readString(in));
+            w.setType(readString(in));
+            w.setWrongReason(readString(in));
+            w.setReviewCount(readInteger(in));
+            w.setMasteryLevel(readInteger(in));
+            w.setMastered(readBoolean(in));
+            w.setNextReviewDate(readString(in));
+            w.setLastReviewDate(readString(in));
+            w.setCreatedAt(readString(in));
+            w.setUpdatedAt(readString(in));
+            return w;
+        }
+    };
+
+    // 字符串以UTF-8字节长度为前缀，-1表示null（不用writeUTF，避免64KB上限）
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeStringList(DataOutput out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStringList(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    static void writeInteger(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    static Integer readInteger(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    static void writeDouble(DataOutput out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    static Double readDouble(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    // 布尔值：0=null，1=false，2=true
+    static void writeBoolean(DataOutput out, Boolean value) throws IOException {
+        out.writeByte(value == null ? 0 : (value ? 2 : 1));
+    }
+
+    static Boolean readBoolean(DataInput in) throws IOException {
+        byte value = in.readByte();
+        return value == 0 ? null : value == 2;
+    }
+}
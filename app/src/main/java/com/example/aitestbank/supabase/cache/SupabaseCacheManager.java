@@ -1,29 +1,89 @@
 package com.example.aitestbank.supabase.cache;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.os.Looper;
 import android.util.Log;
-import java.util.HashMap;
-import java.util.Map;
+import android.util.LruCache;
+import java.io.File;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import com.example.aitestbank.utils.AppExecutors;
+import com.google.gson.Gson;
 
 /**
  * Supabase缓存管理器
  * 提供智能的缓存策略，支持过期检查和内存缓存
+ * 内存层按字节计重的LRU，预算随设备堆大小调整，系统内存紧张时主动收缩
+ * 持久层为每条一个文件的磁盘存储，启动时只加载索引，条目在读取时才加载
+ * 过期的数据会保留一段时间，read()可按读取策略先显示旧数据再后台刷新
  */
 public class SupabaseCacheManager {
     private static final String TAG = "SupabaseCacheManager";
-    private static final String PREFS_NAME = "supabase_cache";
-    private static final String CACHE_PREFIX = "cache_";
-    private static final String TIMESTAMP_PREFIX = "timestamp_";
+    private static final String STORE_DIR = "supabase_cache";
+    // 旧版本使用的SharedPreferences文件，首次启动新版本时删除
+    private static final String LEGACY_PREFS_NAME = "supabase_cache";
     private static final long DEFAULT_CACHE_DURATION = 5 * 60 * 1000; // 5分钟
+    // 过期数据保留期，期间仍可作为旧数据先显示
+    private static final long STALE_RETENTION = 7L * 24 * 60 * 60 * 1000;
+    // 两次顺带清理之间的最短间隔
+    private static final long CLEANUP_INTERVAL = 60 * 1000;
+    
+    // 内存层预算：应用堆上限的1/16，低内存设备再减半
+    private static final int MEMORY_BUDGET_DIVISOR = 16;
+    private static final int MIN_MEMORY_BUDGET = 512 * 1024;
+    private static final int MAX_MEMORY_BUDGET = 16 * 1024 * 1024;
+    // 超过预算1/4的单条数据只落盘不进内存层，避免一条大列表把其他条目全部挤出
+    private static final int MAX_ENTRY_FRACTION = 4;
     
     private static SupabaseCacheManager instance;
-    private final SharedPreferences preferences;
-    private final Map<String, CacheEntry> memoryCache;
+    private final DiskCacheStore diskStore;
+    private final LruCache<String, CacheEntry> memoryCache;
+    private final Gson gson = new Gson();
+    private final CacheMetrics metrics = CacheMetrics.getInstance();
+    private final CacheNamespaces namespaces;
+    private final AtomicBoolean cleanupScheduled = new AtomicBoolean();
+    private volatile long lastCleanupTime;
+    private volatile CacheWarmup.Report lastWarmupReport;
     
     private SupabaseCacheManager(Context context) {
-        preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        memoryCache = new HashMap<>();
+        diskStore = new DiskCacheStore(new File(context.getCacheDir(), STORE_DIR));
+        AppExecutors.getInstance().writer().execute(() -> context.deleteSharedPreferences(LEGACY_PREFS_NAME));
+        memoryCache = new LruCache<String, CacheEntry>(defaultMemoryBudget(context)) {
+            @Override
+            protected int sizeOf(String key, CacheEntry entry) {
+                return entry.sizeBytes + key.length() * 2;
+            }
+            
+            @Override
+            protected void entryRemoved(boolean evicted, String key, CacheEntry oldValue, CacheEntry newValue) {
+                if (evicted) {
+                    metrics.recordEviction(key, oldValue.sizeBytes);
+                }
+            }
+        };
+        Log.d(TAG, "内存缓存预算: " + memoryCache.maxSize() / 1024 + "KB");
+        namespaces = CacheNamespaces.getInstance(context);
+        namespaces.addReclaimer(this::reclaimObsoleteEntries);
+    }
+    
+    /**
+     * 按设备堆上限计算内存层预算
+     */
+    private static int defaultMemoryBudget(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return MIN_MEMORY_BUDGET;
+        }
+        long budget = (long) activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_BUDGET_DIVISOR;
+        if (activityManager.isLowRamDevice()) {
+            budget /= 2;
+        }
+        return (int) Math.max(MIN_MEMORY_BUDGET, Math.min(MAX_MEMORY_BUDGET, budget));
     }
     
     public static synchronized SupabaseCacheManager getInstance(Context context) {
@@ -49,14 +109,12 @@ public class SupabaseCacheManager {
             long expireTime = currentTime + durationMillis;
             
             // 存储到内存缓存
-            CacheEntry entry = new CacheEntry(data, expireTime);
-            memoryCache.put(key, entry);
+            putMemory(key, new CacheEntry(data, expireTime));
             
-            // 存储到SharedPreferences
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putString(CACHE_PREFIX + key, data);
-            editor.putLong(TIMESTAMP_PREFIX + key, expireTime);
-            editor.apply();
+            // 存储到磁盘（只写这一条的文件）
+            diskStore.put(key, data, expireTime);
+            metrics.recordWrite(key, data.length());
+            scheduleCleanupIfDue();
             
             Log.d(TAG, "缓存数据: " + key + ", 过期时间: " + new java.util.Date(expireTime));
             
@@ -74,24 +132,21 @@ public class SupabaseCacheManager {
             CacheEntry memoryEntry = memoryCache.get(key);
             if (memoryEntry != null && !memoryEntry.isExpired()) {
                 Log.d(TAG, "从内存缓存获取数据: " + key);
+                metrics.recordMemoryHit(key);
                 return memoryEntry.data;
             }
             
-            // 检查持久化缓存
-            String data = preferences.getString(CACHE_PREFIX + key, null);
-            long expireTime = preferences.getLong(TIMESTAMP_PREFIX + key, 0);
-            
-            if (data != null && expireTime > System.currentTimeMillis()) {
-                // 重新加载到内存缓存
-                CacheEntry entry = new CacheEntry(data, expireTime);
-                memoryCache.put(key, entry);
+            // 检查持久化缓存（过期的条目保留到cleanupExpiredCache清理）
+            CacheEntry diskEntry = memoryEntry == null ? loadFromDisk(key) : null;
+            if (diskEntry != null && !diskEntry.isExpired()) {
                 Log.d(TAG, "从持久化缓存获取数据: " + key);
-                return data;
+                metrics.recordDiskHit(key, diskEntry.data.length());
+                return diskEntry.data;
             }
             
             // 数据过期或不存在
             Log.d(TAG, "缓存数据已过期或不存在: " + key);
-            removeData(key);
+            metrics.recordMiss(key);
             return null;
             
         } catch (Exception e) {
@@ -100,6 +155,147 @@ public class SupabaseCacheManager {
         }
     }
     
+    /**
+     * 按读取策略读取，数据以JSON保存，回调在主线程执行
+     * 在主线程调用且内存层命中时同步回调缓存数据，当前帧即可显示；
+     * 否则在后台读取磁盘后回调。需要网络时随后再推送一次网络数据（fromCache=false）
+     *
+     * @param type 数据类型，用于Gson反序列化
+     * @param ttlMillis 网络数据写回缓存时的有效期
+     */
+    public <T> void read(String key, ReadPolicy policy, long ttlMillis, Type type,
+                         Fetcher<T> fetcher, ReadCallback<T> callback) {
+        Executor mainThread = AppExecutors.getInstance().mainThread();
+        
+        if (policy != ReadPolicy.NETWORK_ONLY && Looper.myLooper() == Looper.getMainLooper()) {
+            CacheEntry entry = memoryCache.get(key);
+            T cached = entry != null ? decode(key, entry.data, type) : null;
+            if (cached != null) {
+                recordCacheServe(key, entry, true);
+                callback.onData(cached, true);
+                if (needsNetwork(policy, entry.isExpired())) {
+                    AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI)
+                            .execute(() -> fetchAndStore(key, ttlMillis, fetcher, callback, mainThread));
+                }
+                return;
+            }
+        }
+        
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
+            if (policy != ReadPolicy.NETWORK_ONLY) {
+                CacheEntry entry = memoryCache.get(key);
+                boolean fromMemory = entry != null;
+                if (entry == null) {
+                    entry = loadFromDisk(key);
+                }
+                T cached = entry != null ? decode(key, entry.data, type) : null;
+                if (cached != null) {
+                    recordCacheServe(key, entry, fromMemory);
+                    mainThread.execute(() -> callback.onData(cached, true));
+                    if (!needsNetwork(policy, entry.isExpired())) {
+                        return;
+                    }
+                } else {
+                    metrics.recordMiss(key);
+                    if (policy == ReadPolicy.CACHE_ONLY) {
+                        mainThread.execute(() -> callback.onError(new NoSuchElementException("缓存中没有数据: " + key)));
+                        return;
+                    }
+                }
+            }
+            fetchAndStore(key, ttlMillis, fetcher, callback, mainThread);
+        });
+    }
+    
+    /**
+     * 让缓存立即过期，但保留数据用于先显示（相关表有写入时调用）
+     */
+    public void markStale(String key) {
+        long expired = System.currentTimeMillis() - 1;
+        CacheEntry entry = memoryCache.get(key);
+        if (entry != null) {
+            memoryCache.put(key, new CacheEntry(entry.data, expired));
+        }
+        diskStore.setExpireTime(key, expired);
+    }
+    
+    /**
+     * 让某一前缀下的所有缓存立即过期
+     */
+    public void markStaleByPrefix(String prefix) {
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                markStale(key);
+            }
+        }
+        for (String key : diskStore.entries().keySet()) {
+            if (key.startsWith(prefix)) {
+                diskStore.setExpireTime(key, System.currentTimeMillis() - 1);
+            }
+        }
+    }
+    
+    private static boolean needsNetwork(ReadPolicy policy, boolean expired) {
+        switch (policy) {
+            case CACHE_ONLY:
+                return false;
+            case STALE_WHILE_REVALIDATE:
+                return expired;
+            default:
+                return true;
+        }
+    }
+    
+    private void recordCacheServe(String key, CacheEntry entry, boolean fromMemory) {
+        if (entry.isExpired()) {
+            metrics.recordStaleServe(key);
+        } else if (fromMemory) {
+            metrics.recordMemoryHit(key);
+        } else {
+            metrics.recordDiskHit(key, entry.data.length());
+        }
+    }
+    
+    private <T> void fetchAndStore(String key, long ttlMillis, Fetcher<T> fetcher,
+                                   ReadCallback<T> callback, Executor mainThread) {
+        long start = System.currentTimeMillis();
+        try {
+            T value = fetcher.fetch();
+            metrics.recordLoad(key, System.currentTimeMillis() - start, true);
+            if (value != null) {
+                putData(key, gson.toJson(value), ttlMillis);
+            }
+            mainThread.execute(() -> callback.onData(value, false));
+        } catch (Exception e) {
+            metrics.recordLoad(key, System.currentTimeMillis() - start, false);
+            Log.w(TAG, "刷新缓存失败: " + key + ", " + e.getMessage());
+            mainThread.execute(() -> callback.onError(e));
+        }
+    }
+    
+    private <T> T decode(String key, String data, Type type) {
+        try {
+            return gson.fromJson(data, type);
+        } catch (Exception e) {
+            Log.w(TAG, "缓存数据无法解析，忽略: " + key);
+            return null;
+        }
+    }
+    
+    /**
+     * 从磁盘读取条目（包括已过期的），并放入内存层
+     */
+    private CacheEntry loadFromDisk(String key) {
+        DiskCacheStore.Entry diskEntry = diskStore.getEntry(key);
+        String data = diskEntry != null ? diskStore.get(key, true) : null;
+        if (data == null) {
+            return null;
+        }
+        CacheEntry entry = new CacheEntry(data, diskEntry.expireTime);
+        putMemory(key, entry);
+        return entry;
+    }
+    
     /**
      * 检查缓存是否存在且未过期
      */
@@ -113,11 +309,7 @@ public class SupabaseCacheManager {
     public void removeData(String key) {
         try {
             memoryCache.remove(key);
-            
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.remove(CACHE_PREFIX + key);
-            editor.remove(TIMESTAMP_PREFIX + key);
-            editor.apply();
+            diskStore.remove(key);
             
             Log.d(TAG, "移除缓存数据: " + key);
             
@@ -131,11 +323,8 @@ public class SupabaseCacheManager {
      */
     public void clearAllCache() {
         try {
-            memoryCache.clear();
-            
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.clear();
-            editor.apply();
+            memoryCache.evictAll();
+            diskStore.clear();
             
             Log.d(TAG, "清空所有缓存");
             
@@ -145,40 +334,20 @@ public class SupabaseCacheManager {
     }
     
     /**
-     * 清理过期的缓存数据
+     * 清理过期的缓存数据（过期不久的数据保留用于先显示）
+     * 只处理到期的条目，不遍历全部缓存；会删除文件，应在写入通道上调用
      */
     public void cleanupExpiredCache() {
         try {
-            long currentTime = System.currentTimeMillis();
-            SharedPreferences.Editor editor = preferences.edit();
-            boolean hasChanges = false;
+            lastCleanupTime = System.currentTimeMillis();
             
-            // 清理内存缓存
-            memoryCache.entrySet().removeIf(entry -> {
-                if (entry.getValue().isExpired()) {
-                    Log.d(TAG, "清理过期内存缓存: " + entry.getKey());
-                    return true;
-                }
-                return false;
-            });
-            
-            // 清理持久化缓存
-            Map<String, ?> allEntries = preferences.getAll();
-            for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
-                if (entry.getKey().startsWith(TIMESTAMP_PREFIX)) {
-                    long expireTime = (Long) entry.getValue();
-                    if (expireTime <= currentTime) {
-                        String cacheKey = entry.getKey().substring(TIMESTAMP_PREFIX.length());
-                        editor.remove(CACHE_PREFIX + cacheKey);
-                        editor.remove(TIMESTAMP_PREFIX + cacheKey);
-                        hasChanges = true;
-                        Log.d(TAG, "清理过期持久化缓存: " + cacheKey);
-                    }
-                }
+            // 内存层的条目都同时写入了磁盘，按磁盘删掉的键一并移除
+            List<String> removed = diskStore.removeExpired(STALE_RETENTION);
+            for (String key : removed) {
+                memoryCache.remove(key);
             }
-            
-            if (hasChanges) {
-                editor.apply();
+            if (!removed.isEmpty()) {
+                Log.d(TAG, "清理过期缓存: " + removed.size() + "条");
             }
             
         } catch (Exception e) {
@@ -187,26 +356,49 @@ public class SupabaseCacheManager {
     }
     
     /**
-     * 获取缓存大小（KB）
+     * 删除已失效命名空间的条目（代数变化后在写入通道上执行）
      */
-    public int getCacheSize() {
+    private void reclaimObsoleteEntries() {
         try {
-            int size = 0;
-            
-            // 计算内存缓存大小
-            for (CacheEntry entry : memoryCache.values()) {
-                size += entry.data.getBytes().length;
-            }
-            
-            // 计算持久化缓存大小
-            Map<String, ?> allEntries = preferences.getAll();
-            for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
-                if (entry.getKey().startsWith(CACHE_PREFIX)) {
-                    size += ((String) entry.getValue()).getBytes().length;
+            for (String key : memoryCache.snapshot().keySet()) {
+                if (!namespaces.isCurrent(key)) {
+                    memoryCache.remove(key);
                 }
             }
-            
-            return size / 1024; // 转换为KB
+            List<String> removed = diskStore.removeIf(key -> !namespaces.isCurrent(key));
+            if (!removed.isEmpty()) {
+                Log.d(TAG, "回收失效命名空间缓存: " + removed.size() + "条");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "回收失效缓存失败", e);
+        }
+    }
+    
+    /**
+     * 有条目超过保留期时，在写入通道上顺带清理一次
+     * 只看堆顶的过期时刻，调用代价是常数
+     */
+    private void scheduleCleanupIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanupTime < CLEANUP_INTERVAL
+                || diskStore.nextExpireTime() > now - STALE_RETENTION) {
+            return;
+        }
+        if (cleanupScheduled.compareAndSet(false, true)) {
+            AppExecutors.getInstance().writer().execute(() -> {
+                cleanupScheduled.set(false);
+                cleanupExpiredCache();
+            });
+        }
+    }
+    
+    /**
+     * 获取缓存大小（KB）
+     */
+    public int getCacheSize() {
+        try {
+            // 计算持久化缓存占用的磁盘大小（压缩后；内存层是持久化数据的副本，不重复计算）
+            return (int) (diskStore.storedBytes() / 1024); // 转换为KB
             
         } catch (Exception e) {
             Log.e(TAG, "计算缓存大小失败", e);
@@ -214,63 +406,184 @@ public class SupabaseCacheManager {
         }
     }
     
+    /**
+     * 按命名空间的命中、淘汰和加载耗时指标
+     */
+    public List<CacheMetrics.NamespaceSnapshot> getMetricsSnapshot() {
+        return metrics.snapshot();
+    }
+    
+    /**
+     * 缓存统计和各命名空间指标的完整报告（调试界面使用）
+     */
+    public String getMetricsReport() {
+        CacheWarmup.Report warmup = lastWarmupReport;
+        return getCacheStatistics() + (warmup != null ? "\n\n" + warmup.format() : "")
+                + "\n\n" + metrics.formatReport();
+    }
+    
     /**
      * 获取缓存统计信息
      */
     public CacheStatistics getCacheStatistics() {
         try {
-            int memoryCount = memoryCache.size();
+            int memoryCount = memoryCache.snapshot().size();
             int persistentCount = 0;
             int expiredCount = 0;
             long currentTime = System.currentTimeMillis();
             
-            Map<String, ?> allEntries = preferences.getAll();
-            for (Map.Entry<String, ?> entry : allEntries.entrySet()) {
-                if (entry.getKey().startsWith(CACHE_PREFIX)) {
-                    persistentCount++;
-                    
-                    String timestampKey = TIMESTAMP_PREFIX + entry.getKey().substring(CACHE_PREFIX.length());
-                    Long expireTime = (Long) allEntries.get(timestampKey);
-                    if (expireTime != null && expireTime <= currentTime) {
-                        expiredCount++;
-                    }
+            for (DiskCacheStore.Entry entry : diskStore.entries().values()) {
+                persistentCount++;
+                if (entry.isExpired(currentTime)) {
+                    expiredCount++;
                 }
             }
             
-            return new CacheStatistics(memoryCount, persistentCount, expiredCount, getCacheSize());
+            return new CacheStatistics(memoryCount, persistentCount, expiredCount, getCacheSize(),
+                    (int) (diskStore.totalBytes() / 1024),
+                    memoryCache.size() / 1024, memoryCache.maxSize() / 1024, memoryCache.evictionCount());
             
         } catch (Exception e) {
             Log.e(TAG, "获取缓存统计失败", e);
-            return new CacheStatistics(0, 0, 0, 0);
+            return new CacheStatistics(0, 0, 0, 0, 0, 0, 0, 0);
         }
     }
     
     /**
-     * 预热缓存
+     * 预热缓存：在后台通道上按顺序执行各阶段，同时在写入通道上清理过期缓存
+     * 应在首帧绘制之后调用，避免与首屏请求争抢网络
+     *
+     * @param listener 完成后在主线程回调，可为null
      */
-    public void warmupCache() {
+    public void warmupCache(Context context, List<? extends CacheWarmup.Stage> stages,
+                            WarmupListener listener) {
+        Context appContext = context.getApplicationContext();
+        AppExecutors.getInstance().writer().execute(this::cleanupExpiredCache);
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.BACKGROUND).execute(() -> {
+            CacheWarmup.Report report = CacheWarmup.run(appContext, stages);
+            lastWarmupReport = report;
+            Log.d(TAG, report.format());
+            if (listener != null) {
+                AppExecutors.getInstance().mainThread().execute(() -> listener.onWarmupFinished(report));
+            }
+        });
+    }
+    
+    /**
+     * 最近一次预热的报告，尚未预热时返回null
+     */
+    public CacheWarmup.Report getLastWarmupReport() {
+        return lastWarmupReport;
+    }
+    
+    /**
+     * 预取：缓存中有未过期数据时只载入内存层，否则在当前线程同步请求网络并写入缓存
+     *
+     * @return true表示请求了网络
+     */
+    public <T> boolean prefetch(String key, long ttlMillis, Fetcher<T> fetcher) throws Exception {
+        CacheEntry entry = memoryCache.get(key);
+        if (entry == null) {
+            entry = loadFromDisk(key);
+        }
+        if (entry != null && !entry.isExpired()) {
+            return false;
+        }
+        
+        long start = System.currentTimeMillis();
+        boolean success = false;
         try {
-            // 启动一个线程来清理过期缓存
-            new Thread(() -> {
-                cleanupExpiredCache();
-                Log.d(TAG, "缓存预热完成");
-            }).start();
-            
-        } catch (Exception e) {
-            Log.e(TAG, "缓存预热失败", e);
+            T value = fetcher.fetch();
+            if (value != null) {
+                putData(key, gson.toJson(value), ttlMillis);
+            }
+            success = true;
+            return true;
+        } finally {
+            metrics.recordLoad(key, System.currentTimeMillis() - start, success);
         }
     }
     
+    /**
+     * 调整内存层预算（字节），超出部分立即按LRU淘汰
+     */
+    public void setMemoryBudget(int maxBytes) {
+        memoryCache.resize(Math.max(MIN_MEMORY_BUDGET, maxBytes));
+        Log.d(TAG, "内存缓存预算调整为: " + memoryCache.maxSize() / 1024 + "KB");
+    }
+    
+    /**
+     * 响应系统内存压力，由Application.onTrimMemory转发
+     * 内存层只是持久化数据的副本，收缩后再次读取会从磁盘重新加载
+     */
+    public void onTrimMemory(int level) {
+        int before = memoryCache.size();
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            memoryCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 4);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+        Log.d(TAG, "内存压力(level=" + level + ")，内存缓存 " + before / 1024 + "KB -> " + memoryCache.size() / 1024 + "KB");
+    }
+    
+    /**
+     * 写入内存层，过大的条目不进入内存层
+     */
+    private void putMemory(String key, CacheEntry entry) {
+        if (entry.sizeBytes > memoryCache.maxSize() / MAX_ENTRY_FRACTION) {
+            memoryCache.remove(key);
+            return;
+        }
+        memoryCache.put(key, entry);
+    }
+    
+    /**
+     * 网络数据获取，在后台线程执行
+     */
+    public interface Fetcher<T> {
+        T fetch() throws Exception;
+    }
+    
+    /**
+     * 预热完成回调
+     */
+    public interface WarmupListener {
+        void onWarmupFinished(CacheWarmup.Report report);
+    }
+    
+    /**
+     * 按策略读取的回调，在主线程执行，可能被调用两次：先缓存后网络
+     */
+    public interface ReadCallback<T> {
+        /**
+         * @param fromCache true表示缓存数据（可能已过期），false表示刚从网络获取
+         */
+        void onData(T data, boolean fromCache);
+        
+        /**
+         * 网络请求失败，或CACHE_ONLY时缓存中没有数据；已回调过缓存数据时调用方可保留当前显示
+         */
+        void onError(Exception error);
+    }
+    
     /**
      * 缓存条目类
      */
     private static class CacheEntry {
         final String data;
         final long expireTime;
+        // 估算的内存占用：UTF-16字符 + 对象头
+        final int sizeBytes;
         
         CacheEntry(String data, long expireTime) {
             this.data = data;
             this.expireTime = expireTime;
+            this.sizeBytes = data.length() * 2 + 48;
         }
         
         boolean isExpired() {
@@ -286,18 +599,28 @@ public class SupabaseCacheManager {
         public final int persistentCount;
         public final int expiredCount;
         public final int sizeKB;
+        public final int uncompressedKB;
+        public final int memoryKB;
+        public final int memoryBudgetKB;
+        public final int evictionCount;
         
-        CacheStatistics(int memoryCount, int persistentCount, int expiredCount, int sizeKB) {
+        CacheStatistics(int memoryCount, int persistentCount, int expiredCount, int sizeKB, int uncompressedKB,
+                        int memoryKB, int memoryBudgetKB, int evictionCount) {
             this.memoryCount = memoryCount;
             this.persistentCount = persistentCount;
             this.expiredCount = expiredCount;
             this.sizeKB = sizeKB;
+            this.uncompressedKB = uncompressedKB;
+            this.memoryKB = memoryKB;
+            this.memoryBudgetKB = memoryBudgetKB;
+            this.evictionCount = evictionCount;
         }
         
         @Override
         public String toString() {
-            return String.format("缓存统计 - 内存: %d, 持久化: %d, 过期: %d, 大小: %dKB", 
-                               memoryCount, persistentCount, expiredCount, sizeKB);
+            return String.format("缓存统计 - 内存: %d (%dKB/%dKB, 淘汰%d), 持久化: %d, 过期: %d, 大小: %dKB (压缩前%dKB)", 
+                               memoryCount, memoryKB, memoryBudgetKB, evictionCount, persistentCount, expiredCount,
+                               sizeKB, uncompressedKB);
         }
     }
 }
\ No newline at end of file
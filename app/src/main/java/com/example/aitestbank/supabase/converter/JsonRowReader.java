@@ -0,0 +1,211 @@
+package com.example.aitestbank.supabase.converter;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+
+/**
+ * PostgREST响应流式解码器
+ * 直接从响应体的字节流逐行解码成模型对象，不再先读成String再构造JSONArray，
+ * 内存中只保留当前正在解码的一行。回调返回false时立即停止，剩余响应不再读取
+ */
+public final class JsonRowReader {
+
+    private JsonRowReader() {
+    }
+
+    /**
+     * 单行解码器，调用时reader位于一个JSON对象之前，需完整消费该对象
+     */
+    public interface RowDecoder<T> {
+        T decode(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * 逐行回调，返回false表示不再需要后续的行
+     */
+    public interface RowCallback<T> {
+        boolean onRow(T row);
+    }
+
+    /**
+     * 逐行解码响应体，返回已回调的行数
+     * 提前终止时直接关闭响应体，连接上剩余的数据由OkHttp丢弃
+     */
+    public static <T> int readRows(ResponseBody body, RowDecoder<T> decoder, RowCallback<T> callback) throws IOException {
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            return readRows(reader, decoder, callback);
+        }
+    }
+
+    public static <T> int readRows(JsonReader reader, RowDecoder<T> decoder, RowCallback<T> callback) throws IOException {
+        JsonToken first;
+        try {
+            first = reader.peek();
+        } catch (EOFException e) {
+            // 空响应体（如 return=minimal）
+            return 0;
+        }
+
+        // Accept: application/vnd.pgrst.object+json 时返回的是单个对象
+        if (first == JsonToken.BEGIN_OBJECT) {
+            callback.onRow(decoder.decode(reader));
+            return 1;
+        }
+        if (first == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T row = decoder.decode(reader);
+            count++;
+            if (!callback.onRow(row)) {
+                return count;
+            }
+        }
+        reader.endArray();
+        return count;
+    }
+
+    /**
+     * 解码为列表
+     */
+    public static <T> List<T> readList(ResponseBody body, RowDecoder<T> decoder) throws IOException {
+        return readList(body, decoder, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 解码为列表，最多读取maxRows行
+     */
+    public static <T> List<T> readList(ResponseBody body, RowDecoder<T> decoder, int maxRows) throws IOException {
+        List<T> rows = new ArrayList<>();
+        if (maxRows <= 0) {
+            body.close();
+            return rows;
+        }
+        readRows(body, decoder, row -> {
+            if (row != null) {
+                rows.add(row);
+            }
+            return rows.size() < maxRows;
+        });
+        return rows;
+    }
+
+    /**
+     * 读取字符串字段，null返回默认值；数字、布尔值按文本返回
+     */
+    public static String nextString(JsonReader reader, String defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return defaultValue;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return defaultValue;
+    }
+
+    /**
+     * 读取整数字段，null或格式错误返回默认值
+     */
+    public static int nextInt(JsonReader reader, int defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return reader.nextInt();
+            } catch (NumberFormatException e) {
+                // nextInt失败时不会消费该值
+                reader.skipValue();
+                return defaultValue;
+            }
+        }
+        reader.skipValue();
+        return defaultValue;
+    }
+
+    /**
+     * 读取长整数字段，null或格式错误返回默认值
+     */
+    public static long nextLong(JsonReader reader, long defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NUMBER || token == JsonToken.STRING) {
+            try {
+                return reader.nextLong();
+            } catch (NumberFormatException e) {
+                reader.skipValue();
+                return defaultValue;
+            }
+        }
+        reader.skipValue();
+        return defaultValue;
+    }
+
+    /**
+     * 读取布尔字段，兼容 "true"/"false" 字符串
+     */
+    public static boolean nextBoolean(JsonReader reader, boolean defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        if (token == JsonToken.STRING) {
+            String value = reader.nextString();
+            return "true".equalsIgnoreCase(value) || (!"false".equalsIgnoreCase(value) && defaultValue);
+        }
+        reader.skipValue();
+        return defaultValue;
+    }
+
+    /**
+     * 读取字符串数组字段
+     * 兼容数组列（JSON数组）和以文本保存的JSON数组字符串，无法解析时返回null
+     */
+    public static List<String> nextStringList(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            return readStringArray(reader);
+        }
+        if (token == JsonToken.STRING) {
+            String text = reader.nextString();
+            try (JsonReader nested = new JsonReader(new StringReader(text))) {
+                if (nested.peek() == JsonToken.BEGIN_ARRAY) {
+                    return readStringArray(nested);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // 不是合法的JSON数组
+            }
+            return null;
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static List<String> readStringArray(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String value = nextString(reader, null);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+}
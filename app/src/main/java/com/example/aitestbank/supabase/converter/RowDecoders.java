@@ -0,0 +1,200 @@
+package com.example.aitestbank.supabase.converter;
+
+import com.example.aitestbank.model.Question;
+import com.example.aitestbank.model.SupabaseWrongQuestion;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.aitestbank.supabase.converter.JsonRowReader.nextBoolean;
+import static com.example.aitestbank.supabase.converter.JsonRowReader.nextInt;
+import static com.example.aitestbank.supabase.converter.JsonRowReader.nextLong;
+import static com.example.aitestbank.supabase.converter.JsonRowReader.nextString;
+import static com.example.aitestbank.supabase.converter.JsonRowReader.nextStringList;
+
+/**
+ * 常用表的行解码器
+ * 按字段名逐个读取，未知字段直接跳过，select只取部分列时未出现的字段保持默认值
+ */
+public final class RowDecoders {
+
+    private RowDecoders() {
+    }
+
+    /**
+     * questions表 -> Question
+     * 缺省值与题目页面原先的解析逻辑一致
+     */
+    public static final JsonRowReader.RowDecoder<Question> QUESTION = RowDecoders::decodeQuestion;
+
+    /**
+     * wrong_questions表 -> SupabaseWrongQuestion
+     */
+    public static final JsonRowReader.RowDecoder<SupabaseWrongQuestion> WRONG_QUESTION = RowDecoders::decodeWrongQuestion;
+
+    private static Question decodeQuestion(JsonReader reader) throws IOException {
+        Question question = new Question();
+        question.setAnalysis("暂无解析");
+        question.setCategory("未分类");
+        question.setDifficulty(3);
+        question.setType("single_choice");
+        question.setCorrectAnswer(0);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    question.setId(nextString(reader, null));
+                    break;
+                case "title":
+                    question.setTitle(nextString(reader, null));
+                    break;
+                case "options":
+                    question.setOptions(nextStringList(reader));
+                    break;
+                case "correct_answer":
+                    question.setCorrectAnswer(nextInt(reader, 0));
+                    break;
+                case "analysis":
+                    question.setAnalysis(nextString(reader, "暂无解析"));
+                    break;
+                case "ai_analysis":
+                    question.setAiAnalysis(nextString(reader, null));
+                    break;
+                case "knowledge_points":
+                    question.setKnowledgePoints(nextStringList(reader));
+                    break;
+                case "difficulty":
+                    question.setDifficulty(nextInt(reader, 3));
+                    break;
+                case "category":
+                    question.setCategory(nextString(reader, "未分类"));
+                    break;
+                case "subject":
+                    question.setSubject(nextString(reader, null));
+                    break;
+                case "source":
+                    question.setSource(nextString(reader, null));
+                    break;
+                case "type":
+                    question.setType(nextString(reader, "single_choice"));
+                    break;
+                case "tags":
+                    question.setTags(nextStringList(reader));
+                    break;
+                case "view_count":
+                    question.setViewCount(nextLong(reader, 0));
+                    break;
+                case "created_at":
+                    question.setCreatedAt(nextString(reader, null));
+                    break;
+                case "updated_at":
+                    question.setUpdatedAt(nextString(reader, null));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (question.getOptions() == null) {
+            question.setOptions(defaultOptions());
+        }
+        return question;
+    }
+
+    private static SupabaseWrongQuestion decodeWrongQuestion(JsonReader reader) throws IOException {
+        SupabaseWrongQuestion wrongQuestion = new SupabaseWrongQuestion();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    wrongQuestion.setId(nextString(reader, null));
+                    break;
+                case "user_id":
+                    wrongQuestion.setUserId(nextString(reader, null));
+                    break;
+                case "question_id":
+                    wrongQuestion.setQuestionId(nextString(reader, null));
+                    break;
+                case "question_title":
+                    wrongQuestion.setQuestionTitle(nextString(reader, null));
+                    break;
+                case "options":
+                    wrongQuestion.setOptions(nextStringList(reader));
+                    break;
+                case "correct_answer":
+                    wrongQuestion.setCorrectAnswer(nextInt(reader, 0));
+                    break;
+                case "user_answer":
+                    wrongQuestion.setUserAnswer(nextInt(reader, -1));
+                    break;
+                case "analysis":
+                    wrongQuestion.setAnalysis(nextString(reader, null));
+                    break;
+                case "ai_analysis":
+                    wrongQuestion.setAiAnalysis(nextString(reader, null));
+                    break;
+                case "knowledge_points":
+                    wrongQuestion.setKnowledgePoints(nextStringList(reader));
+                    break;
+                case "difficulty":
+                    wrongQuestion.setDifficulty(nextInt(reader, 3));
+                    break;
+                case "category":
+                    wrongQuestion.setCategory(nextString(reader, null));
+                    break;
+                case "subject":
+                    wrongQuestion.setSubject(nextString(reader, null));
+                    break;
+                case "source":
+                    wrongQuestion.setSource(nextString(reader, null));
+                    break;
+                case "type":
+                    wrongQuestion.setType(nextString(reader, null));
+                    break;
+                case "wrong_reason":
+                    wrongQuestion.setWrongReason(nextString(reader, null));
+                    break;
+                case "review_count":
+                    wrongQuestion.setReviewCount(nextInt(reader, 1));
+                    break;
+                case "mastery_level":
+                    wrongQuestion.setMasteryLevel(nextInt(reader, 1));
+                    break;
+                case "is_mastered":
+                    wrongQuestion.setMastered(nextBoolean(reader, false));
+                    break;
+                case "next_review_date":
+                    wrongQuestion.setNextReviewDate(nextString(reader, null));
+                    break;
+                case "last_review_date":
+                    wrongQuestion.setLastReviewDate(nextString(reader, null));
+                    break;
+                case "created_at":
+                    wrongQuestion.setCreatedAt(nextString(reader, null));
+                    break;
+                case "updated_at":
+                    wrongQuestion.setUpdatedAt(nextString(reader, null));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return wrongQuestion;
+    }
+
+    /**
+     * 选项缺失或无法解析时的默认选项
+     */
+    public static List<String> defaultOptions() {
+        return new ArrayList<>(Arrays.asList("选项A", "选项B", "选项C", "选项D"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.aitestbank.supabase.http;
+
+import java.io.IOException;
+
+/**
+ * Supabase返回非成功状态码时抛出的异常，携带状态码和响应体
+ */
+public class SupabaseHttpException extends IOException {
+
+    private final int statusCode;
+    private final String responseBody;
+
+    public SupabaseHttpException(int statusCode, String responseBody) {
+        super("HTTP " + statusCode + " - " + responseBody);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    /**
+     * 是否为可重试的临时错误（限流、服务端错误）
+     * 4xx的约束冲突、格式错误重试也不会成功
+     */
+    public boolean isRetryable() {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
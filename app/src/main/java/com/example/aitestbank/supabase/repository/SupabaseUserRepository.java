@@ -1,10 +1,15 @@
 package com.example.aitestbank.supabase.repository;
 
+import android.content.Context;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.aitestbank.model.SupabaseUserProfile;
+import com.example.aitestbank.supabase.SimpleSupabaseClient;
 import com.example.aitestbank.supabase.SupabaseClientManager;
 import com.example.aitestbank.supabase.SupabaseClientManager.OperationCallback;
+import com.example.aitestbank.supabase.cache.CacheNamespaces;
+import com.example.aitestbank.supabase.cache.ReadPolicy;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -17,10 +22,24 @@ public class SupabaseUserRepository {
     private static final String TAG = "SupabaseUserRepo";
     private static SupabaseUserRepository instance;
     
+    // 缓存项，键由CacheNamespaces按用户生成
+    private static final String PROFILE_CACHE_ITEM = "user_profile";
+    private static final long PROFILE_CACHE_DURATION = 10 * 60 * 1000; // 10分钟
+    private static final String STUDY_STATS_CACHE_ITEM = "study_stats";
+    private static final long STUDY_STATS_CACHE_DURATION = 60 * 1000; // 1分钟
+    
     private final SupabaseClientManager supabaseClient;
+    private volatile Context appContext;
     
     private SupabaseUserRepository() {
         supabaseClient = SupabaseClientManager.getInstance();
+        SimpleSupabaseClient.getInstance().addTableChangeListener(tableName -> {
+            if ("answer_records".equals(tableName) || "wrong_questions".equals(tableName)) {
+                markStale(CacheNamespaces.prefixOf(CacheNamespaces.Domain.STATS, STUDY_STATS_CACHE_ITEM));
+            } else if ("user_profiles".equals(tableName)) {
+                markStale(CacheNamespaces.prefixOf(CacheNamespaces.Domain.PROFILE, PROFILE_CACHE_ITEM));
+            }
+        });
     }
     
     public static synchronized SupabaseUserRepository getInstance() {
@@ -47,6 +66,69 @@ public class SupabaseUserRepository {
         }
     }
     
+    /**
+     * 按ID获取用户档案的原始JSON（user_profiles查询结果数组），按读取策略先返回缓存再推送网络结果
+     */
+    public void getUserProfileJson(@NonNull Context context, @NonNull String userId, @NonNull ReadPolicy policy,
+                                   @NonNull SupabaseCacheManager.ReadCallback<String> callback) {
+        appContext = context.getApplicationContext();
+        
+        SupabaseCacheManager.getInstance(appContext).read(profileCacheKey(userId), policy,
+                PROFILE_CACHE_DURATION, String.class, () -> fetchUserProfileJson(userId), callback);
+    }
+    
+    /**
+     * 预取用户档案（在后台线程同步执行），缓存有效时不请求网络
+     *
+     * @return true表示请求了网络
+     */
+    public boolean prefetchUserProfile(@NonNull Context context, @NonNull String userId) throws Exception {
+        appContext = context.getApplicationContext();
+        return SupabaseCacheManager.getInstance(appContext).prefetch(profileCacheKey(userId),
+                PROFILE_CACHE_DURATION, () -> fetchUserProfileJson(userId));
+    }
+    
+    private String profileCacheKey(String userId) {
+        return CacheNamespaces.getInstance(appContext).key(CacheNamespaces.Domain.PROFILE, PROFILE_CACHE_ITEM, userId);
+    }
+    
+    private String fetchUserProfileJson(String userId) throws Exception {
+        String json = SimpleSupabaseClient.getInstance().query("user_profiles", "*", "id=eq." + userId);
+        if (json == null || "[]".equals(json.trim())) {
+            throw new Exception("User profile not found");
+        }
+        return json;
+    }
+    
+    /**
+     * 获取用户的答题数、正确数和错题数
+     * 三项都只请求计数，不下载记录；按读取策略先返回缓存再推送网络结果
+     */
+    public void getStudyStatistics(@NonNull Context context, @NonNull String userId, @NonNull ReadPolicy policy,
+                                   @NonNull SupabaseCacheManager.ReadCallback<StudyStats> callback) {
+        appContext = context.getApplicationContext();
+        
+        String cacheKey = CacheNamespaces.getInstance(appContext)
+                .key(CacheNamespaces.Domain.STATS, STUDY_STATS_CACHE_ITEM, userId);
+        SupabaseCacheManager.getInstance(appContext).read(cacheKey, policy,
+                STUDY_STATS_CACHE_DURATION, StudyStats.class, () -> {
+                    String filter = "user_id=eq." + userId;
+                    StudyStats stats = new StudyStats();
+                    stats.totalAnswers = supabaseClient.countSync("answer_records", filter);
+                    stats.correctAnswers = stats.totalAnswers > 0
+                            ? supabaseClient.countSync("answer_records", filter + "&is_correct=eq.true") : 0;
+                    stats.wrongCount = supabaseClient.countSync("wrong_questions", filter);
+                    return stats;
+                }, callback);
+    }
+    
+    private void markStale(String prefix) {
+        Context context = appContext;
+        if (context != null) {
+            SupabaseCacheManager.getInstance(context).markStaleByPrefix(prefix);
+        }
+    }
+    
     /**
      * 更新用户档案
      */
@@ -159,4 +241,29 @@ public class SupabaseUserRepository {
             return null;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 用户学习统计
+     */
+    public static class StudyStats {
+        int totalAnswers;
+        int correctAnswers;
+        int wrongCount;
+        
+        public int getTotalAnswers() {
+            return totalAnswers;
+        }
+        
+        public int getCorrectAnswers() {
+            return correctAnswers;
+        }
+        
+        public int getWrongCount() {
+            return wrongCount;
+        }
+        
+        public float getAccuracy() {
+            return totalAnswers > 0 ? correctAnswers * 100.0f / totalAnswers : 0.0f;
+        }
+    }
+}
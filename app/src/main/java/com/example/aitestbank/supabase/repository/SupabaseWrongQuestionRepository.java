@@ -1,9 +1,16 @@
 package com.example.aitestbank.supabase.repository;
 
+import android.content.Context;
 import android.util.Log;
 import com.example.aitestbank.model.SupabaseWrongQuestion;
+import com.example.aitestbank.supabase.SimpleSupabaseClient;
 import com.example.aitestbank.supabase.SupabaseClientManager;
 import com.example.aitestbank.supabase.SupabaseClientManager.OperationCallback;
+import com.example.aitestbank.supabase.cache.CacheNamespaces;
+import com.example.aitestbank.supabase.cache.ReadPolicy;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.converter.RowDecoders;
+import com.google.gson.reflect.TypeToken;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,10 +24,21 @@ public class SupabaseWrongQuestionRepository {
     private static final String TAG = "SupabaseWrongQuestionRepo";
     private static SupabaseWrongQuestionRepository instance;
     
+    // 错题列表缓存项，键由CacheNamespaces按用户生成
+    private static final String WRONG_LIST_CACHE_ITEM = "recent";
+    private static final long WRONG_LIST_CACHE_DURATION = 2 * 60 * 1000; // 2分钟
+    private static final int WRONG_LIST_LIMIT = 50;
+    
     private final SupabaseClientManager supabaseClient;
+    private volatile Context appContext;
     
     private SupabaseWrongQuestionRepository() {
         supabaseClient = SupabaseClientManager.getInstance();
+        SimpleSupabaseClient.getInstance().addTableChangeListener(tableName -> {
+            if ("wrong_questions".equals(tableName)) {
+                invalidateWrongQuestionList();
+            }
+        });
     }
     
     public static synchronized SupabaseWrongQuestionRepository getInstance() {
@@ -38,6 +56,7 @@ public class SupabaseWrongQuestionRepository {
             supabaseClient.addWrongQuestion(wrongQuestion, new OperationCallback<Void>() {
                 @Override
                 public void onSuccess(Void result) {
+                    invalidateWrongQuestionList();
                     callback.onSuccess(wrongQuestion.getId());
                 }
                 
@@ -82,6 +101,51 @@ public class SupabaseWrongQuestionRepository {
         }
     }
     
+    /**
+     * 获取用户最近的错题列表（按创建时间倒序），按读取策略先返回缓存再推送网络结果
+     */
+    public void getUserWrongQuestions(Context context, String userId, ReadPolicy policy,
+                                      SupabaseCacheManager.ReadCallback<List<SupabaseWrongQuestion>> callback) {
+        appContext = context.getApplicationContext();
+        
+        SupabaseCacheManager.getInstance(appContext).read(wrongListCacheKey(userId), policy,
+                WRONG_LIST_CACHE_DURATION, new TypeToken<List<SupabaseWrongQuestion>>() {}.getType(),
+                () -> fetchUserWrongQuestions(userId), callback);
+    }
+    
+    /**
+     * 预取错题列表（在后台线程同步执行），缓存有效时不请求网络
+     *
+     * @return true表示请求了网络
+     */
+    public boolean prefetchUserWrongQuestions(Context context, String userId) throws Exception {
+        appContext = context.getApplicationContext();
+        return SupabaseCacheManager.getInstance(appContext).prefetch(wrongListCacheKey(userId),
+                WRONG_LIST_CACHE_DURATION, () -> fetchUserWrongQuestions(userId));
+    }
+    
+    private String wrongListCacheKey(String userId) {
+        return CacheNamespaces.getInstance(appContext)
+                .key(CacheNamespaces.Domain.WRONG_QUESTIONS, WRONG_LIST_CACHE_ITEM, userId);
+    }
+    
+    private List<SupabaseWrongQuestion> fetchUserWrongQuestions(String userId) throws Exception {
+        return SimpleSupabaseClient.getInstance().queryList("wrong_questions", "*",
+                "user_id=eq." + userId + "&order=created_at.desc&limit=" + WRONG_LIST_LIMIT,
+                RowDecoders.WRONG_QUESTION);
+    }
+    
+    /**
+     * 让错题列表缓存过期，下次读取时先显示旧数据再刷新
+     */
+    public void invalidateWrongQuestionList() {
+        Context context = appContext;
+        if (context != null) {
+            SupabaseCacheManager.getInstance(context).markStaleByPrefix(
+                    CacheNamespaces.prefixOf(CacheNamespaces.Domain.WRONG_QUESTIONS, WRONG_LIST_CACHE_ITEM));
+        }
+    }
+    
     /**
      * 更新错题掌握程度
      */
@@ -90,6 +154,7 @@ public class SupabaseWrongQuestionRepository {
             supabaseClient.updateWrongQuestionMastery(questionId, masteryLevel, isMastered, new OperationCallback<Void>() {
                 @Override
                 public void onSuccess(Void result) {
+                    invalidateWrongQuestionList();
                     callback.onSuccess(true);
                 }
                 
@@ -113,6 +178,7 @@ public class SupabaseWrongQuestionRepository {
             supabaseClient.deleteWrongQuestion(questionId, new OperationCallback<Void>() {
                 @Override
                 public void onSuccess(Void result) {
+                    invalidateWrongQuestionList();
                     callback.onSuccess(true);
                 }
                 
@@ -0,0 +1,70 @@
+package com.example.aitestbank.supabase.repository;
+
+import android.content.Context;
+
+import com.example.aitestbank.supabase.cache.CacheWarmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 启动预热的各个阶段，顺序由调用方决定，默认顺序见DEFAULT_ORDER
+ */
+public enum WarmupStage {
+    /** 用户档案（我的页） */
+    PROFILE("用户档案"),
+    /** 最近的错题列表（错题本） */
+    WRONG_QUESTIONS("错题列表"),
+    /** 分类统计（首页分类） */
+    CATEGORY_STATS("分类统计"),
+    /** 最近打开的分类的题目 */
+    LAST_CATEGORY("最近分类题目");
+
+    public static final List<WarmupStage> DEFAULT_ORDER = Collections.unmodifiableList(
+            Arrays.asList(PROFILE, WRONG_QUESTIONS, CATEGORY_STATS, LAST_CATEGORY));
+
+    public final String label;
+
+    WarmupStage(String label) {
+        this.label = label;
+    }
+
+    /**
+     * 按给定顺序生成当前用户的预热阶段
+     */
+    public static List<CacheWarmup.Stage> stagesFor(Context context, String userId, List<WarmupStage> order) {
+        Context appContext = context.getApplicationContext();
+        List<CacheWarmup.Stage> stages = new ArrayList<>(order.size());
+        for (WarmupStage stage : order) {
+            stages.add(stage.toStage(appContext, userId));
+        }
+        return stages;
+    }
+
+    private CacheWarmup.Stage toStage(Context context, String userId) {
+        return new CacheWarmup.Stage() {
+            @Override
+            public String name() {
+                return label;
+            }
+
+            @Override
+            public boolean warm() throws Exception {
+                switch (WarmupStage.this) {
+                    case PROFILE:
+                        return SupabaseUserRepository.getInstance().prefetchUserProfile(context, userId);
+                    case WRONG_QUESTIONS:
+                        return SupabaseWrongQuestionRepository.getInstance().prefetchUserWrongQuestions(context, userId);
+                    case CATEGORY_STATS:
+                        return SupabaseQuestionRepository.getInstance().prefetchCategoryStatistics(context, userId);
+                    case LAST_CATEGORY:
+                        return SupabaseQuestionRepository.getInstance().prefetchLastCategory(context);
+                    default:
+                        return false;
+                }
+            }
+        };
+    }
+}
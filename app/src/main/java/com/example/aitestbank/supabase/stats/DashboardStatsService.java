@@ -0,0 +1,327 @@
+package com.example.aitestbank.supabase.stats;
+
+import android.util.Log;
+
+import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.SupabaseClientManager;
+import com.example.aitestbank.supabase.converter.JsonRowReader;
+import com.example.aitestbank.supabase.http.SupabaseHttpException;
+import com.example.aitestbank.utils.AppExecutors;
+import com.example.aitestbank.utils.OperationCallback;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 首页统计服务
+ * 总题数、正确率、错题数、学习天数四项并发请求，只传输计数和聚合结果；
+ * 合成的快照缓存在内存中，切换Tab回到首页时先显示快照，过期后再后台刷新
+ */
+public class DashboardStatsService {
+
+    private static final String TAG = "DashboardStatsService";
+
+    // 快照新鲜期内不重复请求；相关表有写入时立即过期
+    private static final long FRESH_MILLIS = 30 * 1000;
+    private static final String ACCURACY_FUNCTION = "get_answer_accuracy";
+    private static final String[] SOURCE_TABLES = {"questions", "answer_records", "wrong_questions", "user_profiles"};
+
+    private static volatile DashboardStatsService instance;
+
+    private final SupabaseClientManager clientManager;
+    private final SimpleSupabaseClient supabaseClient;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean stale;
+    // 数据库未部署聚合函数时退回到两次HEAD计数，只探测一次
+    private volatile boolean accuracyRpcAvailable = true;
+
+    // 同一用户正在加载时，后来的调用方只排队等待结果
+    private final Object loadLock = new Object();
+    private PendingSnapshot loading;
+
+    private DashboardStatsService() {
+        clientManager = SupabaseClientManager.getInstance();
+        supabaseClient = SimpleSupabaseClient.getInstance();
+        supabaseClient.addTableChangeListener(this::onTableChanged);
+    }
+
+    public static DashboardStatsService getInstance() {
+        if (instance == null) {
+            synchronized (DashboardStatsService.class) {
+                if (instance == null) {
+                    instance = new DashboardStatsService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取已缓存的快照（不论是否过期），没有或属于其他用户时返回null
+     */
+    public Snapshot getCachedSnapshot(String userId) {
+        Snapshot current = snapshot;
+        if (current == null || userId == null || !userId.equals(current.userId)) {
+            return null;
+        }
+        return current;
+    }
+
+    /**
+     * 快照是否仍在新鲜期内
+     */
+    public boolean isFresh(Snapshot current) {
+        return current != null && !stale
+                && System.currentTimeMillis() - current.createdAt < FRESH_MILLIS;
+    }
+
+    /**
+     * 加载统计快照，回调在主线程执行
+     * 快照新鲜时直接返回，否则并发请求四项统计后合成新快照
+     */
+    public void load(String userId, boolean forceRefresh, OperationCallback<Snapshot> callback) {
+        Snapshot cached = getCachedSnapshot(userId);
+        if (!forceRefresh && isFresh(cached)) {
+            AppExecutors.getInstance().mainThread().execute(() -> callback.onSuccess(cached));
+            return;
+        }
+
+        PendingSnapshot pending;
+        synchronized (loadLock) {
+            if (loading != null && loading.userId.equals(userId)) {
+                loading.callbacks.add(callback);
+                return;
+            }
+            pending = new PendingSnapshot(userId, cached);
+            pending.callbacks.add(callback);
+            loading = pending;
+        }
+        stale = false;
+
+        submit(pending, () -> pending.totalQuestions = clientManager.countSync("questions", null));
+        submit(pending, () -> pending.accuracyRate = fetchAccuracyRate(userId));
+        submit(pending, () -> pending.wrongCount = clientManager.countSync("wrong_questions",
+                "user_id=eq." + userId + "&is_mastered=eq.false"));
+        submit(pending, () -> pending.studyDays = fetchStudyDays(userId));
+    }
+
+    /**
+     * 让快照过期，下次加载时重新请求（快照仍可用于首屏显示）
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * 某张表有写入时调用，只有统计依赖的表才会让快照过期
+     */
+    public void onTableChanged(String tableName) {
+        for (String table : SOURCE_TABLES) {
+            if (table.equals(tableName)) {
+                invalidate();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 清除快照（退出登录时调用）
+     */
+    public void clear() {
+        snapshot = null;
+    }
+
+    private void submit(PendingSnapshot pending, Callable<Object> fetch) {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
+            try {
+                fetch.call();
+            } catch (Exception e) {
+                Log.w(TAG, "统计项加载失败: " + e.getMessage());
+                pending.fail(e);
+            }
+            if (pending.remaining.decrementAndGet() == 0) {
+                complete(pending);
+            }
+        });
+    }
+
+    private void complete(PendingSnapshot pending) {
+        List<OperationCallback<Snapshot>> callbacks;
+        synchronized (loadLock) {
+            callbacks = new ArrayList<>(pending.callbacks);
+            if (loading == pending) {
+                loading = null;
+            }
+        }
+
+        Snapshot result = null;
+        // 四项全部失败才算失败；部分失败时沿用旧快照中的对应值
+        if (pending.failures.get() < PendingSnapshot.FIELD_COUNT) {
+            result = pending.toSnapshot();
+            snapshot = result;
+            Log.d(TAG, "统计快照已更新: " + result + (pending.failures.get() > 0 ? "（部分项失败）" : ""));
+        }
+
+        Snapshot finalResult = result;
+        AppExecutors.getInstance().mainThread().execute(() -> {
+            for (OperationCallback<Snapshot> callback : callbacks) {
+                if (finalResult != null) {
+                    callback.onSuccess(finalResult);
+                } else {
+                    callback.onError(pending.firstError);
+                }
+            }
+        });
+    }
+
+    /**
+     * 正确率：优先调用数据库聚合函数，只返回一行汇总
+     */
+    private Double fetchAccuracyRate(String userId) throws IOException {
+        if (accuracyRpcAvailable) {
+            try {
+                JsonObject args = new JsonObject();
+                args.addProperty("p_user_id", userId);
+                JsonArray rows = JsonParser.parseString(clientManager.rpcSync(ACCURACY_FUNCTION, args.toString())).getAsJsonArray();
+                if (rows.size() == 0) {
+                    return 0.0;
+                }
+                JsonObject row = rows.get(0).getAsJsonObject();
+                return accuracyOf(row.get("total_answers").getAsLong(), row.get("correct_answers").getAsLong());
+            } catch (SupabaseHttpException e) {
+                if (e.getStatusCode() != 404) {
+                    throw e;
+                }
+                accuracyRpcAvailable = false;
+                Log.w(TAG, "数据库未部署" + ACCURACY_FUNCTION + "，改用计数请求");
+            }
+        }
+
+        String filter = "user_id=eq." + userId;
+        int total = clientManager.countSync("answer_records", filter);
+        int correct = total > 0 ? clientManager.countSync("answer_records", filter + "&is_correct=eq.true") : 0;
+        return accuracyOf(total, correct);
+    }
+
+    private Integer fetchStudyDays(String userId) throws IOException {
+        int[] studyDays = {0};
+        supabaseClient.queryRows("user_profiles", "study_days", "id=eq." + userId + "&limit=1", reader -> {
+            int value = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("study_days".equals(reader.nextName())) {
+                    value = JsonRowReader.nextInt(reader, 0);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return value;
+        }, value -> {
+            studyDays[0] = value;
+            return false;
+        });
+        return studyDays[0];
+    }
+
+    private static double accuracyOf(long total, long correct) {
+        return total > 0 ? correct * 100.0 / total : 0.0;
+    }
+
+    /**
+     * 首页统计快照
+     */
+    public static class Snapshot {
+        private final String userId;
+        private final int totalQuestions;
+        private final double accuracyRate;
+        private final int wrongCount;
+        private final int studyDays;
+        private final long createdAt;
+
+        Snapshot(String userId, int totalQuestions, double accuracyRate, int wrongCount, int studyDays) {
+            this.userId = userId;
+            this.totalQuestions = totalQuestions;
+            this.accuracyRate = accuracyRate;
+            this.wrongCount = wrongCount;
+            this.studyDays = studyDays;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public int getTotalQuestions() {
+            return totalQuestions;
+        }
+
+        public double getAccuracyRate() {
+            return accuracyRate;
+        }
+
+        public int getWrongCount() {
+            return wrongCount;
+        }
+
+        public int getStudyDays() {
+            return studyDays;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public String toString() {
+            return "总题数" + totalQuestions + ", 正确率" + String.format("%.1f%%", accuracyRate)
+                    + ", 错题" + wrongCount + ", 学习天数" + studyDays;
+        }
+    }
+
+    /**
+     * 加载中的快照，各项由不同线程写入，全部完成后合成
+     */
+    private static class PendingSnapshot {
+        static final int FIELD_COUNT = 4;
+
+        final String userId;
+        final Snapshot previous;
+        final AtomicInteger remaining = new AtomicInteger(FIELD_COUNT);
+        final AtomicInteger failures = new AtomicInteger();
+        // 由loadLock保护
+        final List<OperationCallback<Snapshot>> callbacks = new ArrayList<>();
+        volatile Exception firstError;
+
+        volatile Integer totalQuestions;
+        volatile Double accuracyRate;
+        volatile Integer wrongCount;
+        volatile Integer studyDays;
+
+        PendingSnapshot(String userId, Snapshot previous) {
+            this.userId = userId;
+            this.previous = previous;
+        }
+
+        void fail(Exception e) {
+            if (failures.getAndIncrement() == 0) {
+                firstError = e;
+            }
+        }
+
+        Snapshot toSnapshot() {
+            return new Snapshot(userId,
+                    totalQuestions != null ? totalQuestions : (previous != null ? previous.totalQuestions : 0),
+                    accuracyRate != null ? accuracyRate : (previous != null ? previous.accuracyRate : 0.0),
+                    wrongCount != null ? wrongCount : (previous != null ? previous.wrongCount : 0),
+                    studyDays != null ? studyDays : (previous != null ? previous.studyDays : 0));
+        }
+    }
+}
@@ -16,17 +16,16 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aitestbank.R;
+import com.example.aitestbank.model.CategoryStat;
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.cache.ReadPolicy;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.repository.SupabaseQuestionRepository;
+import com.example.aitestbank.supabase.stats.DashboardStatsService;
 import com.example.aitestbank.ui.adapter.CategoryAdapter;
 import com.example.aitestbank.ui.question.QuestionActivity;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.example.aitestbank.utils.OperationCallback;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.IOException;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -43,6 +42,7 @@ public class HomeFragment extends Fragment {
     
     private CategoryAdapter categoryAdapter;
     private SimpleSupabaseClient supabaseClient;
+    private DashboardStatsService statsService;
     
     @Nullable
     @Override
@@ -57,8 +57,7 @@ public class HomeFragment extends Fragment {
         initViews(view);
         setupRecyclerView();
         initSupabase();
-        loadCategories();
-        loadStatistics();
+        // 分类和统计在onResume中加载，先显示缓存
     }
     
     private void initViews(View view) {
@@ -78,6 +77,7 @@ public class HomeFragment extends Fragment {
     
     private void initSupabase() {
         supabaseClient = SimpleSupabaseClient.getInstance();
+        statsService = DashboardStatsService.getInstance();
         // SimpleSupabaseClient已经在Application中初始化过了
     }
     
@@ -97,57 +97,53 @@ public class HomeFragment extends Fragment {
     }
     
     private void loadCategories() {
-        // 首先尝试从Supabase加载真实数据
-        loadCategoriesFromSupabase();
+        // 首先尝试从Supabase加载真实数据，缓存未过期时不请求网络
+        loadCategoriesFromSupabase(ReadPolicy.STALE_WHILE_REVALIDATE);
     }
     
-    private void loadCategoriesFromSupabase() {
-        new Thread(() -> {
-            try {
-                // 先测试连接
-                boolean connectionOk = supabaseClient.testConnection();
-                if (!connectionOk) {
-                    throw new IOException("Supabase connection test failed");
-                }
-                
-                // 查询questions表获取所有数据，然后在本地按category分组统计
-                String result = supabaseClient.query("questions", "category", "limit=1000");
-                Log.d(TAG, "Questions from Supabase: " + result);
-                
-                List<CategoryAdapter.Category> categories = parseCategoriesFromSupabase(result);
-                
+    private void loadCategoriesFromSupabase(ReadPolicy policy) {
+        if (!isAdded() || getContext() == null) {
+            return;
+        }
+        String userId = com.example.aitestbank.supabase.auth.AuthManager.getInstance(getContext()).getCurrentUserId();
+        
+        // 分类题目数和已学习数由数据库函数聚合，一次请求每个分类只返回一行
+        SupabaseQuestionRepository.getInstance().getCategoryStatistics(getContext(), userId, policy,
+                new SupabaseCacheManager.ReadCallback<List<CategoryStat>>() {
+            @Override
+            public void onData(List<CategoryStat> stats, boolean fromCache) {
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
                     Log.w(TAG, "Fragment is not attached, skipping UI update");
                     return;
                 }
                 
-                if (categories != null && !categories.isEmpty()) {
-                    // 成功获取到Supabase数据，更新UI
-                    getActivity().runOnUiThread(() -> {
-                        // 再次检查Fragment状态
-                        if (!isAdded() || getActivity() == null) {
-                            return;
-                        }
-                        categoryAdapter.setCategories(categories);
-                        if (isAdded() && getContext() != null) {
-                            Toast.makeText(getContext(), "成功加载 " + categories.size() + " 个分类", Toast.LENGTH_SHORT).show();
-                        }
-                    });
+                if (stats != null && !stats.isEmpty()) {
+                    // 转换为Category列表，使用中文显示名称
+                    List<CategoryAdapter.Category> categories = new ArrayList<>();
+                    int index = 1;
+                    for (CategoryStat stat : stats) {
+                        categories.add(new CategoryAdapter.Category(
+                            String.valueOf(index++),
+                            getCategoryDisplayName(stat.getCategory()),  // 使用转换后的中文名称
+                            stat.getQuestionCount(),
+                            stat.getLearnedCount()
+                        ));
+                    }
+                    categoryAdapter.setCategories(categories);
+                    if (!fromCache && getContext() != null) {
+                        Toast.makeText(getContext(), "成功加载 " + categories.size() + " 个分类", Toast.LENGTH_SHORT).show();
+                    }
                 } else {
                     // Supabase数据为空，使用模拟数据
                     Log.w(TAG, "No categories found in Supabase, using mock data");
-                    getActivity().runOnUiThread(() -> {
-                        // 再次检查Fragment状态
-                        if (!isAdded() || getActivity() == null) {
-                            return;
-                        }
-                        loadMockCategories();
-                    });
+                    loadMockCategories();
                 }
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to load categories from Supabase", e);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                Log.e(TAG, "Failed to load categories from Supabase", error);
                 
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
@@ -155,19 +151,18 @@ public class HomeFragment extends Fragment {
                     return;
                 }
                 
+                // 已显示缓存的分类时保留
+                if (categoryAdapter.getItemCount() > 0) {
+                    return;
+                }
+                
                 // 网络错误或数据为空，使用模拟数据
-                getActivity().runOnUiThread(() -> {
-                    // 再次检查Fragment状态
-                    if (!isAdded() || getActivity() == null) {
-                        return;
-                    }
-                    if (isAdded() && getContext() != null) {
-                        Toast.makeText(getContext(), "暂无云端数据，显示示例数据", Toast.LENGTH_SHORT).show();
-                    }
-                    loadMockCategories();
-                });
+                if (getContext() != null) {
+                    Toast.makeText(getContext(), "暂无云端数据，显示示例数据", Toast.LENGTH_SHORT).show();
+                }
+                loadMockCategories();
             }
-        }).start();
+        });
     }
     
     /**
@@ -201,39 +196,6 @@ public class HomeFragment extends Fragment {
         return categoryMap.getOrDefault(category, category);
     }
     
-    private List<CategoryAdapter.Category> parseCategoriesFromSupabase(String jsonResult) {
-        try {
-            List<CategoryAdapter.Category> categories = new ArrayList<>();
-            
-            // 解析JSON结果并按category分组统计
-            JSONArray jsonArray = new JSONArray(jsonResult);
-            java.util.Map<String, Integer> categoryCountMap = new java.util.HashMap<>();
-            
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                String category = obj.getString("category");
-                categoryCountMap.put(category, categoryCountMap.getOrDefault(category, 0) + 1);
-            }
-            
-            // 转换为Category列表，使用中文显示名称
-            int index = 1;
-            for (java.util.Map.Entry<String, Integer> entry : categoryCountMap.entrySet()) {
-                String displayName = getCategoryDisplayName(entry.getKey());
-                categories.add(new CategoryAdapter.Category(
-                    String.valueOf(index++),
-                    displayName,  // 使用转换后的中文名称
-                    entry.getValue()
-                ));
-            }
-            
-            return categories;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse categories JSON", e);
-            return null;
-        }
-    }
-    
     private void loadMockCategories() {
         // 模拟数据作为fallback - 使用中文名称
         List<CategoryAdapter.Category> mockCategories = new ArrayList<>();
@@ -249,55 +211,36 @@ public class HomeFragment extends Fragment {
     
     private void loadStatistics() {
         // 从Supabase加载真实统计数据
-        loadStatisticsFromSupabase();
+        loadStatisticsFromSupabase(false);
     }
     
-    private void loadStatisticsFromSupabase() {
-        new Thread(() -> {
-            try {
-                // 1. 获取总题数
-                int totalQuestions = getTotalQuestionsCount();
-                
-                // 2. 获取答题记录计算正确率
-                double accuracyRate = getAccuracyRate();
-                
-                // 3. 获取错题数量
-                int wrongCount = getWrongQuestionsCount();
-                
-                // 4. 获取学习天数
-                int studyDays = getStudyDays();
-                
+    private void loadStatisticsFromSupabase(boolean forceRefresh) {
+        if (!isAdded() || getContext() == null) {
+            return;
+        }
+        String userId = com.example.aitestbank.supabase.auth.AuthManager.getInstance(getContext()).getCurrentUserId();
+        
+        // 先显示缓存的快照，切换Tab回来时无需等待网络
+        DashboardStatsService.Snapshot cached = statsService.getCachedSnapshot(userId);
+        if (cached != null) {
+            showStatistics(cached);
+        }
+        
+        // 四项统计由统计服务并发获取，快照仍新鲜时不会发出请求
+        statsService.load(userId, forceRefresh, new OperationCallback<DashboardStatsService.Snapshot>() {
+            @Override
+            public void onSuccess(DashboardStatsService.Snapshot snapshot) {
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
                     Log.w(TAG, "Fragment is not attached, skipping statistics UI update");
                     return;
                 }
-                
-                // 更新UI
-                getActivity().runOnUiThread(() -> {
-                    // 再次检查Fragment状态
-                    if (!isAdded() || getActivity() == null) {
-                        return;
-                    }
-                    
-                    if (totalQuestionsText != null) {
-                        totalQuestionsText.setText(String.valueOf(totalQuestions));
-                    }
-                    if (accuracyRateText != null) {
-                        accuracyRateText.setText(String.format("%.1f%%", accuracyRate));
-                    }
-                    if (wrongCountText != null) {
-                        wrongCountText.setText(String.valueOf(wrongCount));
-                    }
-                    // 更新学习天数
-                    TextView studyDaysText = getView() != null ? getView().findViewById(R.id.tv_study_days) : null;
-                    if (studyDaysText != null) {
-                        studyDaysText.setText(String.valueOf(studyDays));
-                    }
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to load statistics from Supabase", e);
+                showStatistics(snapshot);
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                Log.e(TAG, "Failed to load statistics from Supabase", error);
                 
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
@@ -305,134 +248,56 @@ public class HomeFragment extends Fragment {
                     return;
                 }
                 
+                // 已经显示了缓存的快照时保持不变
+                if (cached != null) {
+                    return;
+                }
+                
                 // 使用默认数据
-                getActivity().runOnUiThread(() -> {
-                    // 再次检查Fragment状态
-                    if (!isAdded() || getActivity() == null) {
-                        return;
-                    }
-                    
-                    if (totalQuestionsText != null) {
-                        totalQuestionsText.setText("0");
-                    }
-                    if (accuracyRateText != null) {
-                        accuracyRateText.setText("0%");
-                    }
-                    if (wrongCountText != null) {
-                        wrongCountText.setText("0");
-                    }
-                    TextView studyDaysText = getView() != null ? getView().findViewById(R.id.tv_study_days) : null;
-                    if (studyDaysText != null) {
-                        studyDaysText.setText("0");
-                    }
-                    
-                    if (isAdded() && getContext() != null) {
-                        Toast.makeText(getContext(), "统计数据加载失败", Toast.LENGTH_SHORT).show();
-                    }
-                });
+                if (totalQuestionsText != null) {
+                    totalQuestionsText.setText("0");
+                }
+                if (accuracyRateText != null) {
+                    accuracyRateText.setText("0%");
+                }
+                if (wrongCountText != null) {
+                    wrongCountText.setText("0");
+                }
+                TextView studyDaysText = getView() != null ? getView().findViewById(R.id.tv_study_days) : null;
+                if (studyDaysText != null) {
+                    studyDaysText.setText("0");
+                }
+                
+                if (isAdded() && getContext() != null) {
+                    Toast.makeText(getContext(), "统计数据加载失败", Toast.LENGTH_SHORT).show();
+                }
             }
-        }).start();
+        });
     }
     
-    private int getTotalQuestionsCount() {
-        try {
-            // 查询questions表总数
-            String result = supabaseClient.query("questions", "count", "");
-            JSONArray jsonArray = new JSONArray(result);
-            if (jsonArray.length() > 0) {
-                return jsonArray.getJSONObject(0).getInt("count");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to get total questions count", e);
+    private void showStatistics(DashboardStatsService.Snapshot snapshot) {
+        if (totalQuestionsText != null) {
+            totalQuestionsText.setText(String.valueOf(snapshot.getTotalQuestions()));
         }
-        return 0;
-    }
-    
-    private double getAccuracyRate() {
-        try {
-            // 获取当前用户ID
-            com.example.aitestbank.supabase.auth.AuthManager authManager =
-                com.example.aitestbank.supabase.auth.AuthManager.getInstance(getContext());
-            String userId = authManager.getCurrentUserId();
-
-            // 查询当前用户的答题记录
-            String filter = "user_id=eq." + userId;
-            String result = supabaseClient.query("answer_records", "is_correct", filter);
-            JSONArray jsonArray = new JSONArray(result);
-
-            if (jsonArray.length() == 0) {
-                return 0.0;
-            }
-
-            int totalAnswers = jsonArray.length();
-            int correctAnswers = 0;
-
-            for (int i = 0; i < totalAnswers; i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                if (obj.getBoolean("is_correct")) {
-                    correctAnswers++;
-                }
-            }
-
-            double accuracy = totalAnswers > 0 ? (correctAnswers * 100.0 / totalAnswers) : 0.0;
-            Log.d(TAG, "计算正确率 (userId=" + userId + "): " + totalAnswers + "/" + correctAnswers + " = " + accuracy + "%");
-            return accuracy;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to calculate accuracy rate", e);
+        if (accuracyRateText != null) {
+            accuracyRateText.setText(String.format("%.1f%%", snapshot.getAccuracyRate()));
         }
-        return 0.0;
-    }
-    
-    private int getWrongQuestionsCount() {
-        try {
-            // 获取当前用户ID
-            com.example.aitestbank.supabase.auth.AuthManager authManager =
-                com.example.aitestbank.supabase.auth.AuthManager.getInstance(getContext());
-            String userId = authManager.getCurrentUserId();
-
-            // 查询当前用户错题本中未掌握的错题数量
-            String filter = "user_id=eq." + userId + "&is_mastered=eq.false";
-            String result = supabaseClient.query("wrong_questions", "count", filter);
-            JSONArray jsonArray = new JSONArray(result);
-            if (jsonArray.length() > 0) {
-                int count = jsonArray.getJSONObject(0).getInt("count");
-                Log.d(TAG, "获取错题数量 (userId=" + userId + "): " + count);
-                return count;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to get wrong questions count", e);
+        if (wrongCountText != null) {
+            wrongCountText.setText(String.valueOf(snapshot.getWrongCount()));
         }
-        return 0;
-    }
-    
-    private int getStudyDays() {
-        try {
-            // 获取当前用户ID
-            com.example.aitestbank.supabase.auth.AuthManager authManager =
-                com.example.aitestbank.supabase.auth.AuthManager.getInstance(getContext());
-            String userId = authManager.getCurrentUserId();
-
-            // 查询当前用户的学习天数（从user_profiles表）
-            String filter = "id=eq." + userId;
-            String result = supabaseClient.query("user_profiles", "study_days", filter);
-            JSONArray jsonArray = new JSONArray(result);
-            if (jsonArray.length() > 0) {
-                int studyDays = jsonArray.getJSONObject(0).optInt("study_days", 0);
-                Log.d(TAG, "获取学习天数 (userId=" + userId + "): " + studyDays);
-                return studyDays;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to get study days", e);
+        // 更新学习天数
+        TextView studyDaysText = getView() != null ? getView().findViewById(R.id.tv_study_days) : null;
+        if (studyDaysText != null) {
+            studyDaysText.setText(String.valueOf(snapshot.getStudyDays()));
         }
-        return 0;
     }
     
     private void refreshData() {
         if (isAdded() && getContext() != null) {
             Toast.makeText(getContext(), "刷新数据中...", Toast.LENGTH_SHORT).show();
         }
-        loadCategoriesFromSupabase();
+        loadCategoriesFromSupabase(ReadPolicy.NETWORK_ONLY);
+        loadStatisticsFromSupabase(true);
     }
     
     private void setupFunctionButtons(View view) {
@@ -456,8 +321,10 @@ public class HomeFragment extends Fragment {
             wrongQuestionCard.setOnClickListener(v -> {
                 if (!isAdded() || getActivity() == null) return;
                 
-                // 检查是否有错题
-                if (getWrongQuestionsCount() > 0) {
+                // 检查是否有错题：使用统计快照中的错题数，还没有快照时交给复习页判断
+                String userId = com.example.aitestbank.supabase.auth.AuthManager.getInstance(getContext()).getCurrentUserId();
+                DashboardStatsService.Snapshot snapshot = statsService.getCachedSnapshot(userId);
+                if (snapshot == null || snapshot.getWrongCount() > 0) {
                     // 跳转到错题复习模式
                     Intent intent = new Intent(getActivity(), QuestionActivity.class);
                     intent.putExtra("mode", "wrong");
@@ -494,7 +361,8 @@ public class HomeFragment extends Fragment {
     @Override
     public void onResume() {
         super.onResume();
-        // 每次回到首页时刷新数据
+        // 每次回到首页时刷新数据：先显示缓存，过期的部分后台刷新
+        loadCategories();
         loadStatistics();
     }
 }
\ No newline at end of file
@@ -15,10 +15,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.aitestbank.R;
 import com.example.aitestbank.model.Question;
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.repository.SupabaseQuestionRepository;
 import com.example.aitestbank.ui.adapter.QuestionListAdapter;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.example.aitestbank.utils.AppExecutors;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +50,8 @@ public class QuestionListActivity extends AppCompatActivity {
         Intent intent = getIntent();
         if (intent != null && intent.hasExtra("category")) {
             currentCategory = intent.getStringExtra("category");
+            // 下次启动时预热这个分类
+            SupabaseQuestionRepository.getInstance().setLastCategory(this, currentCategory);
         } else {
             Toast.makeText(this, "未找到分类信息", Toast.LENGTH_SHORT).show();
             finish();
@@ -103,14 +104,14 @@ public class QuestionListActivity extends AppCompatActivity {
     private void loadQuestionsByCategory() {
         Toast.makeText(this, "正在加载" + currentCategory + "的题目...", Toast.LENGTH_SHORT).show();
         
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
                 // 根据分类查询题目
-                String filter = "category=eq." + currentCategory;
-                String result = supabaseClient.query("questions", "*", filter);
-                Log.d(TAG, "Questions for category " + currentCategory + ": " + result);
-                
-                List<Question> loadedQuestions = parseQuestionsFromSupabase(result);
+                // 分类题目未变化时使用存盘的响应，不重新下载（启动预热可能已经取过）
+                List<Question> loadedQuestions = SupabaseQuestionRepository.getInstance()
+                        .queryCategoryQuestions(currentCategory);
+                Log.d(TAG, "Questions for category " + currentCategory + ": "
+                        + (loadedQuestions != null ? loadedQuestions.size() : 0));
                 
                 runOnUiThread(() -> {
                     if (loadedQuestions != null && !loadedQuestions.isEmpty()) {
@@ -131,59 +132,7 @@ public class QuestionListActivity extends AppCompatActivity {
                     loadMockQuestions();
                 });
             }
-        }).start();
-    }
-    
-    private List<Question> parseQuestionsFromSupabase(String jsonResult) {
-        try {
-            List<Question> questionList = new ArrayList<>();
-            
-            JSONArray jsonArray = new JSONArray(jsonResult);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                
-                Question question = new Question();
-                question.setId(obj.getString("id"));
-                question.setTitle(obj.getString("title"));
-                question.setCorrectAnswer(obj.getInt("correct_answer"));
-                question.setAnalysis(obj.optString("analysis", "暂无解析"));
-                question.setCategory(obj.optString("category", "未分类"));
-                question.setDifficulty(obj.optInt("difficulty", 3));
-                question.setType(obj.optString("type", "single_choice"));
-                
-                // 解析选项
-                String optionsStr = obj.optString("options", "[]");
-                List<String> options = parseOptions(optionsStr);
-                question.setOptions(options);
-                
-                questionList.add(question);
-            }
-            
-            return questionList;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse questions JSON", e);
-            return null;
-        }
-    }
-    
-    private List<String> parseOptions(String optionsStr) {
-        try {
-            List<String> options = new ArrayList<>();
-            JSONArray jsonArray = new JSONArray(optionsStr);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                options.add(jsonArray.getString(i));
-            }
-            return options;
-        } catch (Exception e) {
-            // 如果解析失败，返回默认选项
-            List<String> defaultOptions = new ArrayList<>();
-            defaultOptions.add("选项A");
-            defaultOptions.add("选项B");
-            defaultOptions.add("选项C");
-            defaultOptions.add("选项D");
-            return defaultOptions;
-        }
+        });
     }
     
     private void loadMockQuestions() {
@@ -21,8 +21,14 @@ import com.example.aitestbank.model.SupabaseWrongQuestion;
 import com.example.aitestbank.supabase.SupabaseClientManager;
 import com.example.aitestbank.supabase.SupabaseClientManager.OperationCallback;
 import com.example.aitestbank.supabase.auth.AuthManager;
+import com.example.aitestbank.supabase.cache.CacheNamespaces;
+import com.example.aitestbank.supabase.cache.DiskCacheStore;
+import com.example.aitestbank.supabase.cache.ReadPolicy;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.repository.SupabaseUserRepository;
 import com.example.aitestbank.MainActivity;
 import com.example.aitestbank.ui.auth.LoginActivity;
+import com.example.aitestbank.utils.AppExecutors;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -53,6 +59,8 @@ public class ProfileFragment extends Fragment {
     // 数据和客户端
     private SupabaseClientManager supabaseManager;
     private SupabaseUserProfile currentUser;
+    // 已显示过统计数据（缓存或网络），之后的请求失败不再覆盖
+    private boolean statisticsShown;
     
     // 下拉刷新组件
     private androidx.swiperefreshlayout.widget.SwipeRefreshLayout swipeRefreshLayout;
@@ -80,8 +88,8 @@ public class ProfileFragment extends Fragment {
         initViews(view);
         setupSupabase();
         setupClickListeners();
-        loadUserData();
-        // loadStatistics() 会在 loadUserData() 成功后自动调用
+        loadUserData(ReadPolicy.CACHE_THEN_NETWORK);
+        // 统计数据在onResume中加载
     }
     
     /**
@@ -90,12 +98,9 @@ public class ProfileFragment extends Fragment {
     private void refreshAllData() {
         Log.d(TAG, "开始刷新所有数据");
         
-        // 重置数据
-        currentUser = null;
-        
-        // 重新加载数据
-        loadUserData();
-        loadStatistics();
+        // 重新加载数据（失败时保留当前显示的数据）
+        loadUserData(ReadPolicy.NETWORK_ONLY);
+        loadStatistics(ReadPolicy.NETWORK_ONLY);
         
         // 延迟停止刷新动画，确保数据加载完成
         new android.os.Handler().postDelayed(() -> {
@@ -228,7 +233,7 @@ public class ProfileFragment extends Fragment {
         }
     }
     
-    private void loadUserData() {
+    private void loadUserData(ReadPolicy policy) {
         // 使用AuthManager获取用户信息
         AuthManager authManager = AuthManager.getInstance(requireContext());
         String userId = authManager.getCurrentUserId();
@@ -239,33 +244,35 @@ public class ProfileFragment extends Fragment {
             userName.setText(username != null ? username : "AI刷题用户");
         }
         
-        // 从Supabase user_profiles表获取用户数据 - 使用按ID查询的方法
-        supabaseManager.getUserProfileById(userId, new OperationCallback<String>() {
+        // 从Supabase user_profiles表获取用户数据 - 先显示缓存的档案，再用网络结果刷新
+        SupabaseUserRepository.getInstance().getUserProfileJson(requireContext(), userId, policy,
+                new SupabaseCacheManager.ReadCallback<String>() {
             @Override
-            public void onSuccess(String userProfileJson) {
+            public void onData(String userProfileJson, boolean fromCache) {
+                if (!isAdded()) {
+                    return;
+                }
                 // 解析JSON为SupabaseUserProfile对象
                 try {
                     currentUser = parseUserProfileFromJson(userProfileJson);
                     updateUserInfo(currentUser);
-                    Log.i(TAG, "用户档案加载成功: " + currentUser.getDisplayName());
-                    
-                    // 用户数据加载成功后，再加载统计数据
-                    loadStatistics();
+                    Log.i(TAG, "用户档案加载成功" + (fromCache ? "(缓存): " : ": ") + currentUser.getDisplayName());
                 } catch (Exception e) {
                     Log.e(TAG, "用户档案解析失败", e);
                     currentUser = createDefaultUserProfile(userId);
                     updateUserInfo(currentUser);
-                    loadStatistics();
                 }
             }
             
             @Override
             public void onError(Exception error) {
                 Log.e(TAG, "用户档案加载失败", error);
+                if (!isAdded() || currentUser != null) {
+                    return;
+                }
                 // 使用默认用户信息
                 currentUser = createDefaultUserProfile(userId);
                 updateUserInfo(currentUser);
-                loadStatistics();
             }
         });
     }
@@ -364,123 +371,48 @@ public class ProfileFragment extends Fragment {
         }
     }
     
-    private void loadStatistics() {
+    private void loadStatistics(ReadPolicy policy) {
         // 从Supabase加载用户统计数据
-        loadUserStatisticsFromSupabase();
+        loadUserStatisticsFromSupabase(policy);
     }
     
     /**
      * 从Supabase加载用户统计数据
+     * 答题数、正确数、错题数只请求计数；先显示缓存的统计，再用网络结果刷新
      */
-    private void loadUserStatisticsFromSupabase() {
-        if (currentUser == null) {
-            Log.w(TAG, "用户档案为空，无法加载统计数据");
-            loadMockStatistics();
-            return;
-        }
+    private void loadUserStatisticsFromSupabase(ReadPolicy policy) {
+        String userId = AuthManager.getInstance(requireContext()).getCurrentUserId();
         
-        // 获取用户错题数量
-        loadWrongQuestionCount();
-        
-        // 获取用户学习统计（最近7天）
-        loadStudyStatistics();
-    }
-    
-    /**
-     * 加载错题数量
-     */
-    private void loadWrongQuestionCount() {
-        supabaseManager.getUserWrongQuestions(currentUser.getId(), new OperationCallback<String>() {
+        SupabaseUserRepository.getInstance().getStudyStatistics(requireContext(), userId, policy,
+                new SupabaseCacheManager.ReadCallback<SupabaseUserRepository.StudyStats>() {
             @Override
-            public void onSuccess(String wrongQuestionsJson) {
-                // 简单解析错题数量（实际应该使用JSON库）
-                int wrongCountValue = parseWrongQuestionCount(wrongQuestionsJson);
-                requireActivity().runOnUiThread(() -> {
-                    wrongCount.setText(String.valueOf(wrongCountValue));
-                    Log.d(TAG, "错题数量更新: " + wrongCountValue);
-                });
+            public void onData(SupabaseUserRepository.StudyStats stats, boolean fromCache) {
+                if (!isAdded()) {
+                    return;
+                }
+                statisticsShown = true;
+                totalQuestions.setText(String.valueOf(stats.getTotalAnswers()));
+                accuracyRate.setText(String.format(Locale.getDefault(), "%.1f%%", stats.getAccuracy()));
+                wrongCount.setText(String.valueOf(stats.getWrongCount()));
+                
+                Log.d(TAG, "统计数据" + (fromCache ? "(缓存)" : "") + " (userId=" + userId + "): 总题数=" + stats.getTotalAnswers() +
+                      ", 正确数=" + stats.getCorrectAnswers() + ", 错题数=" + stats.getWrongCount());
             }
             
             @Override
             public void onError(Exception error) {
-                Log.e(TAG, "加载错题数量失败", error);
-                requireActivity().runOnUiThread(() -> {
-                    wrongCount.setText("0");
-                });
-            }
-        });
-    }
-    
-    /**
-     * 加载学习统计数据
-     */
-    private void loadStudyStatistics() {
-        if (currentUser == null) return;
-        
-        // 从answer_records表动态计算统计数据（更准确）
-        calculateStatisticsFromAnswerRecords();
-        
-        // 从用户档案获取基本统计（作为备用）
-        updateStatisticsFromUserProfile(currentUser);
-    }
-    
-    /**
-     * 从answer_records表计算统计数据（动态计算，更准确）
-     */
-    private void calculateStatisticsFromAnswerRecords() {
-        if (currentUser == null) return;
-        
-        // 获取当前用户ID
-        AuthManager authManager = AuthManager.getInstance(requireContext());
-        String userId = authManager.getCurrentUserId();
-        
-        // 使用SimpleSupabaseClient查询answer_records表
-        com.example.aitestbank.supabase.SimpleSupabaseClient simpleClient =
-            com.example.aitestbank.supabase.SimpleSupabaseClient.getInstance();
-        
-        new Thread(() -> {
-            try {
-                // 查询当前用户的答题记录 - 使用filter参数
-                String filter = "user_id=eq." + userId;
-                String result = simpleClient.query("answer_records", "*", filter);
-                org.json.JSONArray jsonArray = new org.json.JSONArray(result);
-                
-                // 过滤出当前用户的记录
-                final int[] userTotalQuestions = {0};
-                final int[] userCorrectQuestions = {0};
-                
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    org.json.JSONObject obj = jsonArray.getJSONObject(i);
-                    
-                    // 确保只统计当前用户的记录
-                    String recordUserId = obj.optString("user_id", "");
-                    if (recordUserId.equals(userId)) {
-                        userTotalQuestions[0]++;
-                        
-                        if (obj.getBoolean("is_correct")) {
-                            userCorrectQuestions[0]++;
-                        }
-                    }
+                Log.e(TAG, "加载统计数据失败", error);
+                if (!isAdded() || statisticsShown) {
+                    return;
                 }
-                
-                // 计算正确率
-                final float accuracy = userTotalQuestions[0] > 0 ?
-                    (userCorrectQuestions[0] * 100.0f / userTotalQuestions[0]) : 0.0f;
-                
-                requireActivity().runOnUiThread(() -> {
-                    totalQuestions.setText(String.valueOf(userTotalQuestions[0]));
-                    accuracyRate.setText(String.format(Locale.getDefault(), "%.1f%%", accuracy));
-                    
-                    Log.d(TAG, "从answer_records计算统计数据 (userId=" + userId + "): 总题数=" + userTotalQuestions[0] +
-                          ", 正确数=" + userCorrectQuestions[0] + ", 正确率=" + accuracy);
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "从answer_records计算统计数据失败", e);
                 // 降级到使用用户档案数据
-                updateStatisticsFromUserProfile(currentUser);
+                if (currentUser != null) {
+                    updateStatisticsFromUserProfile(currentUser);
+                } else {
+                    loadMockStatistics();
+                }
             }
-        }).start();
+        });
     }
     
     /**
@@ -525,26 +457,35 @@ public class ProfileFragment extends Fragment {
     private void clearAppCache() {
         // 清除应用缓存
         try {
+            // 数据缓存只让全部命名空间失效（常数时间），旧条目在写入通道上回收
+            CacheNamespaces.getInstance(requireContext()).invalidateAll();
+            // AI解析缓存不分用户，单独清空
+            com.example.aitestbank.service.AIAnalysisCache.getInstance(requireContext()).clear();
+            
             // 清理SharedPreferences缓存
             clearSharedPreferencesCache();
             
-            // 清理图片缓存
-            clearImageCache();
-            
-            // 清理网络缓存
-            clearNetworkCache();
-            
             // 清理数据库缓存（如果适用）
             clearDatabaseCache();
             
-            // 清理文件缓存
-            clearFileCache();
+            // 删除文件可能较慢，放到后台执行
+            android.content.Context appContext = requireContext().getApplicationContext();
+            AppExecutors.getInstance().networkIO(AppExecutors.Priority.BACKGROUND).execute(() -> {
+                // 清理图片缓存
+                clearImageCache(appContext);
+                
+                // 清理网络缓存
+                clearNetworkCache(appContext);
+                
+                // 清理文件缓存
+                clearFileCache(appContext);
+                
+                Log.i(TAG, "应用缓存文件清理完成");
+            });
             
             // 显示清理结果
             showCacheClearedMessage();
             
-            Log.i(TAG, "应用缓存清理完成");
-            
         } catch (Exception e) {
             Log.e(TAG, "Failed to clear cache", e);
             if (isAdded() && getContext() != null) {
@@ -575,17 +516,22 @@ public class ProfileFragment extends Fragment {
     /**
      * 清理图片缓存
      */
-    private void clearImageCache() {
+    private void clearImageCache(android.content.Context context) {
         try {
-            // 清理应用内部缓存目录
-            var cacheDir = requireContext().getCacheDir();
-            if (cacheDir != null && cacheDir.exists()) {
-                deleteDirectory(cacheDir);
+            // 清理应用内部缓存目录，数据缓存的存储目录由其自身按命名空间回收，不直接删除
+            var cacheDir = context.getCacheDir();
+            var children = cacheDir != null ? cacheDir.listFiles() : null;
+            if (children != null) {
+                for (var child : children) {
+                    if (!DiskCacheStore.isStoreDirectory(child)) {
+                        deleteDirectory(child);
+                    }
+                }
                 Log.d(TAG, "图片缓存清理完成");
             }
             
             // 清理外部缓存目录
-            var externalCacheDir = requireContext().getExternalCacheDir();
+            var externalCacheDir = context.getExternalCacheDir();
             if (externalCacheDir != null && externalCacheDir.exists()) {
                 deleteDirectory(externalCacheDir);
                 Log.d(TAG, "外部缓存清理完成");
@@ -598,17 +544,10 @@ public class ProfileFragment extends Fragment {
     /**
      * 清理网络缓存
      */
-    private void clearNetworkCache() {
+    private void clearNetworkCache(android.content.Context context) {
         try {
-            // 清理OkHttp缓存（如果使用了OkHttp）
+            // 网络缓存的目录由共享传输层管理，只能通过它清空，直接删除文件会破坏正在使用的索引
             clearOkHttpCache();
-            
-            // 清理HTTP响应缓存
-            var httpCacheDir = new java.io.File(requireContext().getCacheDir(), "http_cache");
-            if (httpCacheDir.exists()) {
-                deleteDirectory(httpCacheDir);
-                Log.d(TAG, "HTTP缓存清理完成");
-            }
         } catch (Exception e) {
             Log.e(TAG, "清理网络缓存失败", e);
         }
@@ -630,10 +569,10 @@ public class ProfileFragment extends Fragment {
     /**
      * 清理文件缓存
      */
-    private void clearFileCache() {
+    private void clearFileCache(android.content.Context context) {
         try {
             // 清理应用特定的文件缓存目录
-            var filesDir = requireContext().getFilesDir();
+            var filesDir = context.getFilesDir();
             var tempDir = new java.io.File(filesDir, "temp");
             if (tempDir.exists()) {
                 deleteDirectory(tempDir);
@@ -649,8 +588,8 @@ public class ProfileFragment extends Fragment {
      */
     private void clearOkHttpCache() {
         try {
-            // 如果项目使用了OkHttp，可以清理其缓存
-            // 这里可以添加清理OkHttp缓存的逻辑
+            // 清空共享传输层的题库响应存储
+            com.example.aitestbank.supabase.http.SupabaseHttpClient.getInstance().clearCache();
             Log.d(TAG, "OkHttp缓存清理完成");
         } catch (Exception e) {
             Log.e(TAG, "清理OkHttp缓存失败", e);
@@ -773,34 +712,10 @@ public class ProfileFragment extends Fragment {
         }
     }
     
-    /**
-     * 解析错题数量（简单计数JSON数组项数）
-     */
-    private int parseWrongQuestionCount(String jsonArray) {
-        if (jsonArray == null || jsonArray.equals("[]") || jsonArray.isEmpty()) {
-            return 0;
-        }
-        
-        // 简单计算逗号数量+1来估算项数
-        int bracketLevel = 0;
-        int itemCount = 0;
-        
-        for (int i = 0; i < jsonArray.length(); i++) {
-            char c = jsonArray.charAt(i);
-            if (c == '{') bracketLevel++;
-            else if (c == '}') bracketLevel--;
-            else if (c == ',' && bracketLevel == 0) {
-                itemCount++;
-            }
-        }
-        
-        return itemCount + 1; // 最后一项后面没有逗号
-    }
-    
     @Override
     public void onResume() {
         super.onResume();
-        // 每次回到个人中心时刷新数据
-        loadStatistics();
+        // 每次回到个人中心时刷新数据：先显示缓存，过期或有新答题记录时后台刷新
+        loadStatistics(ReadPolicy.STALE_WHILE_REVALIDATE);
     }
 }
\ No newline at end of file
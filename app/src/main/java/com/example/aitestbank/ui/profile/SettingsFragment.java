@@ -15,6 +15,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import com.example.aitestbank.R;
+import com.example.aitestbank.supabase.cache.CacheNamespaces;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 public class SettingsFragment extends Fragment {
@@ -159,10 +160,12 @@ public class SettingsFragment extends Fragment {
      */
     private void clearAppCache() {
         try {
-            // 清除SharedPreferences缓存
-            // 清除图片缓存
+            // 数据缓存按命名空间整体失效，旧条目在写入通道上回收
+            CacheNamespaces.getInstance(requireContext()).invalidateAll();
+            // AI解析缓存不分用户，单独清空
+            com.example.aitestbank.service.AIAnalysisCache.getInstance(requireContext()).clear();
             // 清除网络缓存
-            // 这里调用ProfileFragment中的清除缓存方法
+            com.example.aitestbank.supabase.http.SupabaseHttpClient.getInstance().clearCache();
             
             Toast.makeText(getContext(), "缓存清除成功", Toast.LENGTH_SHORT).show();
             calculateCacheSize(); // 重新计算缓存大小
@@ -18,10 +18,15 @@ import androidx.fragment.app.Fragment;
 
 import com.example.aitestbank.R;
 import com.example.aitestbank.model.Question;
+import com.example.aitestbank.model.SupabaseWrongQuestion;
 import com.example.aitestbank.service.AIService;
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.converter.RowDecoders;
+import com.example.aitestbank.supabase.repository.SupabaseQuestionRepository;
 import com.example.aitestbank.ui.result.ExamResultFragment;
+import com.example.aitestbank.utils.CacheUtils;
 import com.example.aitestbank.utils.OperationCallback;
+import com.example.aitestbank.utils.AppExecutors;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -69,6 +74,10 @@ public class QuestionFragment extends Fragment {
     // AI服务
     private AIService aiService;
     private boolean isAIExpanded = false;
+    // 正在进行的流式解析请求，切换题目时取消
+    private retrofit2.Call<?> aiAnalysisCall;
+    // 每次发起或取消解析加一，回调据此丢弃过期题目的结果
+    private int aiAnalysisGeneration = 0;
     
     // 数据和客户端
     private SimpleSupabaseClient supabaseClient;
@@ -87,6 +96,12 @@ public class QuestionFragment extends Fragment {
         return inflater.inflate(R.layout.fragment_question, container, false);
     }
     
+    @Override
+    public void onDestroyView() {
+        cancelAIAnalysis();
+        super.onDestroyView();
+    }
+    
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
@@ -207,13 +222,12 @@ public class QuestionFragment extends Fragment {
     }
     
     private void loadRandomQuestions() {
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
-                // 随机练习模式：获取随机题目
-                String result = supabaseClient.query("questions", "*", "order=random()&limit=10");
-                Log.d(TAG, "Random questions from Supabase: " + result);
-                
-                List<Question> loadedQuestions = parseQuestionsFromSupabase(result);
+                // 随机练习模式：获取随机题目，边下载边解码
+                List<Question> loadedQuestions = supabaseClient.queryList("questions", "*", "order=random()&limit=10",
+                        RowDecoders.QUESTION);
+                Log.d(TAG, "Random questions from Supabase: " + loadedQuestions.size());
                 
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
@@ -228,8 +242,7 @@ public class QuestionFragment extends Fragment {
                     }
                     
                     if (loadedQuestions != null && !loadedQuestions.isEmpty()) {
-                        questions.clear();
-                        questions.addAll(loadedQuestions);
+                        questions = new ArrayList<>(loadedQuestions);
                         currentQuestionIndex = 0;
                         initializeUserAnswers();
                         displayCurrentQuestion();
@@ -263,17 +276,21 @@ public class QuestionFragment extends Fragment {
                     }
                 });
             }
-        }).start();
+        });
     }
     
     private void loadWrongQuestions() {
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
-                // 错题复习模式：获取错题
-                String result = supabaseClient.query("wrong_questions", "*", "is_mastered=eq.false&limit=10");
-                Log.d(TAG, "Wrong questions from Supabase: " + result);
-                
-                List<Question> loadedQuestions = parseWrongQuestionsFromSupabase(result);
+                // 错题复习模式：获取错题，边下载边解码；原始错题行缓存下来供离线复习
+                List<SupabaseWrongQuestion> rows = supabaseClient.queryList("wrong_questions", "*", "is_mastered=eq.false&limit=10",
+                        RowDecoders.WRONG_QUESTION);
+                CacheUtils.cacheWrongQuestions(rows);
+                List<Question> loadedQuestions = new ArrayList<>(rows.size());
+                for (SupabaseWrongQuestion row : rows) {
+                    loadedQuestions.add(toReviewQuestion(row));
+                }
+                Log.d(TAG, "Wrong questions from Supabase: " + loadedQuestions.size());
                 
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
@@ -288,8 +305,7 @@ public class QuestionFragment extends Fragment {
                     }
                     
                     if (loadedQuestions != null && !loadedQuestions.isEmpty()) {
-                        questions.clear();
-                        questions.addAll(loadedQuestions);
+                        questions = new ArrayList<>(loadedQuestions);
                         currentQuestionIndex = 0;
                         initializeUserAnswers();
                         displayCurrentQuestion();
@@ -322,6 +338,17 @@ public class QuestionFragment extends Fragment {
                         return;
                     }
                     
+                    // 网络不可用时使用上次缓存的错题，按题号逐条解码
+                    List<SupabaseWrongQuestion> cachedRows = CacheUtils.getCachedWrongQuestions();
+                    if (cachedRows != null && !cachedRows.isEmpty()) {
+                        questions = reviewQuestionsOf(cachedRows);
+                        currentQuestionIndex = 0;
+                        initializeUserAnswers();
+                        displayCurrentQuestion();
+                        Toast.makeText(getContext(), "网络不可用，复习上次缓存的 " + questions.size() + " 道错题", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    
                     if (isAdded() && getContext() != null) {
                         Toast.makeText(getContext(), "错题加载失败，请检查网络连接", Toast.LENGTH_SHORT).show();
                     }
@@ -331,17 +358,17 @@ public class QuestionFragment extends Fragment {
                     }
                 });
             }
-        }).start();
+        });
     }
     
     private void loadQuestionsFromSupabase() {
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
-                // 查询questions表获取题目数据
-                String result = supabaseClient.query("questions", "*", "limit=10");
-                Log.d(TAG, "Questions from Supabase: " + result);
-                
-                List<Question> loadedQuestions = parseQuestionsFromSupabase(result);
+                // 查询questions表获取题目数据，题库未变化时使用存盘的响应，不重新下载
+                List<Question> loadedQuestions = SupabaseQuestionRepository.getInstance().queryQuestions("limit=10");
+                if (loadedQuestions != null && !loadedQuestions.isEmpty()) {
+                    CacheUtils.cacheQuestions(loadedQuestions);
+                }
                 
                 // 检查Fragment是否仍然有效
                 if (!isAdded() || getActivity() == null) {
@@ -356,8 +383,7 @@ public class QuestionFragment extends Fragment {
                     }
                     
                     if (loadedQuestions != null && !loadedQuestions.isEmpty()) {
-                        questions.clear();
-                        questions.addAll(loadedQuestions);
+                        questions = new ArrayList<>(loadedQuestions);
                         currentQuestionIndex = 0;
                         initializeUserAnswers();
                         displayCurrentQuestion();
@@ -385,101 +411,63 @@ public class QuestionFragment extends Fragment {
                         return;
                     }
                     
+                    // 优先使用上次缓存的题目，显示哪道题才解码哪道
+                    List<Question> cachedQuestions = CacheUtils.getCachedQuestions();
+                    if (cachedQuestions != null && !cachedQuestions.isEmpty()) {
+                        questions = cachedQuestions;
+                        currentQuestionIndex = 0;
+                        initializeUserAnswers();
+                        displayCurrentQuestion();
+                        Toast.makeText(getContext(), "网络错误，显示上次缓存的题目", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    
                     if (isAdded() && getContext() != null) {
                         Toast.makeText(getContext(), "网络错误，显示示例题目", Toast.LENGTH_SHORT).show();
                     }
                     loadMockQuestions();
                 });
             }
-        }).start();
+        });
     }
     
-    private List<Question> parseQuestionsFromSupabase(String jsonResult) {
-        try {
-            List<Question> questionList = new ArrayList<>();
-            
-            JSONArray jsonArray = new JSONArray(jsonResult);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                
-                Question question = new Question();
-                question.setId(obj.getString("id"));
-                question.setTitle(obj.getString("title"));
-                question.setCorrectAnswer(obj.getInt("correct_answer"));
-                question.setAnalysis(obj.optString("analysis", "暂无解析"));
-                question.setCategory(obj.optString("category", "未分类"));
-                question.setDifficulty(obj.optInt("difficulty", 3));
-                question.setType(obj.optString("type", "single_choice"));
-                
-                // 解析选项（假设options是JSON数组字符串）
-                String optionsStr = obj.optString("options", "[]");
-                List<String> options = parseOptions(optionsStr);
-                question.setOptions(options);
-                
-                questionList.add(question);
-            }
-            
-            return questionList;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse questions JSON", e);
-            return null;
-        }
+    /**
+     * 错题行转换为复习用的题目
+     */
+    private Question toReviewQuestion(SupabaseWrongQuestion row) {
+        Question question = new Question();
+        question.setId(row.getQuestionId() != null ? row.getQuestionId() : "");
+        question.setTitle(row.getQuestionTitle() != null ? row.getQuestionTitle() : "错题");
+        question.setCategory(row.getCategory() != null ? row.getCategory() : "错题复习");
+        question.setDifficulty(row.getDifficulty() != null ? row.getDifficulty() : 3);
+        question.setType(row.getType() != null ? row.getType() : "single_choice");
+        question.setAnalysis(row.getWrongReason() != null ? row.getWrongReason() : "需要重点复习");
+        question.setOptions(row.getOptions() != null ? row.getOptions() : RowDecoders.defaultOptions());
+        
+        // 设置正确答案（对于错题，可能需要从原题获取，这里简化处理）
+        question.setCorrectAnswer(0);
+        return question;
     }
     
-    private List<Question> parseWrongQuestionsFromSupabase(String jsonResult) {
-        try {
-            List<Question> questionList = new ArrayList<>();
-            
-            JSONArray jsonArray = new JSONArray(jsonResult);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                
-                // 从错题表中获取题目数据
-                Question question = new Question();
-                question.setId(obj.optString("question_id", ""));
-                question.setTitle(obj.optString("question_title", "错题"));
-                question.setCategory(obj.optString("category", "错题复习"));
-                question.setDifficulty(obj.optInt("difficulty", 3));
-                question.setType(obj.optString("type", "single_choice"));
-                question.setAnalysis(obj.optString("wrong_reason", "需要重点复习"));
-                
-                // 解析选项（假设options是JSON数组字符串）
-                String optionsStr = obj.optString("options", "[]");
-                List<String> options = parseOptions(optionsStr);
-                question.setOptions(options);
-                
-                // 设置正确答案（对于错题，可能需要从原题获取，这里简化处理）
-                question.setCorrectAnswer(0);
-                
-                questionList.add(question);
+    /**
+     * 缓存的错题行按需转换为复习题目，转换结果按下标保留
+     */
+    private List<Question> reviewQuestionsOf(List<SupabaseWrongQuestion> rows) {
+        Question[] converted = new Question[rows.size()];
+        return new java.util.AbstractList<Question>() {
+            @Override
+            public Question get(int index) {
+                if (converted[index] == null) {
+                    converted[index] = toReviewQuestion(rows.get(index));
+                }
+                return converted[index];
             }
             
-            return questionList;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse wrong questions JSON", e);
-            return null;
-        }
-    }
-    
-    private List<String> parseOptions(String optionsStr) {
-        try {
-            List<String> options = new ArrayList<>();
-            JSONArray jsonArray = new JSONArray(optionsStr);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                options.add(jsonArray.getString(i));
+            @Override
+            public int size() {
+                return converted.length;
             }
-            return options;
-        } catch (Exception e) {
-            // 如果解析失败，返回默认选项
-            List<String> defaultOptions = new ArrayList<>();
-            defaultOptions.add("选项A");
-            defaultOptions.add("选项B");
-            defaultOptions.add("选项C");
-            defaultOptions.add("选项D");
-            return defaultOptions;
-        }
+        };
     }
     
     private void loadSingleQuestionFromArgs(Bundle args) {
@@ -509,7 +497,7 @@ public class QuestionFragment extends Fragment {
         }
         
         // 添加到题目列表
-        questions.clear();
+        questions = new ArrayList<>();
         questions.add(question);
         currentQuestionIndex = 0;
         initializeUserAnswers();
@@ -534,7 +522,7 @@ public class QuestionFragment extends Fragment {
     
     private void loadMockQuestions() {
         // 模拟数据作为fallback
-        questions.clear();
+        questions = new ArrayList<>();
         
         // 创建示例题目
         Question q1 = new Question();
@@ -598,7 +586,8 @@ public class QuestionFragment extends Fragment {
         // 生成选项
         generateOptions(currentQuestion);
 
-        // 隐藏解析
+        // 隐藏解析，取消上一题未完成的AI解析
+        cancelAIAnalysis();
         aiAnalysisContainer.setVisibility(View.GONE);
         
         // 检查当前题目是否已答题但未查看解析
@@ -781,11 +770,11 @@ public class QuestionFragment extends Fragment {
     
 
     /**
-     * 显示AI解析进度
+     * 显示AI解析进度（在解析区域内显示，收到第一段内容后被替换）
      */
     private void showAIProgress(boolean show) {
-        if (show && isAdded() && getContext() != null) {
-            Toast.makeText(getContext(), "AI正在生成智能解析...", Toast.LENGTH_SHORT).show();
+        if (show && aiAnalysisText != null) {
+            aiAnalysisText.setText("🤖 AI正在生成智能解析...");
         }
     }
     
@@ -1015,11 +1004,62 @@ public class QuestionFragment extends Fragment {
             if (userAnswerIndex == -1) userAnswerIndex = null;
         }
         
-        // 生成AI分析
-        AIService.AIAnalysisResult analysisResult = generateAIAnalysisResult(currentQuestion, userAnswerIndex);
+        // 展开解析区域，流式内容到达后逐步显示
+        isAIExpanded = true;
+        aiAnalysisContent.setVisibility(View.VISIBLE);
+        showAIProgress(true);
+        
+        requestAIAnalysis(currentQuestion, userAnswerIndex);
+    }
+    
+    /**
+     * 流式请求AI解析，部分结果到达时即刷新；失败时显示本地生成的解析
+     */
+    private void requestAIAnalysis(Question question, Integer userAnswerIndex) {
+        cancelAIAnalysis();
+        final int generation = aiAnalysisGeneration;
+        String userAnswer = userAnswerIndex != null ? String.valueOf(userAnswerIndex) : null;
         
-        // 显示分析结果
-        displayAIAnalysis(analysisResult);
+        aiAnalysisCall = aiService.getAIAnalysisStream(question, userAnswer, new AIService.AIStreamCallback() {
+            @Override
+            public void onPartial(AIService.AIAnalysisResult result) {
+                if (isCurrentAIRequest(generation)) {
+                    displayAIAnalysis(result);
+                }
+            }
+            
+            @Override
+            public void onSuccess(AIService.AIAnalysisResult result) {
+                if (isCurrentAIRequest(generation)) {
+                    aiAnalysisCall = null;
+                    displayAIAnalysis(result);
+                }
+            }
+            
+            @Override
+            public void onFailure(String errorMessage) {
+                if (isCurrentAIRequest(generation)) {
+                    Log.w(TAG, "AI解析失败，显示本地解析: " + errorMessage);
+                    aiAnalysisCall = null;
+                    displayAIAnalysis(generateAIAnalysisResult(question, userAnswerIndex));
+                }
+            }
+        });
+    }
+    
+    private boolean isCurrentAIRequest(int generation) {
+        return generation == aiAnalysisGeneration && isAdded() && aiAnalysisText != null;
+    }
+    
+    /**
+     * 取消进行中的AI解析，之后到达的回调都会被忽略
+     */
+    private void cancelAIAnalysis() {
+        aiAnalysisGeneration++;
+        if (aiAnalysisCall != null) {
+            aiAnalysisCall.cancel();
+            aiAnalysisCall = null;
+        }
     }
     
     /**
@@ -1038,8 +1078,25 @@ public class QuestionFragment extends Fragment {
      * 显示AI分析结果
      */
     private void displayAIAnalysis(AIService.AIAnalysisResult analysisResult) {
-        if (analysisResult != null && analysisResult.getAnalysisText() != null) {
-            aiAnalysisText.setText(analysisResult.getAnalysisText());
+        if (analysisResult == null || analysisResult.getAnalysisText() == null) {
+            return;
+        }
+        
+        StringBuilder text = new StringBuilder(analysisResult.getAnalysisText());
+        appendAnalysisSection(text, "💡 **解题步骤**", analysisResult.getSolutionSteps(), true);
+        appendAnalysisSection(text, "📚 **核心考点**", analysisResult.getKeyPoints(), false);
+        appendAnalysisSection(text, "⚠️ **易错点提醒**", analysisResult.getCommonMistakes(), false);
+        appendAnalysisSection(text, "🎯 **学习建议**", analysisResult.getRecommendations(), false);
+        aiAnalysisText.setText(text.toString());
+    }
+    
+    private void appendAnalysisSection(StringBuilder text, String title, List<String> items, boolean numbered) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        text.append("\n\n").append(title).append("\n");
+        for (int i = 0; i < items.size(); i++) {
+            text.append(numbered ? (i + 1) + ". " : "- ").append(items.get(i)).append("\n");
         }
     }
     
@@ -1047,6 +1104,7 @@ public class QuestionFragment extends Fragment {
      * 在显示新题目时重置AI解析状态
      */
     private void resetAIAnalysis() {
+        cancelAIAnalysis();
         aiAnalysisContainer.setVisibility(View.GONE);
         isAIExpanded = false;
         aiAnalysisContent.setVisibility(View.GONE);
@@ -1409,7 +1467,8 @@ public class QuestionFragment extends Fragment {
             return;
         }
         
-        int wrongCount = 0;
+        List<Question> wrongList = new ArrayList<>();
+        List<Integer> wrongAnswers = new ArrayList<>();
         
         for (int i = 0; i < questions.size(); i++) {
             if (i < userAnswers.size() && userAnswers.get(i) != -1) {
@@ -1420,78 +1479,123 @@ public class QuestionFragment extends Fragment {
                 if (question.getCorrectAnswer() != null && !userAnswer.equals(question.getCorrectAnswer())) {
                     Log.d(TAG, "发现错题: 题目ID=" + question.getId() + 
                           ", 用户答案=" + userAnswer + ", 正确答案=" + question.getCorrectAnswer());
-                    saveWrongQuestionToDatabase(question, userAnswer);
-                    wrongCount++;
+                    wrongList.add(question);
+                    wrongAnswers.add(userAnswer);
                 }
             }
         }
         
-        Log.d(TAG, "错题保存完成，共发现 " + wrongCount + " 道错题");
+        Log.d(TAG, "共发现 " + wrongList.size() + " 道错题");
+        if (wrongList.isEmpty()) {
+            return;
+        }
+        
+        String userId = com.example.aitestbank.supabase.auth.AuthManager.getInstance(requireContext()).getCurrentUserId();
+        AppExecutors.getInstance().writer().execute(() -> saveWrongQuestionsToSupabase(userId, wrongList, wrongAnswers));
     }
     
     /**
-     * 保存错题到数据库
+     * 批量保存错题
+     * 一次查询找出已在错题本中的题目，已有的更新复习次数，新的错题分块批量插入
      */
-    private void saveWrongQuestionToDatabase(Question question, Integer userAnswer) {
-        // 获取当前用户ID
-        com.example.aitestbank.supabase.auth.AuthManager authManager = 
-            com.example.aitestbank.supabase.auth.AuthManager.getInstance(requireContext());
-        String currentUserId = authManager.getCurrentUserId();
-        
-        // 调用Supabase API保存错题记录
-        Log.d(TAG, "保存错题记录: 题目ID=" + question.getId() + 
-              ", 用户答案=" + userAnswer + ", 正确答案=" + question.getCorrectAnswer() + 
-              ", 用户ID=" + currentUserId);
-        
-        // 构建错题数据
-        org.json.JSONObject wrongQuestionData = new org.json.JSONObject();
+    private void saveWrongQuestionsToSupabase(String userId, List<Question> wrongList, List<Integer> wrongAnswers) {
+        // 如果用户ID为空，说明用户未登录，不保存错题
+        if (userId == null || userId.isEmpty()) {
+            Log.e(TAG, "用户未登录，无法保存错题");
+            return;
+        }
+        
         try {
-            // 生成唯一ID
-            wrongQuestionData.put("id", java.util.UUID.randomUUID().toString());
-            wrongQuestionData.put("user_id", currentUserId); // 使用真实用户ID
-            wrongQuestionData.put("question_id", question.getId());
-            wrongQuestionData.put("question_title", question.getTitle());
-            wrongQuestionData.put("user_answer", userAnswer);
-            wrongQuestionData.put("correct_answer", question.getCorrectAnswer());
-            wrongQuestionData.put("category", question.getCategory());
-            wrongQuestionData.put("difficulty", question.getDifficulty());
-            wrongQuestionData.put("type", question.getType());
+            StringBuilder idList = new StringBuilder();
+            for (Question question : wrongList) {
+                if (idList.length() > 0) idList.append(",");
+                idList.append(question.getId());
+            }
             
-            // 解析选项为JSON字符串
-            List<String> options = question.getOptions();
-            if (options != null && !options.isEmpty()) {
-                wrongQuestionData.put("options", new org.json.JSONArray(options));
+            String existingResult = supabaseClient.query("wrong_questions", "id,question_id,review_count", 
+                "question_id=in.(" + idList + ")&user_id=eq." + userId);
+            java.util.Map<String, JSONObject> existingRows = new java.util.HashMap<>();
+            JSONArray existingArray = new JSONArray(existingResult);
+            for (int i = 0; i < existingArray.length(); i++) {
+                JSONObject row = existingArray.getJSONObject(i);
+                existingRows.put(row.getString("question_id"), row);
             }
             
-            wrongQuestionData.put("analysis", question.getAnalysis());
-            wrongQuestionData.put("review_count", 1); // 初始复习次数为1
-            wrongQuestionData.put("mastery_level", 1); // 初始掌握等级为1
-            wrongQuestionData.put("is_mastered", false); // 初始未掌握
+            String currentDate = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date());
+            List<com.example.aitestbank.model.SupabaseWrongQuestion> newWrongQuestions = new ArrayList<>();
+            List<com.google.gson.JsonObject> existingUpdates = new ArrayList<>();
             
-            // 设置日期字段（数据库是date类型，需要转换为日期格式）
-            long currentTime = System.currentTimeMillis();
-            wrongQuestionData.put("last_review_date", new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date(currentTime)));
-            wrongQuestionData.put("next_review_date", new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date(currentTime + 24 * 60 * 60 * 1000))); // 明天复习
+            for (int i = 0; i < wrongList.size(); i++) {
+                Question question = wrongList.get(i);
+                JSONObject existing = existingRows.get(question.getId());
+                
+                if (existing != null) {
+                    // 已存在记录，更新复习次数和最后复习时间
+                    com.google.gson.JsonObject updateData = new com.google.gson.JsonObject();
+                    updateData.addProperty("id", existing.getString("id"));
+                    updateData.addProperty("review_count", existing.optInt("review_count", 1) + 1);
+                    updateData.addProperty("last_review_date", currentDate);
+                    updateData.addProperty("is_mastered", false); // 重新标记为未掌握
+                    existingUpdates.add(updateData);
+                } else {
+                    newWrongQuestions.add(buildWrongQuestion(userId, question, wrongAnswers.get(i)));
+                }
+            }
             
-            // 时间戳字段需要转换为ISO格式字符串
-            wrongQuestionData.put("created_at", new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(new java.util.Date(currentTime)));
+            if (!existingUpdates.isEmpty()) {
+                com.example.aitestbank.supabase.batch.BatchResult updateResult = 
+                    com.example.aitestbank.supabase.batch.BatchOperationManager.getInstance()
+                        .bulkUpdateSync("wrong_questions", existingUpdates);
+                Log.d(TAG, "已有错题批量更新完成: " + updateResult);
+            }
             
-            // 调试：打印构建的错题数据
-            Log.d(TAG, "构建的错题数据: " + wrongQuestionData.toString());
+            if (newWrongQuestions.isEmpty()) {
+                return;
+            }
             
-            // 调用Supabase API插入错题记录
-            saveWrongQuestionToSupabase(wrongQuestionData);
+            com.example.aitestbank.supabase.batch.BatchOperationManager.getInstance()
+                .batchInsertWrongQuestionsWithResult(newWrongQuestions, 
+                    new com.example.aitestbank.supabase.SupabaseClientManager.OperationCallback<com.example.aitestbank.supabase.batch.BatchResult>() {
+                        @Override
+                        public void onSuccess(com.example.aitestbank.supabase.batch.BatchResult result) {
+                            Log.d(TAG, "错题批量保存完成: " + result);
+                        }
+                        
+                        @Override
+                        public void onError(Exception error) {
+                            Log.e(TAG, "错题批量保存失败", error);
+                        }
+                    });
             
         } catch (Exception e) {
-            Log.e(TAG, "构建错题数据失败", e);
+            Log.e(TAG, "批量保存错题失败", e);
         }
     }
     
+    /**
+     * 构建错题记录
+     */
+    private com.example.aitestbank.model.SupabaseWrongQuestion buildWrongQuestion(String userId, Question question, Integer userAnswer) {
+        com.example.aitestbank.model.SupabaseWrongQuestion wrongQuestion = new com.example.aitestbank.model.SupabaseWrongQuestion(
+            userId, question.getId(), question.getTitle(), question.getCorrectAnswer(), userAnswer);
+        wrongQuestion.setCategory(question.getCategory());
+        wrongQuestion.setDifficulty(question.getDifficulty());
+        wrongQuestion.setType(question.getType());
+        wrongQuestion.setOptions(question.getOptions());
+        wrongQuestion.setAnalysis(question.getAnalysis());
+        wrongQuestion.setMasteryLevel(1); // 初始掌握等级为1
+        
+        long currentTime = System.currentTimeMillis();
+        wrongQuestion.setLastReviewDate(new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date(currentTime)));
+        wrongQuestion.setNextReviewDate(new java.text.SimpleDateFormat("yyyy-MM-dd").format(new java.util.Date(currentTime + 24 * 60 * 60 * 1000))); // 明天复习
+        return wrongQuestion;
+    }
+    
     /**
      * 调用Supabase API保存错题记录
      */
     private void saveWrongQuestionToSupabase(org.json.JSONObject wrongQuestionData) {
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 // 获取当前用户ID
                 com.example.aitestbank.supabase.auth.AuthManager authManager = 
@@ -1532,7 +1636,7 @@ public class QuestionFragment extends Fragment {
                 Log.e(TAG, "保存错题到Supabase失败", e);
                 e.printStackTrace();
             }
-        }).start();
+        });
     }
     
     /**
@@ -1726,8 +1830,8 @@ public class QuestionFragment extends Fragment {
      * 异步确保用户配置文件存在（用于批量操作）
      */
     private void ensureUserProfileExists(String userId, String deviceId) {
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.BACKGROUND).execute(() -> {
             ensureUserProfileExistsSync(userId, deviceId);
-        }).start();
+        });
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.aitestbank.ui.result;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -18,16 +19,21 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aitestbank.R;
 import com.example.aitestbank.model.Question;
+import com.example.aitestbank.service.AIService;
 import com.example.aitestbank.ui.result.AnswerCardAdapter;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 答题结果Fragment - 显示答题卡和成绩
  */
 public class ExamResultFragment extends Fragment {
     
+    private static final String TAG = "ExamResultFragment";
+    
     private TextView correctCountText;
     private TextView wrongCountText;
     private TextView totalCountText;
@@ -42,6 +48,13 @@ public class ExamResultFragment extends Fragment {
     private List<Integer> userAnswerIndexes;
     private AnswerCardAdapter answerCardAdapter;
     
+    // 错题的AI解析（按题目位置），交卷后批量生成
+    private final Map<Integer, AIService.AIAnalysisResult> aiAnalysisResults = new HashMap<>();
+    // 详细解析对话框中等待AI解析的文本框
+    private final Map<Integer, TextView> pendingAnalysisViews = new HashMap<>();
+    // 从返回栈回到本页时视图会重建，但Fragment实例和已有结果还在，不重复请求
+    private boolean batchAnalysisStarted;
+    
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
@@ -57,6 +70,72 @@ public class ExamResultFragment extends Fragment {
         setupAnswerCard();
         displayResults();
         setupClickListeners();
+        startBatchAIAnalysis();
+    }
+    
+    /**
+     * 为答错和未答的题目批量请求AI解析，打开详细解析时已完成的直接显示
+     */
+    private void startBatchAIAnalysis() {
+        if (batchAnalysisStarted || questions == null || userAnswerIndexes == null || getContext() == null) {
+            return;
+        }
+        batchAnalysisStarted = true;
+        
+        List<Question> wrongQuestions = new ArrayList<>();
+        List<String> wrongAnswers = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < questions.size() && i < userAnswerIndexes.size(); i++) {
+            Question question = questions.get(i);
+            Integer answer = userAnswerIndexes.get(i);
+            if (answer == null || answer == -1 || !answer.equals(question.getCorrectAnswer())) {
+                wrongQuestions.add(question);
+                wrongAnswers.add(answer != null && answer != -1 ? String.valueOf(answer) : null);
+                positions.add(i);
+            }
+        }
+        if (wrongQuestions.isEmpty()) {
+            return;
+        }
+        
+        new AIService(getContext()).getBatchAIAnalysis(wrongQuestions, wrongAnswers, new AIService.BatchAnalysisCallback() {
+            @Override
+            public void onResult(int index, AIService.AIAnalysisResult result) {
+                int position = positions.get(index);
+                aiAnalysisResults.put(position, result);
+                TextView view = pendingAnalysisViews.remove(position);
+                if (view != null && isAdded()) {
+                    view.setText(formatAIAnalysis(result));
+                }
+            }
+            
+            @Override
+            public void onComplete(int requestCount) {
+                Log.d(TAG, "错题AI解析完成：" + wrongQuestions.size() + "题，" + requestCount + "次请求");
+            }
+        });
+    }
+    
+    /**
+     * AI解析结果转为显示文本
+     */
+    private String formatAIAnalysis(AIService.AIAnalysisResult result) {
+        StringBuilder text = new StringBuilder(result.getAnalysisText());
+        appendAnalysisItems(text, "💡 解题步骤：", result.getSolutionSteps());
+        appendAnalysisItems(text, "📚 核心考点：", result.getKeyPoints());
+        appendAnalysisItems(text, "⚠️ 易错点：", result.getCommonMistakes());
+        appendAnalysisItems(text, "🎯 学习建议：", result.getRecommendations());
+        return text.toString();
+    }
+    
+    private void appendAnalysisItems(StringBuilder text, String title, List<String> items) {
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+        text.append("\n\n").append(title);
+        for (int i = 0; i < items.size(); i++) {
+            text.append("\n").append(i + 1).append(". ").append(items.get(i));
+        }
     }
     
     private void initViews(View view) {
@@ -413,6 +492,7 @@ public class ExamResultFragment extends Fragment {
         
         // 添加关闭按钮
         builder.setPositiveButton("关闭", (dialog, which) -> dialog.dismiss());
+        builder.setOnDismissListener(dialog -> pendingAnalysisViews.clear());
         
         // 显示对话框
         builder.show();
@@ -515,8 +595,10 @@ public class ExamResultFragment extends Fragment {
             }
         }
         
-        // 解析内容
-        String analysis = generateAIAnalysis(question, userAnswerIndex);
+        // 解析内容：已有AI解析时优先显示，批量解析还在进行时先显示本地解析，完成后替换
+        int position = questionNumber - 1;
+        AIService.AIAnalysisResult aiResult = aiAnalysisResults.get(position);
+        String analysis = aiResult != null ? formatAIAnalysis(aiResult) : generateAIAnalysis(question, userAnswerIndex);
         if (analysis != null && !analysis.trim().isEmpty()) {
             TextView analysisLabel = new TextView(getContext());
             analysisLabel.setText("📝 详细解析：");
@@ -531,6 +613,9 @@ public class ExamResultFragment extends Fragment {
             analysisContent.setTextColor(getContext().getResources().getColor(R.color.text_secondary));
             analysisContent.setPadding(16, 0, 0, 0);
             parent.addView(analysisContent);
+            if (aiResult == null) {
+                pendingAnalysisViews.put(position, analysisContent);
+            }
         }
     }
     
@@ -16,6 +16,7 @@ import com.example.aitestbank.R;
 import com.example.aitestbank.model.Question;
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
 import com.example.aitestbank.ui.adapter.WrongQuestionAdapter;
+import com.example.aitestbank.utils.AppExecutors;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -161,7 +162,7 @@ public class WrongQuestionDetailActivity extends AppCompatActivity {
     private void loadWrongQuestionDetail(String wrongQuestionId) {
         Toast.makeText(this, "正在加载错题详情...", Toast.LENGTH_SHORT).show();
         
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
                 // 从Supabase获取错题详情
                 String result = supabaseClient.query("wrong_questions", "*", "id=eq." + wrongQuestionId);
@@ -183,7 +184,7 @@ public class WrongQuestionDetailActivity extends AppCompatActivity {
                     finish(); // 直接关闭页面，不显示模拟数据
                 });
             }
-        }).start();
+        });
     }
     
     private void loadQuestionDetail(String questionId, JSONObject wrongQuestionObj) {
@@ -590,7 +591,7 @@ public class WrongQuestionDetailActivity extends AppCompatActivity {
     
     private void updateWrongQuestionStatus() {
         // 获取当前错题ID并更新状态为已掌握
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 // 我们需要重新获取错题ID，因为loadWrongQuestionDetail是在线程中执行的
                 // 这里简化处理，在实际应用中应该保存wrongQuestionId作为成员变量
@@ -638,7 +639,7 @@ public class WrongQuestionDetailActivity extends AppCompatActivity {
                     Toast.makeText(WrongQuestionDetailActivity.this, "❌ 更新失败：" + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
             }
-        }).start();
+        });
     }
     
     // 添加成员变量
@@ -30,9 +30,18 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.aitestbank.R;
+import com.example.aitestbank.model.SupabaseWrongQuestion;
 import com.example.aitestbank.supabase.SimpleSupabaseClient;
+import com.example.aitestbank.supabase.SupabaseClientManager;
+import com.example.aitestbank.supabase.batch.BatchOperationManager;
+import com.example.aitestbank.supabase.batch.BatchResult;
+import com.example.aitestbank.supabase.cache.ReadPolicy;
+import com.example.aitestbank.supabase.cache.SupabaseCacheManager;
+import com.example.aitestbank.supabase.converter.RowDecoders;
+import com.example.aitestbank.supabase.repository.SupabaseWrongQuestionRepository;
 import com.example.aitestbank.ui.adapter.WrongQuestionAdapter;
 import com.example.aitestbank.utils.OperationCallback;
+import com.example.aitestbank.utils.AppExecutors;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -89,7 +98,7 @@ public class WrongQuestionFragment extends Fragment {
         @Override
         public void onReceive(Context context, Intent intent) {
             if ("ACTION_WRONG_QUESTION_UPDATED".equals(intent.getAction())) {
-                loadWrongQuestions(); // 重新加载列表
+                loadWrongQuestions(ReadPolicy.NETWORK_ONLY); // 重新加载列表
                 loadStatistics();
                 loadWrongQuestionAnalysis(); // 重新加载分析数据
             }
@@ -122,7 +131,7 @@ public class WrongQuestionFragment extends Fragment {
         setupRecyclerView();
         setupFilterSpinner();
         setupClickListeners();
-        loadWrongQuestions();
+        loadWrongQuestions(ReadPolicy.CACHE_THEN_NETWORK);
         loadStatistics();
         loadWrongQuestionAnalysis();
     }
@@ -257,130 +266,119 @@ private void initViews(View view) {
         if (isAdded() && getContext() != null) {
             Toast.makeText(getContext(), "正在刷新数据...", Toast.LENGTH_SHORT).show();
         }
-        loadWrongQuestions();
+        loadWrongQuestions(ReadPolicy.NETWORK_ONLY);
         loadStatistics();
     }
     
-    private void loadWrongQuestions() {
-        if (isAdded() && getContext() != null) {
+    private void loadWrongQuestions(ReadPolicy policy) {
+        if (policy == ReadPolicy.NETWORK_ONLY && isAdded() && getContext() != null) {
             Toast.makeText(getContext(), "正在加载错题...", Toast.LENGTH_SHORT).show();
         }
-        // 从Supabase加载错题数据
-        loadWrongQuestionsFromSupabase();
+        // 从Supabase加载错题数据，先显示缓存再用网络结果刷新
+        loadWrongQuestionsFromSupabase(policy);
     }
     
-    private void loadWrongQuestionsFromSupabase() {
-        new Thread(() -> {
-            try {
-                // 获取当前用户ID
-                com.example.aitestbank.supabase.auth.AuthManager authManager = 
-                    com.example.aitestbank.supabase.auth.AuthManager.getInstance(requireContext());
-                String userId = authManager.getCurrentUserId();
-                
-                // 查询当前用户的错题数据，按创建时间倒序排列
-                String result = supabaseClient.query("wrong_questions", "*", 
-                    "user_id=eq." + userId + "&order=created_at.desc&limit=50");
-                Log.d(TAG, "Wrong questions from Supabase: " + result);
-                
-                List<WrongQuestionAdapter.WrongQuestionItem> loadedWrongQuestions = parseWrongQuestionsFromSupabase(result);
-                
-                requireActivity().runOnUiThread(() -> {
-                    if (loadedWrongQuestions != null && !loadedWrongQuestions.isEmpty()) {
-                        wrongQuestions.clear();
-                        wrongQuestions.addAll(loadedWrongQuestions);
-                        wrongQuestionAdapter.setWrongQuestions(wrongQuestions);
-                        updateEmptyState();
-                        if (isAdded() && getContext() != null) {
-                            Toast.makeText(getContext(), "成功加载 " + wrongQuestions.size() + " 道错题", Toast.LENGTH_SHORT).show();
-                        }
-                    } else {
-                        // 没有错题数据，显示空状态
-                        wrongQuestions.clear();
-                        wrongQuestionAdapter.setWrongQuestions(wrongQuestions);
-                        updateEmptyState();
-                        if (isAdded() && getContext() != null) {
-                            Toast.makeText(getContext(), "暂无错题记录", Toast.LENGTH_SHORT).show();
-                        }
+    private void loadWrongQuestionsFromSupabase(ReadPolicy policy) {
+        // 获取当前用户ID
+        com.example.aitestbank.supabase.auth.AuthManager authManager = 
+            com.example.aitestbank.supabase.auth.AuthManager.getInstance(requireContext());
+        String userId = authManager.getCurrentUserId();
+        
+        // 查询当前用户的错题数据，按创建时间倒序排列
+        SupabaseWrongQuestionRepository.getInstance().getUserWrongQuestions(requireContext(), userId, policy,
+                new SupabaseCacheManager.ReadCallback<List<SupabaseWrongQuestion>>() {
+            @Override
+            public void onData(List<SupabaseWrongQuestion> rows, boolean fromCache) {
+                if (!isAdded() || getContext() == null) {
+                    return;
+                }
+                List<WrongQuestionAdapter.WrongQuestionItem> loadedWrongQuestions = new ArrayList<>();
+                if (rows != null) {
+                    for (SupabaseWrongQuestion row : rows) {
+                        loadedWrongQuestions.add(toWrongQuestionItem(row));
                     }
-                });
+                }
+                Log.d(TAG, "Wrong questions from " + (fromCache ? "cache" : "Supabase") + ": " + loadedWrongQuestions.size());
                 
-            } catch (Exception e) {
-                Log.e(TAG, "Failed to load wrong questions from Supabase", e);
-                requireActivity().runOnUiThread(() -> {
-                    if (isAdded() && getContext() != null) {
-                        Toast.makeText(getContext(), "网络错误，无法加载错题数据", Toast.LENGTH_SHORT).show();
-                    }
-                    wrongQuestions.clear();
+                wrongQuestions.clear();
+                wrongQuestions.addAll(loadedWrongQuestions);
+                wrongQuestionAdapter.setWrongQuestions(wrongQuestions);
+                updateEmptyState();
+                if (fromCache) {
+                    return;
+                }
+                if (!loadedWrongQuestions.isEmpty()) {
+                    Toast.makeText(getContext(), "成功加载 " + wrongQuestions.size() + " 道错题", Toast.LENGTH_SHORT).show();
+                } else {
+                    // 没有错题数据，显示空状态
+                    Toast.makeText(getContext(), "暂无错题记录", Toast.LENGTH_SHORT).show();
+                }
+            }
+            
+            @Override
+            public void onError(Exception error) {
+                Log.e(TAG, "Failed to load wrong questions from Supabase", error);
+                if (!isAdded() || getContext() == null) {
+                    return;
+                }
+                Toast.makeText(getContext(), "网络错误，无法加载错题数据", Toast.LENGTH_SHORT).show();
+                // 已显示缓存的错题时保留列表
+                if (wrongQuestions.isEmpty()) {
                     wrongQuestionAdapter.setWrongQuestions(wrongQuestions);
                     updateEmptyState();
-                });
+                }
             }
-        }).start();
+        });
     }
     
-    private List<WrongQuestionAdapter.WrongQuestionItem> parseWrongQuestionsFromSupabase(String jsonResult) {
-        try {
-            List<WrongQuestionAdapter.WrongQuestionItem> wrongQuestionList = new ArrayList<>();
-            
-            if (jsonResult == null || jsonResult.isEmpty() || jsonResult.equals("[]")) {
-                return wrongQuestionList;
+    /**
+     * 错题行转换为列表项（在流式解码时逐行调用）
+     */
+    private WrongQuestionAdapter.WrongQuestionItem toWrongQuestionItem(SupabaseWrongQuestion row) {
+        // 使用正确的字段名
+        String questionPreview = row.getQuestionTitle() != null ? row.getQuestionTitle() : "无标题";
+        if (questionPreview.length() > 50) {
+            questionPreview = questionPreview.substring(0, 50) + "...";
+        }
+        
+        // 获取时间信息：毫秒时间戳格式化显示，其他格式原样显示
+        String timeStr = "未知时间";
+        long createdAt = System.currentTimeMillis();
+        if (row.getCreatedAt() != null) {
+            try {
+                createdAt = Long.parseLong(row.getCreatedAt());
+                timeStr = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm").format(new java.util.Date(createdAt));
+            } catch (NumberFormatException e) {
+                // 如果时间戳格式不对，尝试其他格式
+                timeStr = row.getCreatedAt();
             }
-            
-            JSONArray jsonArray = new JSONArray(jsonResult);
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject obj = jsonArray.getJSONObject(i);
-                
-                // 使用正确的字段名
-                String questionPreview = obj.optString("question_title", "无标题");
-                if (questionPreview.length() > 50) {
-                    questionPreview = questionPreview.substring(0, 50) + "...";
-                }
-                
-                // 获取时间信息
-                String timeStr = "未知时间";
-                if (obj.has("created_at")) {
-                    try {
-                        long timestamp = obj.getLong("created_at");
-                        timeStr = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm").format(new java.util.Date(timestamp));
-                    } catch (Exception e) {
-                        // 如果时间戳格式不对，尝试其他格式
-                        timeStr = obj.optString("created_at", "未知时间");
-                    }
-                }
-                
-                // 获取分类和科目信息
-                String category = obj.optString("category", "未分类");
-                String subject = obj.optString("subject", "未分类");
-                String displayCategory = getCategoryDisplayName(category);
-                String displaySubject = getSubjectDisplayName(subject);
-                
-                // 获取时间戳
-                long createdAt = obj.optLong("created_at", System.currentTimeMillis());
-                long updatedAt = obj.optLong("updated_at", System.currentTimeMillis());
-                
-                WrongQuestionAdapter.WrongQuestionItem wrongQuestion = new WrongQuestionAdapter.WrongQuestionItem(
-                    obj.getString("id"),
-                    questionPreview,
-                    obj.optInt("review_count", 1), // 使用正确的字段名
-                    timeStr,
-                    displayCategory,
-                    obj.optBoolean("is_mastered", false),
-                    obj.optInt("difficulty", 3),
-                    createdAt,
-                    updatedAt,
-                    displayCategory,
-                    displaySubject
-                );
-                
-                wrongQuestionList.add(wrongQuestion);
+        }
+        long updatedAt = System.currentTimeMillis();
+        if (row.getUpdatedAt() != null) {
+            try {
+                updatedAt = Long.parseLong(row.getUpdatedAt());
+            } catch (NumberFormatException e) {
+                // 保持默认值
             }
-            
-            return wrongQuestionList;
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to parse wrong questions JSON", e);
-            return new ArrayList<>();
         }
+        
+        // 获取分类和科目信息
+        String displayCategory = getCategoryDisplayName(row.getCategory() != null ? row.getCategory() : "未分类");
+        String displaySubject = getSubjectDisplayName(row.getSubject() != null ? row.getSubject() : "未分类");
+        
+        return new WrongQuestionAdapter.WrongQuestionItem(
+            row.getId(),
+            questionPreview,
+            row.getReviewCount() != null ? row.getReviewCount() : 1,
+            timeStr,
+            displayCategory,
+            Boolean.TRUE.equals(row.getMastered()),
+            row.getDifficulty() != null ? row.getDifficulty() : 3,
+            createdAt,
+            updatedAt,
+            displayCategory,
+            displaySubject
+        );
     }
     
 
@@ -494,7 +492,7 @@ private void initViews(View view) {
     
     private void loadStatistics() {
         // 从Supabase加载统计数据
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO(AppExecutors.Priority.UI).execute(() -> {
             try {
                 // 获取当前用户ID
                 com.example.aitestbank.supabase.auth.AuthManager authManager = 
@@ -547,7 +545,7 @@ private void initViews(View view) {
                     }
                 });
             }
-        }).start();
+        });
     }
     
     private void updateEmptyState() {
@@ -680,7 +678,7 @@ private void initViews(View view) {
      */
     private void loadSubjectList() {
         // 从数据库获取科目列表
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO().execute(() -> {
             try {
                 // 这里应该从Supabase获取科目数据，暂时使用硬编码
                 subjectList.clear();
@@ -710,7 +708,7 @@ private void initViews(View view) {
             } catch (Exception e) {
                 Log.e(TAG, "加载科目列表失败", e);
             }
-        }).start();
+        });
     }
     
     private void deleteWrongQuestion(WrongQuestionAdapter.WrongQuestionItem wrongQuestion) {
@@ -728,10 +726,10 @@ private void initViews(View view) {
     }
     
     private void deleteWrongQuestionFromSupabase(WrongQuestionAdapter.WrongQuestionItem wrongQuestion) {
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 // 根据题目ID删除错题记录
-                String result = supabaseClient.delete("wrong_questions", wrongQuestion.getId());
+                String result = supabaseClient.delete("wrong_questions", "id=eq." + wrongQuestion.getId());
                 Log.d(TAG, "删除错题记录结果: " + result);
             } catch (Exception e) {
                 Log.e(TAG, "删除错题记录失败", e);
@@ -741,7 +739,7 @@ private void initViews(View view) {
                     }
                 });
             }
-        }).start();
+        });
     }
     
     private void toggleMasteryStatus(WrongQuestionAdapter.WrongQuestionItem wrongQuestion) {
@@ -787,7 +785,7 @@ private void initViews(View view) {
     }
     
     private void updateWrongQuestionInSupabase(WrongQuestionAdapter.WrongQuestionItem wrongQuestion) {
-        new Thread(() -> {
+        AppExecutors.getInstance().writer().execute(() -> {
             try {
                 // 更新错题记录
                 JSONObject updateData = new JSONObject();
@@ -804,7 +802,7 @@ private void initViews(View view) {
                     }
                 });
             }
-        }).start();
+        });
     }
     
     private void clearMasteredItems() {
@@ -877,24 +875,29 @@ private void initViews(View view) {
     }
     
     private void deleteMasteredQuestionsFromSupabase(List<WrongQuestionAdapter.WrongQuestionItem> masteredQuestions) {
-        new Thread(() -> {
-            try {
-                // 批量删除已掌握的错题记录
-                // 注意：filter参数需要是完整的过滤条件，如 "id=eq.123"
-                for (WrongQuestionAdapter.WrongQuestionItem question : masteredQuestions) {
-                    String filter = "id=eq." + question.getId();
-                    String result = supabaseClient.delete("wrong_questions", filter);
-                    Log.d(TAG, "删除已掌握错题记录结果: " + result);
+        List<String> ids = new ArrayList<>();
+        for (WrongQuestionAdapter.WrongQuestionItem question : masteredQuestions) {
+            ids.add(question.getId());
+        }
+        
+        // 分块批量删除，某一块失败不影响其余分块
+        BatchOperationManager.getInstance().batchDeleteWrongQuestionsWithResult(ids, new SupabaseClientManager.OperationCallback<BatchResult>() {
+            @Override
+            public void onSuccess(BatchResult result) {
+                Log.d(TAG, "删除已掌握错题记录结果: " + result + ", 实际删除" + result.getAffectedCount() + "行");
+                if (!result.isAllSucceeded() && isAdded() && getContext() != null) {
+                    Toast.makeText(getContext(), result.getFailureCount() + "道错题删除失败，请检查网络连接", Toast.LENGTH_SHORT).show();
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "批量删除已掌握错题记录失败", e);
-                requireActivity().runOnUiThread(() -> {
-                    if (isAdded() && getContext() != null) {
-                        Toast.makeText(getContext(), "删除失败，请检查网络连接", Toast.LENGTH_SHORT).show();
-                    }
-                });
             }
-        }).start();
+            
+            @Override
+            public void onError(Exception error) {
+                Log.e(TAG, "批量删除已掌握错题记录失败", error);
+                if (isAdded() && getContext() != null) {
+                    Toast.makeText(getContext(), "删除失败，请检查网络连接", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
     }
     
     @Override
@@ -957,7 +960,7 @@ private void initViews(View view) {
         syncDataToCloud();
         
         // 同时从云端拉取最新数据
-        loadWrongQuestions();
+        loadWrongQuestions(ReadPolicy.NETWORK_ONLY);
     }
     
     /**
@@ -1018,7 +1021,7 @@ private void initViews(View view) {
      * 加载错题分析数据
      */
     private void loadWrongQuestionAnalysis() {
-        new Thread(() -> {
+        AppExecutors.getInstance().networkIO().execute(() -> {
             try {
                 // 获取当前用户ID
                 com.example.aitestbank.supabase.auth.AuthManager authManager = 
@@ -1026,10 +1029,9 @@ private void initViews(View view) {
                 String userId = authManager.getCurrentUserId();
                 
                 // 查询当前用户的所有错题数据
-                String result = supabaseClient.query("wrong_questions", "*", 
-                    "user_id=eq." + userId + "&is_mastered=eq.false&order=created_at.desc");
-                
-                List<WrongQuestionAdapter.WrongQuestionItem> wrongQuestions = parseWrongQuestionsFromSupabase(result);
+                List<WrongQuestionAdapter.WrongQuestionItem> wrongQuestions = supabaseClient.queryList("wrong_questions", "*", 
+                    "user_id=eq." + userId + "&is_mastered=eq.false&order=created_at.desc",
+                    reader -> toWrongQuestionItem(RowDecoders.WRONG_QUESTION.decode(reader)));
                 
                 // 分析错题数据
                 analyzeWrongQuestions(wrongQuestions);
@@ -1041,7 +1043,7 @@ private void initViews(View view) {
                     updateAnalysisUI("分析失败，请重试", "暂无数据", "暂无推荐");
                 });
             }
-        }).start();
+        });
     }
     
     /**
@@ -0,0 +1,246 @@
+package com.example.aitestbank.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局任务调度器 - 替代各处临时创建的线程
+ *
+ * 网络池：有界线程池，按优先级出队，界面阻塞的读取先于后台同步执行
+ * AI通道：DeepSeek的流式和批量请求一次要阻塞几十秒，单独用几个线程，不占用Supabase读取的网络池
+ * 计算池：解析JSON等CPU密集任务，线程数与CPU核数一致
+ * 写入通道：单线程串行执行写操作（答题记录、统计、错题同步），不与读取抢占线程
+ */
+public class AppExecutors {
+
+    private static final String TAG = "AppExecutors";
+
+    /**
+     * 网络任务优先级，数值越小越先执行
+     */
+    public enum Priority {
+        /** 界面正在等待的读取 */
+        UI(0),
+        /** 普通读取 */
+        NORMAL(1),
+        /** 预取、后台同步等可延后的任务 */
+        BACKGROUND(2);
+
+        final int value;
+
+        Priority(int value) {
+            this.value = value;
+        }
+    }
+
+    private static final int NETWORK_POOL_SIZE = 4;
+    // 一个流式解析加两个批量解析
+    private static final int AI_POOL_SIZE = 3;
+    private static final int CPU_POOL_SIZE = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile AppExecutors instance;
+
+    private final ThreadPoolExecutor networkExecutor;
+    private final ThreadPoolExecutor aiExecutor;
+    private final ThreadPoolExecutor computationExecutor;
+    private final ThreadPoolExecutor writerExecutor;
+    private final Executor mainThreadExecutor;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private AppExecutors() {
+        networkExecutor = new ThreadPoolExecutor(NETWORK_POOL_SIZE, NETWORK_POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                new LaneThreadFactory("net", Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE));
+        networkExecutor.allowCoreThreadTimeOut(true);
+
+        aiExecutor = new ThreadPoolExecutor(AI_POOL_SIZE, AI_POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new LaneThreadFactory("ai", Process.THREAD_PRIORITY_BACKGROUND));
+        aiExecutor.allowCoreThreadTimeOut(true);
+
+        computationExecutor = new ThreadPoolExecutor(CPU_POOL_SIZE, CPU_POOL_SIZE,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new LaneThreadFactory("cpu", Process.THREAD_PRIORITY_BACKGROUND));
+        computationExecutor.allowCoreThreadTimeOut(true);
+
+        writerExecutor = new ThreadPoolExecutor(1, 1,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new LaneThreadFactory("writer", Process.THREAD_PRIORITY_BACKGROUND));
+        writerExecutor.allowCoreThreadTimeOut(true);
+
+        mainThreadExecutor = new MainThreadExecutor();
+    }
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 网络读取（普通优先级）
+     */
+    public Executor networkIO() {
+        return networkIO(Priority.NORMAL);
+    }
+
+    /**
+     * 网络读取（指定优先级）
+     */
+    public Executor networkIO(Priority priority) {
+        return command -> networkExecutor.execute(new PrioritizedTask<Void>(command, priority, sequence.getAndIncrement()));
+    }
+
+    /**
+     * 提交有返回值的网络任务
+     */
+    public <T> Future<T> submitNetwork(Priority priority, Callable<T> callable) {
+        PrioritizedTask<T> task = new PrioritizedTask<>(callable, priority, sequence.getAndIncrement());
+        networkExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * DeepSeek请求（长时间阻塞的流式读取和批量请求）
+     * 与网络池一样只记录任务异常，不让它结束进程
+     */
+    public Executor aiIO() {
+        return command -> aiExecutor.execute(() -> {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "AI任务执行异常", e);
+            }
+        });
+    }
+
+    /**
+     * CPU密集任务（解析、排序、聚合）
+     */
+    public ExecutorService computation() {
+        return computationExecutor;
+    }
+
+    /**
+     * 串行写入通道
+     */
+    public ExecutorService writer() {
+        return writerExecutor;
+    }
+
+    /**
+     * 主线程
+     */
+    public Executor mainThread() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * 调度器状态（调试用）
+     */
+    public String getStatus() {
+        return "网络池: " + networkExecutor.getActiveCount() + "/" + NETWORK_POOL_SIZE
+                + " 排队" + networkExecutor.getQueue().size()
+                + ", AI通道: " + aiExecutor.getActiveCount() + "/" + AI_POOL_SIZE
+                + " 排队" + aiExecutor.getQueue().size()
+                + ", 计算池: " + computationExecutor.getActiveCount() + "/" + CPU_POOL_SIZE
+                + ", 写入通道排队: " + writerExecutor.getQueue().size();
+    }
+
+    /**
+     * 带优先级的任务，同优先级按提交顺序执行
+     */
+    private static class PrioritizedTask<T> extends FutureTask<T> implements Comparable<PrioritizedTask<?>> {
+        private final int priority;
+        private final long order;
+
+        PrioritizedTask(Runnable runnable, Priority priority, long order) {
+            super(runnable, null);
+            this.priority = priority.value;
+            this.order = order;
+        }
+
+        PrioritizedTask(Callable<T> callable, Priority priority, long order) {
+            super(callable);
+            this.priority = priority.value;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask<?> other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(order, other.order);
+        }
+
+        @Override
+        protected void done() {
+            // FutureTask会吞掉异常，这里把execute()提交的任务异常打印出来
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (Exception e) {
+                    Log.e(TAG, "后台任务执行异常", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 为每个通道的线程命名并设置线程优先级
+     */
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String lane;
+        private final int threadPriority;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        LaneThreadFactory(String lane, int threadPriority) {
+            this.lane = lane;
+            this.threadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(threadPriority);
+                runnable.run();
+            }, "app-" + lane + "-" + count.getAndIncrement());
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            mainHandler.post(command);
+        }
+    }
+}
@@ -1,125 +1,168 @@
 package com.example.aitestbank.utils;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.util.Log;
 
+import com.example.aitestbank.model.Question;
+import com.example.aitestbank.model.SupabaseWrongQuestion;
+import com.example.aitestbank.supabase.auth.AuthManager;
+import com.example.aitestbank.supabase.cache.BinaryRecordList;
+import com.example.aitestbank.supabase.cache.CacheMetrics;
+import com.example.aitestbank.supabase.cache.CacheNamespaces;
+import com.example.aitestbank.supabase.cache.DiskCacheStore;
+import com.example.aitestbank.supabase.cache.RecordCodecs;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 /**
  * 缓存工具类 - 用于数据缓存管理
+ * 每项缓存单独存为一个文件，初始化时不读取任何缓存内容。
+ * 错题和用户信息按当前用户划分命名空间，退出登录后自然失效
  */
 public class CacheUtils {
     
-    private static final String PREF_NAME = "aitestbank_cache";
+    private static final String TAG = "CacheUtils";
+    private static final String STORE_DIR = "aitestbank_cache";
+    // 旧版本使用的SharedPreferences文件，首次启动新版本时删除
+    private static final String LEGACY_PREF_NAME = "aitestbank_cache";
     private static final String KEY_QUESTIONS_CACHE = "questions_cache";
     private static final String KEY_WRONG_QUESTIONS_CACHE = "wrong_questions_cache";
     private static final String KEY_USER_CACHE = "user_cache";
-    private static final String KEY_CACHE_TIMESTAMP = "cache_timestamp";
     
-    private static SharedPreferences preferences;
+    private static DiskCacheStore store;
+    private static CacheNamespaces namespaces;
+    private static Context appContext;
     private static Gson gson;
     
     /**
      * 初始化缓存工具
      */
     public static void init(Context context) {
-        preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        appContext = context.getApplicationContext();
+        store = new DiskCacheStore(new File(appContext.getCacheDir(), STORE_DIR));
+        namespaces = CacheNamespaces.getInstance(appContext);
+        namespaces.addReclaimer(() -> store.removeIf(key -> !namespaces.isCurrent(key)));
         gson = new Gson();
+        AppExecutors.getInstance().writer().execute(() -> {
+            appContext.deleteSharedPreferences(LEGACY_PREF_NAME);
+            // 旧版本不带命名空间的缓存项不会再被读取
+            store.removeIf(key -> key.indexOf('@') < 0);
+        });
     }
     
     /**
      * 缓存题目列表
+     * 以二进制记录列表保存，读取时按需解码单条题目
      */
-    public static void cacheQuestions(List<?> questions) {
-        if (preferences == null) {
+    public static void cacheQuestions(List<Question> questions) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        String json = gson.toJson(questions);
-        preferences.edit()
-            .putString(KEY_QUESTIONS_CACHE, json)
-            .putLong(KEY_CACHE_TIMESTAMP + "_questions", System.currentTimeMillis())
-            .apply();
+        putRecords(keyOf(KEY_QUESTIONS_CACHE), questions, RecordCodecs.QUESTION);
     }
     
     /**
      * 获取缓存的题目列表
+     * 返回的列表只读，get(i)时才解码第i道题
      */
-    public static <T> List<T> getCachedQuestions(Class<T> clazz) {
-        if (preferences == null) {
+    public static List<Question> getCachedQuestions() {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        String json = preferences.getString(KEY_QUESTIONS_CACHE, "");
-        if (json.isEmpty()) {
-            return null;
-        }
-        
-        Type type = TypeToken.getParameterized(List.class, clazz).getType();
-        return gson.fromJson(json, type);
+        return getRecords(keyOf(KEY_QUESTIONS_CACHE), RecordCodecs.QUESTION);
     }
     
     /**
      * 缓存错题列表
      */
-    public static void cacheWrongQuestions(List<?> wrongQuestions) {
-        if (preferences == null) {
+    public static void cacheWrongQuestions(List<SupabaseWrongQuestion> wrongQuestions) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        String json = gson.toJson(wrongQuestions);
-        preferences.edit()
-            .putString(KEY_WRONG_QUESTIONS_CACHE, json)
-            .putLong(KEY_CACHE_TIMESTAMP + "_wrong_questions", System.currentTimeMillis())
-            .apply();
+        putRecords(keyOf(KEY_WRONG_QUESTIONS_CACHE), wrongQuestions, RecordCodecs.WRONG_QUESTION);
     }
     
     /**
      * 获取缓存的错题列表
+     * 返回的列表只读，get(i)时才解码第i条错题
      */
-    public static <T> List<T> getCachedWrongQuestions(Class<T> clazz) {
-        if (preferences == null) {
+    public static List<SupabaseWrongQuestion> getCachedWrongQuestions() {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        String json = preferences.getString(KEY_WRONG_QUESTIONS_CACHE, "");
-        if (json.isEmpty()) {
-            return null;
+        return getRecords(keyOf(KEY_WRONG_QUESTIONS_CACHE), RecordCodecs.WRONG_QUESTION);
+    }
+    
+    /**
+     * 缓存项名对应的命名空间键：题库是公共数据，错题和用户信息属于当前用户
+     */
+    private static String keyOf(String name) {
+        switch (name) {
+            case KEY_QUESTIONS_CACHE:
+                return namespaces.key(CacheNamespaces.Domain.QUESTIONS, name, CacheNamespaces.SHARED_USER);
+            case KEY_WRONG_QUESTIONS_CACHE:
+                return namespaces.key(CacheNamespaces.Domain.WRONG_QUESTIONS, name, currentUserId());
+            case KEY_USER_CACHE:
+                return namespaces.key(CacheNamespaces.Domain.PROFILE, name, currentUserId());
+            default:
+                return name;
         }
-        
-        Type type = TypeToken.getParameterized(List.class, clazz).getType();
-        return gson.fromJson(json, type);
+    }
+    
+    private static String currentUserId() {
+        return AuthManager.getInstance(appContext).getCurrentUserId();
+    }
+    
+    private static <T> void putRecords(String key, List<T> records, BinaryRecordList.RecordCodec<T> codec) {
+        try {
+            byte[] encoded = BinaryRecordList.encode(records, codec);
+            store.putBytes(key, encoded, 0);
+            CacheMetrics.getInstance().recordWrite(key, encoded.length);
+        } catch (IOException e) {
+            Log.e(TAG, "编码缓存失败: " + key, e);
+        }
+    }
+    
+    private static <T> List<T> getRecords(String key, BinaryRecordList.RecordCodec<T> codec) {
+        byte[] encoded = store.getBytes(key);
+        List<T> records = BinaryRecordList.wrap(encoded, codec);
+        if (records != null) {
+            CacheMetrics.getInstance().recordDiskHit(key, encoded.length);
+        } else {
+            CacheMetrics.getInstance().recordMiss(key);
+        }
+        return records;
     }
     
     /**
      * 缓存用户信息
      */
     public static void cacheUser(Object user) {
-        if (preferences == null) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
         String json = gson.toJson(user);
-        preferences.edit()
-            .putString(KEY_USER_CACHE, json)
-            .putLong(KEY_CACHE_TIMESTAMP + "_user", System.currentTimeMillis())
-            .apply();
+        store.put(keyOf(KEY_USER_CACHE), json, 0);
     }
     
     /**
      * 获取缓存的用户信息
      */
     public static <T> T getCachedUser(Class<T> clazz) {
-        if (preferences == null) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        String json = preferences.getString(KEY_USER_CACHE, "");
-        if (json.isEmpty()) {
+        String json = store.get(keyOf(KEY_USER_CACHE));
+        if (json == null || json.isEmpty()) {
             return null;
         }
         
@@ -128,13 +171,15 @@ public class CacheUtils {
     
     /**
      * 获取缓存时间戳
+     * key为 questions / wrong_questions / user，与缓存项名去掉"_cache"后缀一致
      */
     public static long getCacheTimestamp(String key) {
-        if (preferences == null) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        return preferences.getLong(KEY_CACHE_TIMESTAMP + "_" + key, 0);
+        DiskCacheStore.Entry entry = store.getEntry(keyOf(key.endsWith("_cache") ? key : key + "_cache"));
+        return entry != null ? entry.writtenAt : 0;
     }
     
     /**
@@ -147,42 +192,35 @@ public class CacheUtils {
     
     /**
      * 清除所有缓存
+     * 只让全部命名空间失效，文件在写入通道上回收
      */
     public static void clearAllCache() {
-        if (preferences == null) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        preferences.edit().clear().apply();
+        namespaces.invalidateAll();
     }
     
     /**
      * 清除指定缓存
      */
     public static void clearCache(String key) {
-        if (preferences == null) {
+        if (store == null) {
             throw new IllegalStateException("CacheUtils未初始化，请先调用init()方法");
         }
         
-        preferences.edit()
-            .remove(key)
-            .remove(KEY_CACHE_TIMESTAMP + "_" + key)
-            .apply();
+        store.remove(keyOf(key));
     }
     
     /**
      * 获取缓存大小（KB）
      */
     public static int getCacheSize() {
-        if (preferences == null) {
+        if (store == null) {
             return 0;
         }
         
-        int size = 0;
-        for (String key : preferences.getAll().keySet()) {
-            String value = preferences.getString(key, "");
-            size += value.getBytes().length;
-        }
-        return size / 1024; // 转换为KB
+        return (int) (store.storedBytes() / 1024); // 压缩后的磁盘占用，转换为KB
     }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.aitestbank;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 基准测试报告输出
+ *
+ * 报告写到模块目录下的build/reports/benchmarks（Gradle运行单元测试时的工作目录即app模块），
+ * 不打印到测试输出
+ */
+public final class BenchmarkReports {
+
+    private static final File REPORT_DIR = new File("build/reports/benchmarks");
+
+    private BenchmarkReports() {
+    }
+
+    /**
+     * 写入报告，返回报告文件
+     */
+    public static File write(String name, String report) throws IOException {
+        if (!REPORT_DIR.isDirectory() && !REPORT_DIR.mkdirs()) {
+            throw new IOException("无法创建报告目录: " + REPORT_DIR.getAbsolutePath());
+        }
+        File file = new File(REPORT_DIR, name + ".txt");
+        Files.write(file.toPath(), report.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.aitestbank.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * AIAnalysisCache缓存键中用户答案规范化的单元测试
+ */
+public class AIAnalysisCacheTest {
+
+    @Test
+    public void unansweredIsDash() {
+        assertEquals("-", AIAnalysisCache.normalizeAnswer(null));
+        assertEquals("-", AIAnalysisCache.normalizeAnswer(""));
+        assertEquals("-", AIAnalysisCache.normalizeAnswer("  "));
+        assertEquals("-", AIAnalysisCache.normalizeAnswer(",，、"));
+    }
+
+    @Test
+    public void caseAndWhitespaceAreIgnored() {
+        assertEquals("B", AIAnalysisCache.normalizeAnswer(" b "));
+    }
+
+    @Test
+    public void multipleChoiceIsSortedWithUnifiedSeparator() {
+        assertEquals("A,C,D", AIAnalysisCache.normalizeAnswer("d, a；c"));
+        assertEquals("A,C,D", AIAnalysisCache.normalizeAnswer("C、A D"));
+        assertEquals("A,C,D", AIAnalysisCache.normalizeAnswer("A,,C，D"));
+    }
+
+    @Test
+    public void equivalentAnswersShareAKey() {
+        assertEquals(AIAnalysisCache.keyOf("q1", "a,b", 2, "deepseek-chat"),
+                AIAnalysisCache.keyOf("q1", "B A", 2, "deepseek-chat"));
+        assertNotEquals(AIAnalysisCache.keyOf("q1", "A", 2, "deepseek-chat"),
+                AIAnalysisCache.keyOf("q1", "A", 1, "deepseek-chat"));
+        assertNotEquals(AIAnalysisCache.keyOf("q1", "A", 2, "deepseek-chat"),
+                AIAnalysisCache.keyOf("q1", "B", 2, "deepseek-chat"));
+    }
+}
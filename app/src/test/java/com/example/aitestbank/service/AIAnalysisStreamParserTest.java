@@ -0,0 +1,176 @@
+package com.example.aitestbank.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AIAnalysisStreamParser的单元测试：章节标题识别、列表标记去除和分片到达的增量解析（含中途快照）
+ */
+public class AIAnalysisStreamParserTest {
+
+    // 五个章节齐全的示例响应，SectionParserBenchmark也用它计时
+    static final String SAMPLE_RESPONSE = "### 1. 题目解析：\n"
+            + "本题考查Java中==与equals的区别。==比较的是两个引用是否指向同一对象，"
+            + "equals在String中被重写为比较字符内容。\n"
+            + "选项B正确，因为new String会在堆上创建新对象。\n\n"
+            + "### 2. 解题步骤：\n"
+            + "1. 确认比较的两个变量的创建方式\n"
+            + "2. 判断是否来自字符串常量池\n"
+            + "3. 区分==与equals的比较语义\n"
+            + "4. 逐项排除错误选项\n\n"
+            + "### 3. 核心考点：\n"
+            + "- 字符串常量池\n"
+            + "- 引用比较与内容比较\n"
+            + "- String.equals的重写\n\n"
+            + "### 4. 易错点提醒：\n"
+            + "- 误以为==会比较字符串内容\n"
+            + "- 忽略编译期常量折叠的影响\n\n"
+            + "### 5. 学习建议：\n"
+            + "1. 阅读String源码中equals与intern的实现\n"
+            + "2. 动手验证不同创建方式下的比较结果\n";
+
+    @Test
+    public void headerVariantsAreRecognized() {
+        AIService.AIAnalysisResult result = AIAnalysisStreamParser.parse(
+                "### 1. 题目解析：\n正文\n"
+                        + "**解题步骤**\n第一步\n"
+                        + "3、核心考点:\n考点\n"
+                        + "## 易错点\n错误\n"
+                        + "学习建议：多练习\n");
+
+        assertEquals("正文", result.getAnalysisText());
+        assertEquals(Collections.singletonList("第一步"), result.getSolutionSteps());
+        assertEquals(Collections.singletonList("考点"), result.getKeyPoints());
+        assertEquals(Collections.singletonList("错误"), result.getCommonMistakes());
+        // 标题同一行冒号后的文字属于该章节
+        assertEquals(Collections.singletonList("多练习"), result.getRecommendations());
+    }
+
+    @Test
+    public void sentenceStartingWithSectionNameIsNotAHeader() {
+        AIService.AIAnalysisResult result = AIAnalysisStreamParser.parse(
+                "### 核心考点：\n- 字符串常量池\n核心考点包括引用比较\n");
+
+        assertEquals(Arrays.asList("字符串常量池", "核心考点包括引用比较"), result.getKeyPoints());
+        assertEquals("", result.getAnalysisText());
+    }
+
+    @Test
+    public void listMarkersAreStrippedOutsideAnalysis() {
+        AIService.AIAnalysisResult result = AIAnalysisStreamParser.parse(
+                "题目解析：\n1. 正文保留序号\n"
+                        + "解题步骤：\n1. 第一步\n2) 第二步\n3、第三步\n"
+                        + "易错点提醒：\n- 减号\n* 星号\n• 圆点\n");
+
+        assertEquals("1. 正文保留序号", result.getAnalysisText());
+        assertEquals(Arrays.asList("第一步", "第二步", "第三步"), result.getSolutionSteps());
+        assertEquals(Arrays.asList("减号", "星号", "圆点"), result.getCommonMistakes());
+    }
+
+    @Test
+    public void textBeforeFirstHeaderIsAnalysis() {
+        AIService.AIAnalysisResult result = AIAnalysisStreamParser.parse("开头的说明\n\n题目解析：\n解析内容");
+
+        assertEquals("开头的说明\n解析内容", result.getAnalysisText());
+    }
+
+    @Test
+    public void emptySectionsGetPlaceholders() {
+        AIService.AIAnalysisResult result = AIAnalysisStreamParser.parse("只有正文");
+
+        assertEquals(Collections.singletonList("暂无解题步骤"), result.getSolutionSteps());
+        assertEquals(Collections.singletonList("暂无核心考点"), result.getKeyPoints());
+        assertEquals(Collections.singletonList("暂无易错点提醒"), result.getCommonMistakes());
+        assertEquals(Collections.singletonList("暂无学习建议"), result.getRecommendations());
+    }
+
+    @Test
+    public void deltasSplitInsideHeadersAndMarkersMatchSinglePass() {
+        String content = "### 1. 题目解析：\n正文第一行\n正文第二行\n\n"
+                + "### 2. 解题步骤：\n1. 第一步\n2. 第二步\n\n"
+                + "### 3. 核心考点：\n- 考点\n";
+        AIService.AIAnalysisResult expected = AIAnalysisStreamParser.parse(content);
+
+        for (int size = 1; size <= 7; size++) {
+            AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+            for (int i = 0; i < content.length(); i += size) {
+                parser.append(content.substring(i, Math.min(i + size, content.length())));
+            }
+            AIService.AIAnalysisResult result = parser.finish();
+
+            assertEquals(expected.getAnalysisText(), result.getAnalysisText());
+            assertEquals(expected.getSolutionSteps(), result.getSolutionSteps());
+            assertEquals(expected.getKeyPoints(), result.getKeyPoints());
+        }
+    }
+
+    @Test
+    public void streamingMatchesSinglePass() {
+        AIService.AIAnalysisResult expected = AIAnalysisStreamParser.parse(SAMPLE_RESPONSE);
+        // 中途取快照（界面刷新）不影响最终结果
+        AIService.AIAnalysisResult result = streamingParse(SAMPLE_RESPONSE, 4, 20);
+
+        assertEquals(expected.getAnalysisText(), result.getAnalysisText());
+        assertEquals(expected.getSolutionSteps(), result.getSolutionSteps());
+        assertEquals(expected.getKeyPoints(), result.getKeyPoints());
+        assertEquals(expected.getCommonMistakes(), result.getCommonMistakes());
+        assertEquals(expected.getRecommendations(), result.getRecommendations());
+    }
+
+    @Test
+    public void snapshotIncludesUnfinishedLine() {
+        AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+        parser.append("解题步骤：\n1. 第一步\n2. 第");
+
+        AIService.AIAnalysisResult partial = parser.snapshot();
+
+        assertEquals(Arrays.asList("第一步", "第"), partial.getSolutionSteps());
+        // 部分结果不填占位
+        assertTrue(partial.getKeyPoints().isEmpty());
+
+        parser.append("二步\n");
+        assertEquals(Arrays.asList("第一步", "第二步"), parser.finish().getSolutionSteps());
+    }
+
+    @Test
+    public void snapshotOfUnfinishedHeaderSwitchesSection() {
+        AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+        parser.append("正文\n核心考点：- 考");
+
+        AIService.AIAnalysisResult partial = parser.snapshot();
+
+        assertEquals("正文", partial.getAnalysisText());
+        assertEquals(Collections.singletonList("考"), partial.getKeyPoints());
+    }
+
+    @Test
+    public void hasContentIgnoresBlankInput() {
+        AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+        parser.append("\n  \n");
+        assertFalse(parser.hasContent());
+
+        parser.append("解");
+        assertTrue(parser.hasContent());
+    }
+
+    /**
+     * 按chunkChars个字符一片增量解析，每snapshotEvery片取一次快照
+     */
+    static AIService.AIAnalysisResult streamingParse(String response, int chunkChars, int snapshotEvery) {
+        AIAnalysisStreamParser parser = new AIAnalysisStreamParser();
+        int chunks = 0;
+        for (int i = 0; i < response.length(); i += chunkChars) {
+            parser.append(response.substring(i, Math.min(response.length(), i + chunkChars)));
+            if (++chunks % snapshotEvery == 0) {
+                parser.snapshot();
+            }
+        }
+        return parser.finish();
+    }
+}
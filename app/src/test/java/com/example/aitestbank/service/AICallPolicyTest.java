@@ -0,0 +1,147 @@
+package com.example.aitestbank.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AICallPolicy熔断状态转换的单元测试（CLOSED -> OPEN -> HALF_OPEN -> CLOSED/OPEN）
+ */
+public class AICallPolicyTest {
+
+    // 熔断时长为0时熔断后的下一次allowRequest立即进入半开；很长时一直保持熔断
+    private static final long EXPIRED = 0;
+    private static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        AICallPolicy policy = new AICallPolicy(NEVER_EXPIRES);
+
+        policy.record(AICallPolicy.Outcome.HTTP_ERROR, 100);
+        policy.record(AICallPolicy.Outcome.NETWORK_ERROR, 100);
+        assertEquals(AICallPolicy.State.CLOSED, policy.getState());
+        assertTrue(policy.allowRequest());
+
+        policy.record(AICallPolicy.Outcome.DEADLINE, 100);
+
+        assertEquals(AICallPolicy.State.OPEN, policy.getState());
+        assertFalse(policy.allowRequest());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        AICallPolicy policy = new AICallPolicy(NEVER_EXPIRES);
+
+        policy.record(AICallPolicy.Outcome.HTTP_ERROR, 100);
+        policy.record(AICallPolicy.Outcome.HTTP_ERROR, 100);
+        policy.record(AICallPolicy.Outcome.PARTIAL, 100);
+        policy.record(AICallPolicy.Outcome.HTTP_ERROR, 100);
+        policy.record(AICallPolicy.Outcome.HTTP_ERROR, 100);
+
+        assertEquals(AICallPolicy.State.CLOSED, policy.getState());
+    }
+
+    @Test
+    public void cancelDoesNotTrip() {
+        AICallPolicy policy = new AICallPolicy(NEVER_EXPIRES);
+
+        for (int i = 0; i < 5; i++) {
+            policy.record(AICallPolicy.Outcome.CANCELED, 10);
+        }
+
+        assertEquals(AICallPolicy.State.CLOSED, policy.getState());
+    }
+
+    @Test
+    public void consecutiveFirstContentTimeoutsOpen() {
+        AICallPolicy policy = new AICallPolicy(NEVER_EXPIRES);
+
+        // 连接建立后一直没有输出
+        policy.record(AICallPolicy.Outcome.FIRST_CONTENT_TIMEOUT, 6000);
+        policy.record(AICallPolicy.Outcome.FIRST_CONTENT_TIMEOUT, 6000);
+        assertEquals(AICallPolicy.State.CLOSED, policy.getState());
+        policy.record(AICallPolicy.Outcome.FIRST_CONTENT_TIMEOUT, 6000);
+
+        assertEquals(AICallPolicy.State.OPEN, policy.getState());
+        assertFalse(policy.allowRequest());
+    }
+
+    @Test
+    public void firstContentTimeoutOfTrialReopens() {
+        AICallPolicy policy = openedPolicy(EXPIRED);
+
+        assertTrue(policy.allowRequest());
+        policy.record(AICallPolicy.Outcome.FIRST_CONTENT_TIMEOUT, 6000);
+
+        assertEquals(AICallPolicy.State.OPEN, policy.getState());
+    }
+
+    @Test
+    public void halfOpenAllowsSingleTrialAndClosesOnSuccess() {
+        AICallPolicy policy = openedPolicy(EXPIRED);
+
+        assertTrue(policy.allowRequest());
+        assertEquals(AICallPolicy.State.HALF_OPEN, policy.getState());
+        assertFalse(policy.allowRequest());
+
+        policy.record(AICallPolicy.Outcome.SUCCESS, 100);
+
+        assertEquals(AICallPolicy.State.CLOSED, policy.getState());
+        assertTrue(policy.allowRequest());
+        assertTrue(policy.allowRequest());
+    }
+
+    @Test
+    public void failedTrialReopens() {
+        AICallPolicy policy = openedPolicy(EXPIRED);
+
+        assertTrue(policy.allowRequest());
+        policy.record(AICallPolicy.Outcome.NETWORK_ERROR, 100);
+
+        // 一次失败就重新熔断，不需要再累计FAILURE_THRESHOLD次
+        assertEquals(AICallPolicy.State.OPEN, policy.getState());
+    }
+
+    @Test
+    public void canceledTrialReleasesTheSlot() {
+        AICallPolicy policy = openedPolicy(EXPIRED);
+
+        assertTrue(policy.allowRequest());
+        policy.record(AICallPolicy.Outcome.CANCELED, 10);
+
+        assertEquals(AICallPolicy.State.HALF_OPEN, policy.getState());
+        assertTrue(policy.allowRequest());
+    }
+
+    @Test
+    public void shortCircuitKeepsTrialInFlight() {
+        AICallPolicy policy = openedPolicy(EXPIRED);
+
+        assertTrue(policy.allowRequest());
+        assertFalse(policy.allowRequest());
+        policy.record(AICallPolicy.Outcome.SHORT_CIRCUIT, 0);
+
+        assertFalse(policy.allowRequest());
+    }
+
+    @Test
+    public void resetClearsStatsOnly() {
+        AICallPolicy policy = openedPolicy(NEVER_EXPIRES);
+
+        policy.reset();
+
+        assertEquals(AICallPolicy.State.OPEN, policy.getState());
+        assertFalse(policy.formatReport().contains("HTTP_ERROR"));
+    }
+
+    private static AICallPolicy openedPolicy(long openMillis) {
+        AICallPolicy policy = new AICallPolicy(openMillis);
+        for (int i = 0; i < 3; i++) {
+            policy.record(AICallPolicy.Outcome.HTTP_ERROR, 100);
+        }
+        assertEquals(AICallPolicy.State.OPEN, policy.getState());
+        return policy;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.aitestbank.service;
+
+import com.example.aitestbank.model.Question;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AIService批量解析的单元测试：按token估算装箱、按题号拆分响应，以及答案转为选项字母
+ */
+public class AIServiceTest {
+
+    @Test
+    public void estimateTokensWeighsHanCharactersHigher() {
+        assertEquals(0, AIService.estimateTokens(""));
+        assertEquals(1, AIService.estimateTokens("abc"));
+        assertEquals(3, AIService.estimateTokens("abcdefghij"));
+        assertEquals(2, AIService.estimateTokens("中文"));
+        assertEquals(6, AIService.estimateTokens("中文中文中文中文中文"));
+    }
+
+    @Test
+    public void smallQuestionsArePackedUpToTheOutputBudget() {
+        List<Question> questions = questions(20, "Java中==与equals的区别是什么？");
+
+        List<List<Integer>> batches = AIService.packBatches(questions, answers(20), range(20));
+
+        // 每批最多 BATCH_MAX_TOKENS / BATCH_TOKENS_PER_QUESTION = 8 题，顺序不变
+        assertEquals(Arrays.asList(range(0, 8), range(8, 16), range(16, 20)), batches);
+    }
+
+    @Test
+    public void longQuestionsArePackedByInputEstimate() {
+        List<Question> questions = questions(5, repeat("题", 2000));
+
+        List<List<Integer>> batches = AIService.packBatches(questions, answers(5), range(5));
+
+        // 每题约1200个token，两题一批不超过BATCH_INPUT_TOKENS，三题就超过
+        assertEquals(Arrays.asList(range(0, 2), range(2, 4), range(4, 5)), batches);
+    }
+
+    @Test
+    public void oversizedQuestionGetsItsOwnBatch() {
+        List<Question> questions = questions(2, repeat("题", 10000));
+
+        List<List<Integer>> batches = AIService.packBatches(questions, answers(2), range(2));
+
+        assertEquals(Arrays.asList(Collections.singletonList(0), Collections.singletonList(1)), batches);
+    }
+
+    @Test
+    public void onlyPendingQuestionsArePacked() {
+        List<Question> questions = questions(5, "题目");
+
+        List<List<Integer>> batches = AIService.packBatches(questions, answers(5), Arrays.asList(1, 3));
+
+        assertEquals(Collections.singletonList(Arrays.asList(1, 3)), batches);
+        assertTrue(AIService.packBatches(questions, answers(5), Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void batchResponseIsSplitByQuestionMarker() {
+        String content = "以下是逐题解析：\n"
+                + "### 题目1\n"
+                + "### 1. 题目解析：\n"
+                + "第一题的解析\n"
+                + "### 2. 解题步骤：\n"
+                + "1. 第一步\n"
+                + "2. 第二步\n"
+                + "**题目2：**\n"
+                + "题目解析：第二题的解析\n";
+
+        Map<String, AIService.AIAnalysisResult> results = AIService.splitBatchResponse(content);
+
+        assertEquals(2, results.size());
+        assertEquals("第一题的解析", results.get("1").getAnalysisText());
+        assertEquals(Arrays.asList("第一步", "第二步"), results.get("1").getSolutionSteps());
+        assertEquals("第二题的解析", results.get("2").getAnalysisText());
+    }
+
+    @Test
+    public void batchResponseWithoutMarkersIsEmpty() {
+        assertTrue(AIService.splitBatchResponse(null).isEmpty());
+        assertTrue(AIService.splitBatchResponse("### 题目解析：\n没有题号标记\n").isEmpty());
+    }
+
+    @Test
+    public void answerIndexesBecomeOptionLetters() {
+        Question question = question("题目", Arrays.asList("甲", "乙", "丙", "丁"));
+
+        assertEquals("B", AIService.answerText(question, "1"));
+        assertEquals("A,C", AIService.answerText(question, "0, 2"));
+        assertNull(AIService.answerText(question, "-1"));
+        assertNull(AIService.answerText(question, " "));
+        assertNull(AIService.answerText(question, null));
+    }
+
+    @Test
+    public void answerThatIsNotAnOptionIndexIsKept() {
+        Question withOptions = question("题目", Arrays.asList("甲", "乙"));
+        Question fillBlank = question("题目", null);
+
+        assertEquals("5", AIService.answerText(withOptions, "5"));
+        assertEquals("B", AIService.answerText(withOptions, "B"));
+        assertEquals("1", AIService.answerText(fillBlank, "1"));
+    }
+
+    private static List<Question> questions(int count, String title) {
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Question question = question(title, Arrays.asList("选项一", "选项二", "选项三", "选项四"));
+            question.setId("q" + i);
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    private static Question question(String title, List<String> options) {
+        Question question = new Question(title, options, 0);
+        question.setType("single_choice");
+        question.setDifficulty(3);
+        question.setCategory("Java基础");
+        return question;
+    }
+
+    private static List<String> answers(int count) {
+        return new ArrayList<>(Collections.nCopies(count, "1"));
+    }
+
+    private static List<Integer> range(int end) {
+        return range(0, end);
+    }
+
+    private static List<Integer> range(int start, int end) {
+        List<Integer> range = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            range.add(i);
+        }
+        return range;
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            repeated.append(text);
+        }
+        return repeated.toString();
+    }
+}
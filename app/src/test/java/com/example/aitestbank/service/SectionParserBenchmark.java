@@ -0,0 +1,179 @@
+package com.example.aitestbank.service;
+
+import com.example.aitestbank.BenchmarkReports;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * AI解析章节解析器基准测试
+ *
+ * 用示例响应比较改造前按章节多次扫描的实现、AIAnalysisStreamParser一次解析、
+ * 以及按流式分片增量解析的耗时，并列出两种实现解析出的各章节条数，便于核对结果。
+ * 增量解析与一次解析结果一致由AIAnalysisStreamParserTest检查，这里只计时。
+ *
+ * 耗时与机器有关，不随单元测试运行。需要时去掉@Ignore后执行
+ * ./gradlew :app:testDebugUnitTest --tests com.example.aitestbank.service.SectionParserBenchmark，
+ * 报告写入app/build/reports/benchmarks/section-parser.txt
+ */
+@Ignore("手动运行的基准测试，见类注释")
+public class SectionParserBenchmark {
+
+    // 每项先预热这么久（解析很快，固定轮数不足以让JIT编译完成），再至少测这么久取平均值
+    private static final long WARMUP_NANOS = 200_000_000L;
+    private static final long MIN_MEASURE_NANOS = 200_000_000L;
+    // 模拟流式分片的大小（字符数）和界面刷新间隔（分片数）
+    private static final int STREAM_CHUNK_CHARS = 4;
+    private static final int SNAPSHOT_EVERY_CHUNKS = 20;
+
+    private static final String[] SECTION_NAMES = {"题目解析", "解题步骤", "核心考点", "易错点提醒", "学习建议"};
+
+    @Test
+    public void benchmark() throws IOException {
+        BenchmarkReports.write("section-parser",
+                run(Collections.singletonList(AIAnalysisStreamParserTest.SAMPLE_RESPONSE)));
+    }
+
+    /**
+     * 运行基准测试，返回可读的报告
+     */
+    private static String run(List<String> responses) {
+        long totalChars = 0;
+        for (String response : responses) {
+            totalChars += response.length();
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.getDefault(), "示例响应 %d 条，共 %d 字符\n",
+                responses.size(), totalChars));
+
+        List<String> input = responses;
+        long legacyNanos = measure(() -> {
+            for (String response : input) {
+                legacyParse(response);
+            }
+        });
+        long singlePassNanos = measure(() -> {
+            for (String response : input) {
+                AIAnalysisStreamParser.parse(response);
+            }
+        });
+        long streamingNanos = measure(() -> {
+            for (String response : input) {
+                AIAnalysisStreamParserTest.streamingParse(response, STREAM_CHUNK_CHARS, SNAPSHOT_EVERY_CHUNKS);
+            }
+        });
+
+        appendTiming(report, "逐章节多次扫描（改造前）", legacyNanos, responses.size(), totalChars);
+        appendTiming(report, "单遍解析", singlePassNanos, responses.size(), totalChars);
+        appendTiming(report, String.format(Locale.getDefault(), "增量解析（每%d字一片，每%d片刷新）",
+                STREAM_CHUNK_CHARS, SNAPSHOT_EVERY_CHUNKS), streamingNanos, responses.size(), totalChars);
+
+        report.append("\n各章节条数（改造前 / 单遍）：");
+        for (int i = 0; i < responses.size(); i++) {
+            List<Integer> legacy = sectionCounts(legacyParse(responses.get(i)));
+            List<Integer> current = sectionCounts(AIAnalysisStreamParser.parse(responses.get(i)));
+            report.append(String.format(Locale.getDefault(), "\n  #%d %s / %s", i + 1, legacy, current));
+        }
+        return report.toString();
+    }
+
+    private static void appendTiming(StringBuilder report, String name, long nanos, int count, long chars) {
+        report.append(String.format(Locale.getDefault(), "\n%s: 每条 %.1fμs，%.0f字符/ms",
+                name, nanos / 1000.0 / count, chars / (nanos / 1e6)));
+    }
+
+    private static List<Integer> sectionCounts(AIService.AIAnalysisResult result) {
+        List<Integer> counts = new ArrayList<>(SECTION_NAMES.length);
+        counts.add(result.getAnalysisText().isEmpty() ? 0 : result.getAnalysisText().split("\n").length);
+        counts.add(result.getSolutionSteps().size());
+        counts.add(result.getKeyPoints().size());
+        counts.add(result.getCommonMistakes().size());
+        counts.add(result.getRecommendations().size());
+        return counts;
+    }
+
+    /**
+     * 单次执行的平均耗时（纳秒）
+     */
+    private static long measure(Runnable task) {
+        long warmupStart = System.nanoTime();
+        do {
+            task.run();
+        } while (System.nanoTime() - warmupStart < WARMUP_NANOS);
+        int rounds = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            task.run();
+            rounds++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_MEASURE_NANOS);
+        return elapsed / rounds;
+    }
+
+    // ---- 改造前的实现，原样保留用于对比：每个章节各扫描一遍全文，每行执行未编译的正则 ----
+
+    private static AIService.AIAnalysisResult legacyParse(String content) {
+        AIService.AIAnalysisResult result = new AIService.AIAnalysisResult();
+        result.setAnalysisText(legacyParseSection(content, SECTION_NAMES[0]));
+        result.setSolutionSteps(legacyParseList(content, SECTION_NAMES[1]));
+        result.setKeyPoints(legacyParseList(content, SECTION_NAMES[2]));
+        result.setCommonMistakes(legacyParseList(content, SECTION_NAMES[3]));
+        result.setRecommendations(legacyParseList(content, SECTION_NAMES[4]));
+        return result;
+    }
+
+    private static String legacyParseSection(String content, String sectionName) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+        String[] lines = content.split("\\n");
+        StringBuilder sectionContent = new StringBuilder();
+        boolean inSection = false;
+
+        for (String line : lines) {
+            if (line.trim().startsWith(sectionName + "：") || line.trim().startsWith(sectionName)) {
+                inSection = true;
+                continue;
+            }
+            if (inSection) {
+                if (line.trim().matches("^\\d+\\.\\s+.*") ||
+                    line.trim().matches(".*：.*") &&
+                    !sectionName.equals("题目解析")) {
+                    break;
+                }
+                sectionContent.append(line.trim()).append("\n");
+            }
+        }
+
+        String result = sectionContent.toString().trim();
+        return result.isEmpty() ? "暂无" + sectionName : result;
+    }
+
+    private static List<String> legacyParseList(String content, String sectionName) {
+        List<String> items = new ArrayList<>();
+        String sectionContent = legacyParseSection(content, sectionName);
+        if (sectionContent.equals("暂无" + sectionName) || sectionContent.isEmpty()) {
+            items.add("暂无" + sectionName);
+            return items;
+        }
+        for (String line : sectionContent.split("\\n")) {
+            if (line.trim().isEmpty()) continue;
+            String cleanedLine = line.trim().replaceAll("^\\d+\\.\\s*", "");
+            if (!cleanedLine.isEmpty()) {
+                items.add(cleanedLine);
+            }
+        }
+        if (items.isEmpty()) {
+            items.add("暂无" + sectionName);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.aitestbank.supabase.batch;
+
+import com.example.aitestbank.supabase.http.SupabaseHttpException;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * BatchOperationManager分块发送的单元测试：切分、临时错误重试、永久错误二分定位失败行，
+ * 以及批量更新前按更新内容分组、判断能否走批量更新函数
+ */
+public class BatchOperationManagerTest {
+
+    @Test
+    public void partitionKeepsOrderAndShortLastChunk() {
+        List<List<Integer>> chunks = BatchOperationManager.partition(Arrays.asList(1, 2, 3, 4, 5), 2);
+
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5)), chunks);
+    }
+
+    @Test
+    public void partitionOfEmptyListHasNoChunks() {
+        assertTrue(BatchOperationManager.partition(Collections.emptyList(), 50).isEmpty());
+    }
+
+    @Test
+    public void successfulChunkRecordsEveryRow() {
+        List<JsonObject> rows = rows("a", "b", "c");
+        BatchResult result = new BatchResult(rows.size());
+
+        BatchOperationManager.sendChunk(rows, chunk -> chunk.size(), true, result, 0);
+
+        assertTrue(result.isAllSucceeded());
+        assertEquals(Arrays.asList("a", "b", "c"), result.getSucceededIds());
+        assertEquals(3, result.getAffectedCount());
+        assertEquals(1, result.getRequestCount());
+    }
+
+    @Test
+    public void permanentFailureIsBisectedDownToTheBadRow() {
+        List<JsonObject> rows = rows("a", "b", "c", "d", "e");
+        BatchResult result = new BatchResult(rows.size());
+        List<Integer> sentSizes = new ArrayList<>();
+
+        BatchOperationManager.sendChunk(rows, chunk -> {
+            sentSizes.add(chunk.size());
+            if (ids(chunk).contains("d")) {
+                throw new SupabaseHttpException(409, "duplicate key");
+            }
+            return chunk.size();
+        }, true, result, 0);
+
+        assertEquals(Arrays.asList("a", "b", "c", "e"), result.getSucceededIds());
+        assertEquals(Collections.singleton("d"), result.getFailedRows().keySet());
+        assertEquals(4, result.getAffectedCount());
+        // 5 -> 2 + 3，失败的3行再拆成1 + 2，最后把2行拆开
+        assertEquals(Arrays.asList(5, 2, 3, 1, 2, 1, 1), sentSizes);
+        assertEquals(sentSizes.size(), result.getRequestCount());
+    }
+
+    @Test
+    public void permanentFailureOfUnsplittableChunkFailsAllRows() {
+        List<JsonObject> rows = rows("a", "b");
+        BatchResult result = new BatchResult(rows.size());
+        int[] calls = {0};
+
+        BatchOperationManager.sendChunk(rows, chunk -> {
+            calls[0]++;
+            throw new SupabaseHttpException(400, "bad request");
+        }, false, result, 0);
+
+        assertEquals(1, calls[0]);
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(2, result.getFailureCount());
+    }
+
+    @Test
+    public void transientFailureIsRetriedWithoutSplitting() {
+        List<JsonObject> rows = rows("a", "b");
+        BatchResult result = new BatchResult(rows.size());
+        List<Integer> sentSizes = new ArrayList<>();
+
+        BatchOperationManager.sendChunk(rows, chunk -> {
+            sentSizes.add(chunk.size());
+            if (sentSizes.size() == 1) {
+                throw new IOException("connection reset");
+            }
+            return -1;
+        }, true, result, 0);
+
+        assertEquals(Arrays.asList(2, 2), sentSizes);
+        assertTrue(result.isAllSucceeded());
+        // 影响行数未知时不计入
+        assertEquals(0, result.getAffectedCount());
+    }
+
+    @Test
+    public void transientFailureGivesUpAfterRetries() {
+        List<JsonObject> rows = rows("a", "b");
+        BatchResult result = new BatchResult(rows.size());
+        int[] calls = {0};
+
+        BatchOperationManager.sendChunk(rows, chunk -> {
+            calls[0]++;
+            throw new SupabaseHttpException(503, "unavailable");
+        }, true, result, 0);
+
+        // 首次发送加两次重试，临时错误不拆分
+        assertEquals(3, calls[0]);
+        assertEquals(2, result.getFailureCount());
+    }
+
+    @Test
+    public void rowsWithSamePayloadAreGroupedInOrder() {
+        List<JsonObject> rows = Arrays.asList(
+                update("a", true, 1),
+                update("b", false, 1),
+                update("c", true, 1),
+                update("d", false, 1));
+
+        List<List<JsonObject>> groups = BatchOperationManager.groupByPayload(rows);
+
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList("a", "c"), ids(groups.get(0)));
+        assertEquals(Arrays.asList("b", "d"), ids(groups.get(1)));
+    }
+
+    @Test
+    public void payloadIgnoresIdAndFieldOrder() {
+        JsonObject first = new JsonObject();
+        first.addProperty("id", "a");
+        first.addProperty("is_mastered", true);
+        first.addProperty("review_count", 2);
+        JsonObject second = new JsonObject();
+        second.addProperty("review_count", 2);
+        second.addProperty("id", "b");
+        second.addProperty("is_mastered", true);
+
+        assertEquals(BatchOperationManager.payloadOf(first), BatchOperationManager.payloadOf(second));
+        assertFalse(BatchOperationManager.payloadOf(first).has("id"));
+        assertEquals(1, BatchOperationManager.groupByPayload(Arrays.asList(first, second)).size());
+    }
+
+    @Test
+    public void differentValuesAreNotGrouped() {
+        List<List<JsonObject>> groups = BatchOperationManager.groupByPayload(
+                Arrays.asList(update("a", true, 1), update("b", true, 2)));
+
+        assertEquals(2, groups.size());
+    }
+
+    @Test
+    public void unsupportedRequestIsRethrownWithoutRecordingRows() {
+        List<JsonObject> rows = rows("a", "b");
+        BatchResult result = new BatchResult(rows.size());
+        int[] calls = {0};
+
+        try {
+            BatchOperationManager.sendChunk(rows, chunk -> {
+                calls[0]++;
+                throw new BatchOperationManager.RequestUnsupportedException(
+                        new SupabaseHttpException(404, "function not found"));
+            }, true, result, 0);
+            fail("应当抛出RequestUnsupportedException");
+        } catch (BatchOperationManager.RequestUnsupportedException expected) {
+            // 交由调用方改走PATCH
+        }
+
+        // 不重试也不二分
+        assertEquals(1, calls[0]);
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(0, result.getFailureCount());
+    }
+
+    @Test
+    public void bulkUpdateRpcAcceptsDeclaredColumns() {
+        JsonObject row = update("a", true, 3);
+        row.addProperty("mastery_level", 4);
+        row.addProperty("last_review_date", "2024-01-01");
+
+        assertTrue(BatchOperationManager.supportsBulkUpdateRpc(row));
+    }
+
+    @Test
+    public void bulkUpdateRpcRejectsUnknownColumnsAndNulls() {
+        JsonObject unknown = update("a", true, 3);
+        unknown.addProperty("user_answer", 2);
+        JsonObject withNull = update("b", true, 3);
+        withNull.add("wrong_reason", JsonNull.INSTANCE);
+
+        assertFalse(BatchOperationManager.supportsBulkUpdateRpc(unknown));
+        // 函数把null当作保持原值，要清空字段只能走PATCH
+        assertFalse(BatchOperationManager.supportsBulkUpdateRpc(withNull));
+    }
+
+    private static JsonObject update(String id, boolean mastered, int reviewCount) {
+        JsonObject row = new JsonObject();
+        row.addProperty("id", id);
+        row.addProperty("is_mastered", mastered);
+        row.addProperty("review_count", reviewCount);
+        return row;
+    }
+
+    private static List<JsonObject> rows(String... ids) {
+        List<JsonObject> rows = new ArrayList<>();
+        for (String id : ids) {
+            JsonObject row = new JsonObject();
+            row.addProperty("id", id);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<String> ids(List<JsonObject> rows) {
+        List<String> ids = new ArrayList<>();
+        for (JsonObject row : rows) {
+            ids.add(row.get("id").getAsString());
+        }
+        return ids;
+    }
+}
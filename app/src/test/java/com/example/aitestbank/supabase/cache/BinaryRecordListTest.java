@@ -0,0 +1,135 @@
+package com.example.aitestbank.supabase.cache;
+
+import com.example.aitestbank.model.Question;
+
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BinaryRecordList编码与包装的单元测试
+ */
+public class BinaryRecordListTest {
+
+    @Test
+    public void encodeThenWrapRoundTripsQuestions() throws IOException {
+        Question first = new Question("题目一", Arrays.asList("A项", "B项"), 1);
+        first.setId("q1");
+        first.setDifficulty(3);
+        first.setTags(Collections.singletonList("Java"));
+        first.setViewCount(42L);
+        first.setCorrectRate(0.75);
+        // 可空字段全部留空
+        Question second = new Question();
+        second.setId("q2");
+
+        BinaryRecordList<Question> list = BinaryRecordList.wrap(
+                BinaryRecordList.encode(Arrays.asList(first, second), RecordCodecs.QUESTION), RecordCodecs.QUESTION);
+
+        assertNotNull(list);
+        assertEquals(2, list.size());
+        Question decoded = list.get(0);
+        assertEquals("q1", decoded.getId());
+        assertEquals("题目一", decoded.getTitle());
+        assertEquals(Arrays.asList("A项", "B项"), decoded.getOptions());
+        assertEquals(Integer.valueOf(1), decoded.getCorrectAnswer());
+        assertEquals(Integer.valueOf(3), decoded.getDifficulty());
+        assertEquals(Collections.singletonList("Java"), decoded.getTags());
+        assertEquals(Long.valueOf(42L), decoded.getViewCount());
+        assertEquals(0.75, decoded.getCorrectRate(), 0);
+        assertEquals("q2", list.get(1).getId());
+        assertNull(list.get(1).getTitle());
+        assertNull(list.get(1).getOptions());
+        assertNull(list.get(1).getCorrectAnswer());
+    }
+
+    @Test
+    public void recordsAreDecodedLazilyAndOnce() throws IOException {
+        CountingCodec codec = new CountingCodec();
+        BinaryRecordList<String> list = BinaryRecordList.wrap(
+                BinaryRecordList.encode(Arrays.asList("a", "bb", "ccc"), codec), codec);
+
+        assertNotNull(list);
+        assertEquals(0, list.decodedCount());
+        assertEquals("ccc", list.get(2));
+        assertEquals("ccc", list.get(2));
+        assertEquals(1, list.decodedCount());
+        assertEquals(1, codec.reads);
+        assertEquals(Arrays.asList("a", "bb", "ccc"), list);
+        assertEquals(3, codec.reads);
+    }
+
+    @Test
+    public void emptyListRoundTrips() throws IOException {
+        CountingCodec codec = new CountingCodec();
+        BinaryRecordList<String> list = BinaryRecordList.wrap(
+                BinaryRecordList.encode(Collections.<String>emptyList(), codec), codec);
+
+        assertNotNull(list);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void wrapRejectsOtherVersionAndForeignData() throws IOException {
+        CountingCodec codec = new CountingCodec();
+        byte[] data = BinaryRecordList.encode(Arrays.asList("a", "b"), codec);
+
+        CountingCodec newer = new CountingCodec();
+        newer.version = 2;
+        assertNull(BinaryRecordList.wrap(data, newer));
+        assertNull(BinaryRecordList.wrap(null, codec));
+        assertNull(BinaryRecordList.wrap(new byte[4], codec));
+        assertNull(BinaryRecordList.wrap("[{\"id\":\"q1\"}]".getBytes("UTF-8"), codec));
+    }
+
+    @Test
+    public void wrapRejectsTruncatedOffsetTable() throws IOException {
+        CountingCodec codec = new CountingCodec();
+        byte[] data = BinaryRecordList.encode(Arrays.asList("a", "b", "c"), codec);
+
+        // 只保留头部和一部分偏移表
+        assertNull(BinaryRecordList.wrap(Arrays.copyOf(data, 16), codec));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfRangeThrows() throws IOException {
+        CountingCodec codec = new CountingCodec();
+        List<String> list = BinaryRecordList.wrap(BinaryRecordList.encode(Collections.singletonList("a"), codec), codec);
+
+        list.get(1);
+    }
+
+    /**
+     * 字符串编解码，记录解码次数
+     */
+    private static class CountingCodec implements BinaryRecordList.RecordCodec<String> {
+        int version = 1;
+        int reads;
+
+        @Override
+        public int version() {
+            return version;
+        }
+
+        @Override
+        public void write(DataOutput out, String record) throws IOException {
+            out.writeUTF(record);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            reads++;
+            return in.readUTF();
+        }
+    }
+}
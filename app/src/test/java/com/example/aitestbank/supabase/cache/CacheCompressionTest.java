@@ -0,0 +1,89 @@
+package com.example.aitestbank.supabase.cache;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CacheCompression的单元测试：默认级别下的往返、压缩阈值和压不动时按原样保存
+ */
+public class CacheCompressionTest {
+
+    @Test
+    public void largeEntryIsDeflatedAndRoundTrips() throws IOException {
+        byte[] raw = questionJson(CacheCompression.COMPRESS_THRESHOLD * 4);
+
+        byte[] stored = CacheCompression.encode(raw);
+
+        assertEquals(CacheCompression.CODEC_DEFLATE, CacheCompression.codecOf(stored));
+        assertTrue(stored.length < raw.length);
+        assertArrayEquals(raw, CacheCompression.decode(stored, raw.length));
+        // 原始大小未知时同样能解压
+        assertArrayEquals(raw, CacheCompression.decode(stored, 0));
+    }
+
+    @Test
+    public void deflateAtDefaultLevelRoundTrips() throws IOException {
+        byte[] raw = questionJson(CacheCompression.COMPRESS_THRESHOLD * 4);
+
+        byte[] compressed = CacheCompression.deflate(raw, CacheCompression.DEFAULT_LEVEL);
+
+        assertArrayEquals(raw, CacheCompression.inflate(compressed, 0, compressed.length, raw.length));
+    }
+
+    @Test
+    public void entryBelowThresholdIsStoredUncompressed() throws IOException {
+        // 内容重复、很容易压缩，但低于阈值
+        byte[] raw = questionJson(CacheCompression.COMPRESS_THRESHOLD - 1);
+
+        byte[] stored = CacheCompression.encode(raw);
+
+        assertEquals(CacheCompression.CODEC_NONE, CacheCompression.codecOf(stored));
+        assertEquals(raw.length + 1, stored.length);
+        assertArrayEquals(raw, CacheCompression.decode(stored, raw.length));
+    }
+
+    @Test
+    public void incompressibleEntryIsStoredUncompressed() throws IOException {
+        byte[] raw = new byte[CacheCompression.COMPRESS_THRESHOLD * 4];
+        new Random(42).nextBytes(raw);
+
+        byte[] stored = CacheCompression.encode(raw);
+
+        assertEquals(CacheCompression.CODEC_NONE, CacheCompression.codecOf(stored));
+        assertArrayEquals(raw, CacheCompression.decode(stored, raw.length));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedDeflateDataFailsToDecode() throws IOException {
+        byte[] stored = CacheCompression.encode(questionJson(CacheCompression.COMPRESS_THRESHOLD * 4));
+
+        CacheCompression.decode(Arrays.copyOf(stored, stored.length / 2), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void unknownCodecFailsToDecode() throws IOException {
+        CacheCompression.decode(new byte[]{(byte) 9, 1, 2, 3}, 3);
+    }
+
+    /**
+     * 截取到指定字节数的题目JSON（按字节截取，只用作压缩输入）
+     */
+    private static byte[] questionJson(int length) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < length; i++) {
+            json.append("{\"id\":\"q").append(i)
+                    .append("\",\"question\":\"下列关于Java基础的说法中，哪一项是正确的？\",")
+                    .append("\"options\":[\"选项A\",\"选项B\",\"选项C\",\"选项D\"],\"correct_answer\":")
+                    .append(i % 4).append("},");
+        }
+        return Arrays.copyOf(json.toString().getBytes(StandardCharsets.UTF_8), length);
+    }
+}
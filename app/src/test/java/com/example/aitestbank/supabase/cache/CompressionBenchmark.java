@@ -0,0 +1,142 @@
+package com.example.aitestbank.supabase.cache;
+
+import com.example.aitestbank.BenchmarkReports;
+import com.example.aitestbank.model.Question;
+import com.google.gson.Gson;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * 缓存压缩基准测试
+ *
+ * 用生成的示例题目分别生成两种缓存格式（SupabaseCacheManager的JSON、CacheUtils的二进制记录列表）
+ * 和单道题的小条目，比较不同Deflate级别的压缩率和压缩/解压耗时。
+ * 编解码的正确性由CacheCompressionTest检查，这里只计时。
+ *
+ * 耗时与机器有关，不随单元测试运行。需要时去掉@Ignore后执行
+ * ./gradlew :app:testDebugUnitTest --tests com.example.aitestbank.supabase.cache.CompressionBenchmark，
+ * 报告写入app/build/reports/benchmarks/compression.txt
+ */
+@Ignore("手动运行的基准测试，见类注释")
+public class CompressionBenchmark {
+
+    // 每项至少测这么久，取平均值
+    private static final long MIN_MEASURE_NANOS = 200_000_000L;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int[] LEVELS = {Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION};
+
+    private static final int SAMPLE_QUESTIONS = 50;
+
+    @Test
+    public void benchmark() throws IOException {
+        BenchmarkReports.write("compression", run(sampleQuestions()));
+    }
+
+    /**
+     * 生成结构与questions表一致的示例题目（题干、选项、解析和标签有少量重复，接近真实题库）
+     */
+    private static List<Question> sampleQuestions() {
+        String[] subjects = {"Java基础", "数据结构", "操作系统", "计算机网络", "数据库"};
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < SAMPLE_QUESTIONS; i++) {
+            String subject = subjects[i % subjects.length];
+            List<String> options = Arrays.asList(
+                    "选项A：" + subject + "中关于第" + i + "题的第一种说法",
+                    "选项B：" + subject + "中关于第" + i + "题的第二种说法",
+                    "选项C：以上说法都正确",
+                    "选项D：以上说法都不正确");
+            Question question = new Question("下列关于" + subject + "的说法中，哪一项是正确的？（第" + i + "题）",
+                    options, i % 4);
+            question.setId(String.format(Locale.ROOT, "00000000-0000-0000-0000-%012d", i));
+            question.setAnalysis("本题考查" + subject + "的基本概念。正确答案的依据是教材中对该知识点的定义，"
+                    + "其余选项分别混淆了相近概念或忽略了适用条件。");
+            question.setKnowledgePoints(Arrays.asList(subject, "基本概念"));
+            question.setDifficulty(i % 5 + 1);
+            question.setCategory(subject);
+            question.setSubject("计算机");
+            question.setType("single_choice");
+            question.setTags(Arrays.asList("期末复习", subject));
+            question.setViewCount((long) (i * 37));
+            question.setCorrectRate(0.5 + (i % 10) / 20.0);
+            question.setCreatedAt("2024-01-01T00:00:00+00:00");
+            question.setUpdatedAt("2024-01-01T00:00:00+00:00");
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    /**
+     * 运行基准测试，返回可读的报告
+     */
+    private static String run(List<Question> questions) throws IOException {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.getDefault(), "题目数: %d，压缩阈值: %dB，当前级别: %d\n",
+                questions.size(), CacheCompression.COMPRESS_THRESHOLD, CacheCompression.DEFAULT_LEVEL));
+
+        byte[] json = new Gson().toJson(questions).getBytes(StandardCharsets.UTF_8);
+        byte[] binary = BinaryRecordList.encode(questions, RecordCodecs.QUESTION);
+        byte[] single = new Gson().toJson(questions.get(0)).getBytes(StandardCharsets.UTF_8);
+
+        appendPayload(report, "JSON列表", json);
+        appendPayload(report, "二进制记录列表", binary);
+        appendPayload(report, "单道题JSON", single);
+        return report.toString();
+    }
+
+    private static void appendPayload(StringBuilder report, String name, byte[] raw) throws IOException {
+        report.append(String.format(Locale.getDefault(), "\n[%s] 原始 %dB", name, raw.length));
+        if (raw.length < CacheCompression.COMPRESS_THRESHOLD) {
+            report.append("（低于阈值，实际不压缩）");
+        }
+        for (int level : LEVELS) {
+            byte[] compressed = CacheCompression.deflate(raw, level);
+            byte[] restored = CacheCompression.inflate(compressed, 0, compressed.length, raw.length);
+            if (!Arrays.equals(raw, restored)) {
+                throw new IOException("解压结果与原始数据不一致, level=" + level);
+            }
+            long compressNanos = measure(() -> CacheCompression.deflate(raw, level));
+            long inflateNanos = measure(() -> CacheCompression.inflate(compressed, 0, compressed.length, raw.length));
+            report.append(String.format(Locale.getDefault(),
+                    "\n  级别%d: %dB (%.1f%%), 压缩 %.1fμs (%.1fMB/s), 解压 %.1fμs (%.1fMB/s)",
+                    level, compressed.length, compressed.length * 100.0 / raw.length,
+                    compressNanos / 1000.0, throughputMBps(raw.length, compressNanos),
+                    inflateNanos / 1000.0, throughputMBps(raw.length, inflateNanos)));
+        }
+        report.append("\n");
+    }
+
+    private interface Task {
+        Object run() throws IOException;
+    }
+
+    /**
+     * 单次执行的平均耗时（纳秒）
+     */
+    private static long measure(Task task) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            task.run();
+        }
+        int rounds = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            task.run();
+            rounds++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_MEASURE_NANOS);
+        return elapsed / rounds;
+    }
+
+    private static double throughputMBps(int bytes, long nanos) {
+        return nanos > 0 ? bytes / (nanos / 1e9) / (1024 * 1024) : 0;
+    }
+}
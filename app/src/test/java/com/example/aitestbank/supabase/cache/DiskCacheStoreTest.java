@@ -0,0 +1,206 @@
+package com.example.aitestbank.supabase.cache;
+
+import com.example.aitestbank.utils.AppExecutors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DiskCacheStore过期堆和清空的单元测试
+ * 单元测试里android.jar的AtomicFile是空实现，改为注入直接读写文件的PlainJournalFile
+ */
+public class DiskCacheStoreTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DiskCacheStore store;
+    private long now;
+
+    @Before
+    public void setUp() {
+        store = new DiskCacheStore(folder.getRoot(), PlainJournalFile::new);
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    public void removeExpiredOnlyRemovesDueEntries() {
+        store.put("expired", "a", now - MINUTE);
+        store.put("fresh", "b", now + MINUTE);
+        store.put("permanent", "c", 0);
+
+        assertEquals(Collections.singletonList("expired"), store.removeExpired(0));
+        assertEquals(2, store.entries().size());
+        assertTrue(store.entries().containsKey("fresh"));
+        assertTrue(store.entries().containsKey("permanent"));
+        assertEquals(now + MINUTE, store.nextExpireTime());
+        assertEquals(2, store.totalBytes());
+    }
+
+    @Test
+    public void expiredEntryStaysReadableUntilRemoved() {
+        store.put("expired", "stale", now - MINUTE);
+
+        assertNull(store.get("expired"));
+        assertEquals("stale", store.get("expired", true));
+
+        store.removeExpired(0);
+
+        assertNull(store.get("expired", true));
+    }
+
+    @Test
+    public void retentionKeepsRecentlyExpiredEntries() {
+        store.put("expired", "a", now - MINUTE);
+
+        assertTrue(store.removeExpired(5 * MINUTE).isEmpty());
+        assertEquals(Collections.singletonList("expired"), store.removeExpired(0));
+    }
+
+    @Test
+    public void nextExpireTimeIgnoresEntriesWithoutExpiry() {
+        assertEquals(Long.MAX_VALUE, store.nextExpireTime());
+
+        store.put("permanent", "a", 0);
+
+        assertEquals(Long.MAX_VALUE, store.nextExpireTime());
+    }
+
+    @Test
+    public void overwrittenEntryIsNotRemovedByItsStaleNode() {
+        store.put("key", "old", now - MINUTE);
+        store.put("key", "new", now + MINUTE);
+
+        assertTrue(store.removeExpired(0).isEmpty());
+        assertTrue(store.entries().containsKey("key"));
+        // 失效节点已在清理时弹出
+        assertEquals(now + MINUTE, store.nextExpireTime());
+    }
+
+    @Test
+    public void setExpireTimeMovesEntryInTheHeap() {
+        store.put("extended", "a", now - MINUTE);
+        store.put("shortened", "b", now + MINUTE);
+
+        store.setExpireTime("extended", now + 2 * MINUTE);
+        store.setExpireTime("shortened", now - MINUTE);
+
+        assertEquals(Collections.singletonList("shortened"), store.removeExpired(0));
+        assertEquals(now + 2 * MINUTE, store.getEntry("extended").expireTime);
+    }
+
+    @Test
+    public void removedEntryIsSkipped() {
+        store.put("key", "a", now - MINUTE);
+        store.remove("key");
+
+        assertTrue(store.removeExpired(0).isEmpty());
+        assertEquals(0, store.totalBytes());
+    }
+
+    @Test
+    public void heapIsRebuiltAfterManyOverwrites() {
+        store.put("key", "a", now - MINUTE);
+        // 失效节点超过上限后按索引重建，过期的旧节点随之消失
+        for (int i = 1; i <= 100; i++) {
+            store.put("key", "a", now + i * MINUTE);
+        }
+
+        assertTrue(store.nextExpireTime() > now);
+        assertTrue(store.removeExpired(0).isEmpty());
+        assertEquals(1, store.entries().size());
+    }
+
+    @Test
+    public void clearKeepsEntriesWrittenAfterwardsOnDisk() throws InterruptedException {
+        store.put("old", "a", 0);
+        store.clear();
+        store.put("new", "b", 0);
+        drainWriter();
+
+        DiskCacheStore reopened = new DiskCacheStore(folder.getRoot(), PlainJournalFile::new);
+
+        assertEquals(Collections.singleton("new"), reopened.entries().keySet());
+        assertEquals("b", reopened.get("new"));
+    }
+
+    /**
+     * 等待写入通道上已排队的任务执行完
+     */
+    private static void drainWriter() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AppExecutors.getInstance().writer().execute(latch::countDown);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 直接读写文件，只保证单线程下的正确性，不提供原子替换
+     */
+    static class PlainJournalFile implements DiskCacheStore.JournalFile {
+        private final File file;
+
+        PlainJournalFile(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public FileInputStream openRead() throws FileNotFoundException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        public byte[] readFully() throws IOException {
+            if (!file.exists()) {
+                throw new FileNotFoundException(file.getPath());
+            }
+            return Files.readAllBytes(file.toPath());
+        }
+
+        @Override
+        public FileOutputStream startWrite() throws IOException {
+            return new FileOutputStream(file);
+        }
+
+        @Override
+        public void finishWrite(FileOutputStream out) {
+            close(out);
+        }
+
+        @Override
+        public void failWrite(FileOutputStream out) {
+            close(out);
+            file.delete();
+        }
+
+        @Override
+        public void delete() {
+            file.delete();
+        }
+
+        private static void close(FileOutputStream out) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // 与AtomicFile一致，忽略关闭失败
+            }
+        }
+    }
+}